@@ -0,0 +1,249 @@
+package nl.fontys.sebivenlo.ranges;
+
+import java.io.Serializable;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Half open range [start,end) of {@code int} points, with the algebra of
+ * {@link Range} for code that makes and tests many ranges.
+ *
+ * <p>
+ * The points are stored as primitives, so the query methods
+ * {@link #contains(int)}, {@link #contains(IntRange)}, {@link #overlaps},
+ * {@link #overlap}, {@link #meets} and {@link #length} allocate nothing. Only
+ * the methods that produce new ranges create objects.</p>
+ *
+ * <p>
+ * The results are those of {@link IntegerRange}, with two deliberate
+ * differences: {@link #meets} compares values, where {@link Range#meets}
+ * compares the boxed points by identity, and {@link #joinWith} also joins
+ * ranges with the same start. Use {@link #of(IntegerRange)} and
+ * {@link #toIntegerRange()} to pass ranges to and from generic range
+ * code.</p>
+ */
+public final class IntRange implements Comparable<IntRange>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int start;
+    private final int end;
+
+    private IntRange( int start, int end ) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Create a range. The points may be given in any order.
+     *
+     * @param start of range
+     * @param end of range
+     * @return the range
+     */
+    public static IntRange of( int start, int end ) {
+        return start <= end ? new IntRange( start, end ) : new IntRange( end,
+                start );
+    }
+
+    /**
+     * Adapter from the generic range.
+     *
+     * @param range to copy
+     * @return the range with the same points
+     */
+    public static IntRange of( IntegerRange range ) {
+        return new IntRange( range.start(), range.end() );
+    }
+
+    /**
+     * Adapter to the generic range.
+     *
+     * @return an IntegerRange with the same points
+     */
+    public IntegerRange toIntegerRange() {
+        return IntegerRange.of( start, end );
+    }
+
+    /**
+     * Widen to a long range.
+     *
+     * @return a LongRange with the same points
+     */
+    public LongRange toLongRange() {
+        return LongRange.of( start, end );
+    }
+
+    /**
+     * Get the start, which is part of this range.
+     *
+     * @return start
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * Get the end, which is not part of this range.
+     *
+     * @return end
+     */
+    public int end() {
+        return end;
+    }
+
+    /**
+     * The length, end - start. As a long, because the length of a range
+     * with a negative start can exceed {@link Integer#MAX_VALUE}.
+     *
+     * @return the length
+     */
+    public long length() {
+        return (long) end - start;
+    }
+
+    /**
+     * Is a point contained in this range. Like {@link Range#contains(Comparable)}
+     * the start is always contained, also in an empty range.
+     *
+     * @param point the point
+     * @return true if point is the start or not before start and before end
+     */
+    public boolean contains( int point ) {
+        return point == start || point > start && point < end;
+    }
+
+    /**
+     * Does this range overlap with another one.
+     *
+     * @param other to check
+     * @return true on overlap with other
+     */
+    public boolean overlaps( IntRange other ) {
+        return Math.min( end, other.end ) > Math.max( start, other.start );
+    }
+
+    /**
+     * The length of the overlap of this and other range.
+     *
+     * @param other range
+     * @return the length of the overlap, 0 when there is none; a long like
+     * {@link #length()}
+     */
+    public long overlap( IntRange other ) {
+        if ( !overlaps( other ) ) {
+            return 0;
+        }
+        return (long) Math.min( end, other.end ) - Math.max( start, other.start );
+    }
+
+    /**
+     * Does this and other just meet, this.start == other.end or other.start
+     * == this.end.
+     *
+     * @param other range
+     * @return meet
+     */
+    public boolean meets( IntRange other ) {
+        return start == other.end || other.start == end;
+    }
+
+    /**
+     * Test if all points of other are also part of this range.
+     *
+     * @param other range
+     * @return is the other range completely inside this range?
+     */
+    public boolean contains( IntRange other ) {
+        return start <= other.start && end >= other.end;
+    }
+
+    /**
+     * Join this range with other range.
+     *
+     * @param other range to join
+     * @return new joined range
+     * @throws IllegalArgumentException when this and other do not overlap or
+     * meet.
+     */
+    public IntRange joinWith( IntRange other ) {
+        if ( !( meets( other ) || overlaps( other ) ) ) {
+            throw new IllegalArgumentException( "this range " + this
+                    + " and other " + other + " do not meet nor overlap" );
+        }
+        return new IntRange( Math.min( start, other.start ), Math.max( end,
+                other.end ) );
+    }
+
+    /**
+     * The intersection of this and other range.
+     *
+     * @param other that cuts this range
+     * @return the intersection, empty when this and other do not overlap
+     */
+    public Optional<IntRange> intersectWith( IntRange other ) {
+        if ( !overlaps( other ) ) {
+            return Optional.empty();
+        }
+        return Optional.of( new IntRange( Math.max( start, other.start ), Math
+                .min( end, other.end ) ) );
+    }
+
+    /**
+     * Punch a range through this range, like
+     * {@link Range#punchThrough(Range)}.
+     *
+     * @param punch to knockout parts of this range
+     * @return this on a miss, else the remainders of this range and the punch
+     * in order
+     */
+    public Stream<IntRange> punchThrough( IntRange punch ) {
+        if ( !contains( punch ) ) {
+            return Stream.of( this );
+        }
+        if ( equals( punch ) ) {
+            return Stream.of( punch );
+        }
+        if ( start == punch.start ) {
+            return Stream.of( punch, new IntRange( punch.end, end ) );
+        }
+        if ( end == punch.end ) {
+            return Stream.of( new IntRange( start, punch.start ), punch );
+        }
+        return Stream.of( new IntRange( start, punch.start ), punch,
+                new IntRange( punch.end, end ) );
+    }
+
+    /**
+     * Compare by start only, like {@link Range#compareTo}.
+     *
+     * @param other to compare with this
+     * @return negative, zero or positive for this start less, equal or greater
+     */
+    @Override
+    public int compareTo( IntRange other ) {
+        return Integer.compare( start, other.start );
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * start + end;
+    }
+
+    @Override
+    public boolean equals( Object obj ) {
+        if ( this == obj ) {
+            return true;
+        }
+        if ( !( obj instanceof IntRange ) ) {
+            return false;
+        }
+        IntRange other = (IntRange) obj;
+        return start == other.start && end == other.end;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + start + "," + end + ")";
+    }
+}
@@ -14,8 +14,9 @@ public class IntegerRange implements Range<IntegerRange, Integer, Integer> {
     private final Integer end;
 
     private IntegerRange(Integer start, Integer end){
-       this.start =  Range.minmax(start,end)[0];
-       this.end = Range.minmax(start,end)[1];
+       Integer[] sorted = Range.minmax(start,end);
+       this.start = sorted[0];
+       this.end = sorted[1];
     }
     
     @Override
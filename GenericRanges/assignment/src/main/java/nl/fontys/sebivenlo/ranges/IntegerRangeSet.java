@@ -0,0 +1,700 @@
+package nl.fontys.sebivenlo.ranges;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Compressed set of ints, made from and turned into {@link IntegerRange}s,
+ * for inventories of many free positions like seats or slots.
+ *
+ * <p>
+ * The set is organised like a roaring bitmap: the ints are cut into chunks
+ * of 65536 that share their high 16 bits, and each chunk that holds points
+ * has a container of its own kind. A chunk with few runs of consecutive
+ * points keeps the runs, 4 bytes a run; a chunk with 2048 runs or more keeps
+ * a bitmap of 8 KB. A range thus takes a few bytes instead of an
+ * IntegerRange with two boxed Integers.</p>
+ *
+ * <p>
+ * {@link #union union}, {@link #intersection intersection} and
+ * {@link #difference difference} work per chunk: two run containers by
+ * merging their runs, otherwise on the bitmap words. Their time is linear
+ * in the size of the containers, not in the number of points.
+ * {@link #contains(int) contains} is a binary search over the chunks and
+ * the runs or a bit test.</p>
+ *
+ * <p>
+ * Sets are immutable; the operations create new sets, sharing the
+ * containers they do not change. Each set has one representation, so
+ * {@link #equals(Object) equals} compares the containers.</p>
+ */
+public final class IntegerRangeSet implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Runs at which a bitmap takes less space than the runs.
+     */
+    static final int MAX_RUNS = 2048;
+    private static final int WORDS = 1024;
+
+    private static final IntegerRangeSet EMPTY = new IntegerRangeSet(
+            new char[ 0 ], new Container[ 0 ] );
+
+    // the high 16 bits of the chunks, with the sign bit flipped to sort as int
+    private final char[] keys;
+    private final Container[] containers;
+
+    private IntegerRangeSet( char[] keys, Container[] containers ) {
+        this.keys = keys;
+        this.containers = containers;
+    }
+
+    /**
+     * The empty set.
+     *
+     * @return the set
+     */
+    public static IntegerRangeSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * The set of the points of some ranges, which may overlap.
+     *
+     * @param ranges to add
+     * @return the set
+     */
+    public static IntegerRangeSet of( Stream<IntegerRange> ranges ) {
+        List<IntegerRange> coalesced = ranges.collect( RangeCollectors
+                .coalescing() );
+        Builder builder = new Builder();
+        for ( IntegerRange r : coalesced ) {
+            builder.add( r.start(), r.end() );
+        }
+        return builder.build();
+    }
+
+    /**
+     * The set of the points of some ranges, which may overlap.
+     *
+     * @param ranges to add
+     * @return the set
+     */
+    public static IntegerRangeSet of( Collection<IntegerRange> ranges ) {
+        return of( ranges.stream() );
+    }
+
+    /**
+     * The points of this set as the fewest ranges, in order. Ranges neither
+     * overlap nor meet.
+     *
+     * @return the ranges
+     */
+    public Stream<IntegerRange> stream() {
+        return StreamSupport.stream( new Ranges(), false );
+    }
+
+    /**
+     * Test if a point is in this set.
+     *
+     * @param point to test
+     * @return true when the point is in this set
+     */
+    public boolean contains( int point ) {
+        int c = Arrays.binarySearch( keys, key( point ) );
+        return c >= 0 && containers[ c ].contains( point & 0xFFFF );
+    }
+
+    /**
+     * The number of points in this set.
+     *
+     * @return the cardinality
+     */
+    public long cardinality() {
+        long cardinality = 0;
+        for ( Container c : containers ) {
+            cardinality += c.cardinality();
+        }
+        return cardinality;
+    }
+
+    /**
+     * Test for emptiness.
+     *
+     * @return true when there are no points
+     */
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    /**
+     * The points in this or the other set.
+     *
+     * @param other set
+     * @return the union
+     */
+    public IntegerRangeSet union( IntegerRangeSet other ) {
+        return combine( other, Op.UNION );
+    }
+
+    /**
+     * The points in both this and the other set.
+     *
+     * @param other set
+     * @return the intersection
+     */
+    public IntegerRangeSet intersection( IntegerRangeSet other ) {
+        return combine( other, Op.INTERSECTION );
+    }
+
+    /**
+     * The points in this set that are not in the other set, as if the other
+     * set were {@link Range#punchThrough(Range) punched} out of this one.
+     *
+     * @param other set
+     * @return the difference
+     */
+    public IntegerRangeSet difference( IntegerRangeSet other ) {
+        return combine( other, Op.DIFFERENCE );
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Arrays.hashCode( keys );
+        for ( Container c : containers ) {
+            hash = 31 * hash + c.hashCode();
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals( Object obj ) {
+        if ( this == obj ) {
+            return true;
+        }
+        if ( !( obj instanceof IntegerRangeSet ) ) {
+            return false;
+        }
+        IntegerRangeSet other = (IntegerRangeSet) obj;
+        return Arrays.equals( keys, other.keys ) && Arrays.equals( containers,
+                other.containers );
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder( "IntegerRangeSet[" );
+        String sep = "";
+        for ( IntegerRange r : (Iterable<IntegerRange>) stream()::iterator ) {
+            sb.append( sep ).append( r );
+            sep = ", ";
+        }
+        return sb.append( ']' ).toString();
+    }
+
+    private static char key( int point ) {
+        return (char) ( ( point ^ Integer.MIN_VALUE ) >>> 16 );
+    }
+
+    private static int point( char key, int low ) {
+        return ( key << 16 | low ) ^ Integer.MIN_VALUE;
+    }
+
+    /**
+     * Merge the chunks of this and other set.
+     */
+    private IntegerRangeSet combine( IntegerRangeSet other, Op op ) {
+        int capacity = op == Op.INTERSECTION ? Math.min( keys.length,
+                other.keys.length ) : keys.length + other.keys.length;
+        char[] k = new char[ capacity ];
+        Container[] c = new Container[ capacity ];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while ( i < keys.length || j < other.keys.length ) {
+            int order = i == keys.length ? 1 : j == other.keys.length ? -1
+                    : Character.compare( keys[ i ], other.keys[ j ] );
+            Container result;
+            char key;
+            if ( order < 0 ) {
+                key = keys[ i ];
+                result = op == Op.INTERSECTION ? null : containers[ i ];
+                i++;
+            } else if ( order > 0 ) {
+                key = other.keys[ j ];
+                result = op == Op.UNION ? other.containers[ j ] : null;
+                j++;
+            } else {
+                key = keys[ i ];
+                result = op.apply( containers[ i++ ], other.containers[ j++ ] );
+            }
+            if ( result != null ) {
+                k[ n ] = key;
+                c[ n++ ] = result;
+            }
+        }
+        return n == 0 ? EMPTY : new IntegerRangeSet( Arrays.copyOf( k, n ),
+                Arrays.copyOf( c, n ) );
+    }
+
+    /**
+     * The set operations on two containers of the same chunk.
+     */
+    private enum Op {
+        UNION {
+            @Override
+            long word( long a, long b ) {
+                return a | b;
+            }
+
+            @Override
+            char[] runs( char[] a, char[] b ) {
+                return runUnion( a, b );
+            }
+        },
+        INTERSECTION {
+            @Override
+            long word( long a, long b ) {
+                return a & b;
+            }
+
+            @Override
+            char[] runs( char[] a, char[] b ) {
+                return runIntersection( a, b );
+            }
+        },
+        DIFFERENCE {
+            @Override
+            long word( long a, long b ) {
+                return a & ~b;
+            }
+
+            @Override
+            char[] runs( char[] a, char[] b ) {
+                return runDifference( a, b );
+            }
+        };
+
+        abstract long word( long a, long b );
+
+        abstract char[] runs( char[] a, char[] b );
+
+        /**
+         * The resulting container, null when it is empty.
+         */
+        Container apply( Container a, Container b ) {
+            if ( a instanceof RunContainer && b instanceof RunContainer ) {
+                return fromRuns( runs( ( (RunContainer) a ).runs,
+                        ( (RunContainer) b ).runs ) );
+            }
+            long[] words = a.words();
+            long[] other = b.words();
+            for ( int w = 0; w < WORDS; w++ ) {
+                words[ w ] = word( words[ w ], other[ w ] );
+            }
+            return fromWords( words );
+        }
+    }
+
+    // Runs are pairs of first and last point, in order, neither overlapping nor meeting.
+    private static char[] runUnion( char[] a, char[] b ) {
+        char[] out = new char[ a.length + b.length ];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while ( i < a.length || j < b.length ) {
+            char first;
+            char last;
+            if ( j == b.length || i < a.length && a[ i ] <= b[ j ] ) {
+                first = a[ i ];
+                last = a[ i + 1 ];
+                i += 2;
+            } else {
+                first = b[ j ];
+                last = b[ j + 1 ];
+                j += 2;
+            }
+            if ( n > 0 && first <= out[ n - 1 ] + 1 ) {
+                if ( last > out[ n - 1 ] ) {
+                    out[ n - 1 ] = last;
+                }
+            } else {
+                out[ n++ ] = first;
+                out[ n++ ] = last;
+            }
+        }
+        return Arrays.copyOf( out, n );
+    }
+
+    private static char[] runIntersection( char[] a, char[] b ) {
+        char[] out = new char[ a.length + b.length ];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while ( i < a.length && j < b.length ) {
+            char first = (char) Math.max( a[ i ], b[ j ] );
+            char last = (char) Math.min( a[ i + 1 ], b[ j + 1 ] );
+            if ( first <= last ) {
+                out[ n++ ] = first;
+                out[ n++ ] = last;
+            }
+            if ( a[ i + 1 ] < b[ j + 1 ] ) {
+                i += 2;
+            } else {
+                j += 2;
+            }
+        }
+        return Arrays.copyOf( out, n );
+    }
+
+    private static char[] runDifference( char[] a, char[] b ) {
+        char[] out = new char[ a.length + b.length ];
+        int n = 0;
+        int j = 0;
+        for ( int i = 0; i < a.length; i += 2 ) {
+            int first = a[ i ];
+            int last = a[ i + 1 ];
+            while ( j < b.length && b[ j + 1 ] < first ) {
+                j += 2;
+            }
+            // a run of b may also cut the next run of a, so j stays
+            for ( int k = j; k < b.length && b[ k ] <= last && first <= last;
+                    k += 2 ) {
+                if ( b[ k ] > first ) {
+                    out[ n++ ] = (char) first;
+                    out[ n++ ] = (char) ( b[ k ] - 1 );
+                }
+                first = Math.max( first, b[ k + 1 ] + 1 );
+            }
+            if ( first <= last ) {
+                out[ n++ ] = (char) first;
+                out[ n++ ] = (char) last;
+            }
+        }
+        return Arrays.copyOf( out, n );
+    }
+
+    /**
+     * The container for some runs: null, the runs or a bitmap.
+     */
+    private static Container fromRuns( char[] runs ) {
+        if ( runs.length == 0 ) {
+            return null;
+        }
+        if ( runs.length / 2 < MAX_RUNS ) {
+            return new RunContainer( runs );
+        }
+        long[] words = new long[ WORDS ];
+        for ( int r = 0; r < runs.length; r += 2 ) {
+            setRange( words, runs[ r ], runs[ r + 1 ] );
+        }
+        return fromWords( words );
+    }
+
+    /**
+     * The container for a bitmap: null, the runs or the bitmap.
+     */
+    private static Container fromWords( long[] words ) {
+        int cardinality = 0;
+        for ( long word : words ) {
+            cardinality += Long.bitCount( word );
+        }
+        if ( cardinality == 0 ) {
+            return null;
+        }
+        int runs = countRuns( words );
+        if ( runs >= MAX_RUNS ) {
+            return new BitmapContainer( words, cardinality );
+        }
+        return new RunContainer( runsOf( words, runs ) );
+    }
+
+    private static int countRuns( long[] words ) {
+        int runs = 0;
+        long carry = 0;
+        for ( long word : words ) {
+            // the bits that start a run
+            runs += Long.bitCount( word & ~( word << 1 | carry ) );
+            carry = word >>> 63;
+        }
+        return runs;
+    }
+
+    private static char[] runsOf( long[] words, int runs ) {
+        char[] out = new char[ 2 * runs ];
+        int n = 0;
+        int w = 0;
+        long word = words[ 0 ];
+        while ( n < out.length ) {
+            while ( word == 0 ) {
+                word = words[ ++w ];
+            }
+            out[ n++ ] = (char) ( w * 64 + Long.numberOfTrailingZeros( word ) );
+            // fill below the run, then find its end
+            word |= word - 1;
+            while ( word == -1L && w < WORDS - 1 ) {
+                word = words[ ++w ];
+            }
+            if ( word == -1L ) {
+                out[ n++ ] = 0xFFFF;
+                break;
+            }
+            out[ n++ ] = (char) ( w * 64 + Long.numberOfTrailingZeros( ~word ) - 1 );
+            word &= word + 1;
+        }
+        return out;
+    }
+
+    private static void setRange( long[] words, int first, int last ) {
+        int from = first >>> 6;
+        int to = last >>> 6;
+        long fromMask = -1L << first;
+        long toMask = -1L >>> ( 63 - ( last & 63 ) );
+        if ( from == to ) {
+            words[ from ] |= fromMask & toMask;
+            return;
+        }
+        words[ from ] |= fromMask;
+        Arrays.fill( words, from + 1, to, -1L );
+        words[ to ] |= toMask;
+    }
+
+    /**
+     * The points of one chunk, by their low 16 bits.
+     */
+    private abstract static class Container implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        abstract int cardinality();
+
+        abstract boolean contains( int low );
+
+        /**
+         * A new bitmap of the points.
+         */
+        abstract long[] words();
+
+        /**
+         * The points as runs of first and last point.
+         */
+        abstract char[] runs();
+    }
+
+    private static final class RunContainer extends Container {
+
+        private static final long serialVersionUID = 1L;
+
+        final char[] runs;
+        private final int cardinality;
+
+        RunContainer( char[] runs ) {
+            this.runs = runs;
+            int count = 0;
+            for ( int r = 0; r < runs.length; r += 2 ) {
+                count += runs[ r + 1 ] - runs[ r ] + 1;
+            }
+            this.cardinality = count;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains( int low ) {
+            // the last run that starts at or before low
+            int lo = 0;
+            int hi = runs.length / 2 - 1;
+            while ( lo <= hi ) {
+                int mid = ( lo + hi ) >>> 1;
+                if ( runs[ 2 * mid ] <= low ) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return hi >= 0 && low <= runs[ 2 * hi + 1 ];
+        }
+
+        @Override
+        long[] words() {
+            long[] words = new long[ WORDS ];
+            for ( int r = 0; r < runs.length; r += 2 ) {
+                setRange( words, runs[ r ], runs[ r + 1 ] );
+            }
+            return words;
+        }
+
+        @Override
+        char[] runs() {
+            return runs;
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode( runs );
+        }
+
+        @Override
+        public boolean equals( Object obj ) {
+            return obj instanceof RunContainer && Arrays.equals( runs,
+                    ( (RunContainer) obj ).runs );
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long[] words;
+        private final int cardinality;
+
+        BitmapContainer( long[] words, int cardinality ) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains( int low ) {
+            return ( words[ low >>> 6 ] & 1L << low ) != 0;
+        }
+
+        @Override
+        long[] words() {
+            return words.clone();
+        }
+
+        @Override
+        char[] runs() {
+            return runsOf( words, countRuns( words ) );
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode( words );
+        }
+
+        @Override
+        public boolean equals( Object obj ) {
+            return obj instanceof BitmapContainer && Arrays.equals( words,
+                    ( (BitmapContainer) obj ).words );
+        }
+    }
+
+    /**
+     * Collects the runs of sorted, coalesced ranges per chunk.
+     */
+    private static final class Builder {
+
+        private char[] keys = new char[ 4 ];
+        private final List<Container> containers = new ArrayList<>();
+        private char[] runs = new char[ 16 ];
+        private int n;
+        private int key = -1;
+
+        void add( int start, int end ) {
+            if ( start >= end ) {
+                return;
+            }
+            long first = Integer.toUnsignedLong( start ^ Integer.MIN_VALUE );
+            long last = Integer.toUnsignedLong( ( end - 1 ) ^ Integer.MIN_VALUE );
+            while ( first <= last ) {
+                long chunkLast = Math.min( last, first | 0xFFFF );
+                run( (int) ( first >>> 16 ), (int) ( first & 0xFFFF ),
+                        (int) ( chunkLast & 0xFFFF ) );
+                first = chunkLast + 1;
+            }
+        }
+
+        private void run( int chunk, int first, int last ) {
+            if ( chunk != key ) {
+                flush();
+                key = chunk;
+            }
+            if ( n == runs.length ) {
+                runs = Arrays.copyOf( runs, 2 * n );
+            }
+            runs[ n++ ] = (char) first;
+            runs[ n++ ] = (char) last;
+        }
+
+        private void flush() {
+            if ( n > 0 ) {
+                if ( containers.size() == keys.length ) {
+                    keys = Arrays.copyOf( keys, 2 * keys.length );
+                }
+                keys[ containers.size() ] = (char) key;
+                containers.add( fromRuns( Arrays.copyOf( runs, n ) ) );
+                n = 0;
+            }
+        }
+
+        IntegerRangeSet build() {
+            flush();
+            if ( containers.isEmpty() ) {
+                return EMPTY;
+            }
+            return new IntegerRangeSet( Arrays.copyOf( keys, containers
+                    .size() ), containers.toArray(
+                    new Container[ 0 ] ) );
+        }
+    }
+
+    /**
+     * The runs of all chunks in order, joined where they meet across chunks.
+     */
+    private final class Ranges extends Spliterators.AbstractSpliterator<IntegerRange> {
+
+        private int chunk = -1;
+        private char[] runs = new char[ 0 ];
+        private int r;
+
+        Ranges() {
+            super( Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.DISTINCT
+                    | Spliterator.NONNULL );
+        }
+
+        @Override
+        public boolean tryAdvance( Consumer<? super IntegerRange> action ) {
+            if ( !nextRun() ) {
+                return false;
+            }
+            int start = point( keys[ chunk ], runs[ r ] );
+            int last = point( keys[ chunk ], runs[ r + 1 ] );
+            r += 2;
+            // runs in a chunk never meet, a run of the next chunk may
+            while ( nextRun() && point( keys[ chunk ], runs[ r ] ) == last + 1 ) {
+                last = point( keys[ chunk ], runs[ r + 1 ] );
+                r += 2;
+            }
+            action.accept( IntegerRange.of( start, last + 1 ) );
+            return true;
+        }
+
+        private boolean nextRun() {
+            while ( r == runs.length ) {
+                if ( chunk + 1 == keys.length ) {
+                    return false;
+                }
+                runs = containers[ ++chunk ].runs();
+                r = 0;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package nl.fontys.sebivenlo.ranges;
+
+import java.io.Serializable;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Half open range [start,end) of {@code long} points, with the algebra of
+ * {@link Range} for code that makes and tests many ranges.
+ *
+ * <p>
+ * The points are stored as primitives, so the query methods
+ * {@link #contains(long)}, {@link #contains(LongRange)}, {@link #overlaps},
+ * {@link #overlap}, {@link #meets} and {@link #length} allocate nothing. Only
+ * the methods that produce new ranges create objects.</p>
+ *
+ * <p>
+ * The results are those of {@link IntRange}. Ranges over other ordered
+ * points, like instants as epoch milliseconds, are passed to and from
+ * generic range code with {@link #of(Range, ToLongFunction)} and
+ * {@link #toRange(LongFunction, BiFunction)}.</p>
+ */
+public final class LongRange implements Comparable<LongRange>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long start;
+    private final long end;
+
+    private LongRange( long start, long end ) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Create a range. The points may be given in any order.
+     *
+     * @param start of range
+     * @param end of range
+     * @return the range
+     */
+    public static LongRange of( long start, long end ) {
+        return start <= end ? new LongRange( start, end ) : new LongRange( end,
+                start );
+    }
+
+    /**
+     * Adapter from a generic range, for instance
+     * {@code LongRange.of( instantRange, Instant::toEpochMilli )}.
+     *
+     * @param <P> demarcation type of range
+     * @param range to convert
+     * @param toLong converts a point, keeping the order
+     * @return the range with the converted points
+     */
+    public static <P extends Comparable<? super P>> LongRange of(
+            Range<?, P, ?> range, ToLongFunction<? super P> toLong ) {
+        return of( toLong.applyAsLong( range.start() ), toLong.applyAsLong(
+                range.end() ) );
+    }
+
+    /**
+     * Adapter to a generic range, for instance
+     * {@code longRange.toRange( Instant::ofEpochMilli, InstantRange::of )}.
+     *
+     * @param <R> range type
+     * @param <P> demarcation type of range
+     * @param toPoint converts a point, keeping the order
+     * @param factory creates the range from its start and end
+     * @return the range with the converted points
+     */
+    public <R extends Range<R, P, ?>, P extends Comparable<? super P>> R toRange(
+            LongFunction<? extends P> toPoint,
+            BiFunction<? super P, ? super P, ? extends R> factory ) {
+        return factory.apply( toPoint.apply( start ), toPoint.apply( end ) );
+    }
+
+    /**
+     * Get the start, which is part of this range.
+     *
+     * @return start
+     */
+    public long start() {
+        return start;
+    }
+
+    /**
+     * Get the end, which is not part of this range.
+     *
+     * @return end
+     */
+    public long end() {
+        return end;
+    }
+
+    /**
+     * The length, end - start. A range longer than {@link Long#MAX_VALUE},
+     * which needs a negative start, has no long length: the difference
+     * overflows to a negative number.
+     *
+     * @return the length, negative for ranges longer than Long.MAX_VALUE
+     */
+    public long length() {
+        return end - start;
+    }
+
+    /**
+     * Is a point contained in this range. Like {@link Range#contains(Comparable)}
+     * the start is always contained, also in an empty range.
+     *
+     * @param point the point
+     * @return true if point is the start or not before start and before end
+     */
+    public boolean contains( long point ) {
+        return point == start || point > start && point < end;
+    }
+
+    /**
+     * Does this range overlap with another one.
+     *
+     * @param other to check
+     * @return true on overlap with other
+     */
+    public boolean overlaps( LongRange other ) {
+        return Math.min( end, other.end ) > Math.max( start, other.start );
+    }
+
+    /**
+     * The length of the overlap of this and other range.
+     *
+     * @param other range
+     * @return the length of the overlap, 0 when there is none; negative when
+     * the overlap is longer than Long.MAX_VALUE, see {@link #length()}
+     */
+    public long overlap( LongRange other ) {
+        // for ranges far apart the difference would overflow
+        if ( !overlaps( other ) ) {
+            return 0;
+        }
+        return Math.min( end, other.end ) - Math.max( start, other.start );
+    }
+
+    /**
+     * Does this and other just meet, this.start == other.end or other.start
+     * == this.end.
+     *
+     * @param other range
+     * @return meet
+     */
+    public boolean meets( LongRange other ) {
+        return start == other.end || other.start == end;
+    }
+
+    /**
+     * Test if all points of other are also part of this range.
+     *
+     * @param other range
+     * @return is the other range completely inside this range?
+     */
+    public boolean contains( LongRange other ) {
+        return start <= other.start && end >= other.end;
+    }
+
+    /**
+     * Join this range with other range.
+     *
+     * @param other range to join
+     * @return new joined range
+     * @throws IllegalArgumentException when this and other do not overlap or
+     * meet.
+     */
+    public LongRange joinWith( LongRange other ) {
+        if ( !( meets( other ) || overlaps( other ) ) ) {
+            throw new IllegalArgumentException( "this range " + this
+                    + " and other " + other + " do not meet nor overlap" );
+        }
+        return new LongRange( Math.min( start, other.start ), Math.max( end,
+                other.end ) );
+    }
+
+    /**
+     * The intersection of this and other range.
+     *
+     * @param other that cuts this range
+     * @return the intersection, empty when this and other do not overlap
+     */
+    public Optional<LongRange> intersectWith( LongRange other ) {
+        if ( !overlaps( other ) ) {
+            return Optional.empty();
+        }
+        return Optional.of( new LongRange( Math.max( start, other.start ), Math
+                .min( end, other.end ) ) );
+    }
+
+    /**
+     * Punch a range through this range, like
+     * {@link Range#punchThrough(Range)}.
+     *
+     * @param punch to knockout parts of this range
+     * @return this on a miss, else the remainders of this range and the punch
+     * in order
+     */
+    public Stream<LongRange> punchThrough( LongRange punch ) {
+        if ( !contains( punch ) ) {
+            return Stream.of( this );
+        }
+        if ( equals( punch ) ) {
+            return Stream.of( punch );
+        }
+        if ( start == punch.start ) {
+            return Stream.of( punch, new LongRange( punch.end, end ) );
+        }
+        if ( end == punch.end ) {
+            return Stream.of( new LongRange( start, punch.start ), punch );
+        }
+        return Stream.of( new LongRange( start, punch.start ), punch,
+                new LongRange( punch.end, end ) );
+    }
+
+    /**
+     * Compare by start only, like {@link Range#compareTo}.
+     *
+     * @param other to compare with this
+     * @return negative, zero or positive for this start less, equal or greater
+     */
+    @Override
+    public int compareTo( LongRange other ) {
+        return Long.compare( start, other.start );
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode( 31 * start + end );
+    }
+
+    @Override
+    public boolean equals( Object obj ) {
+        if ( this == obj ) {
+            return true;
+        }
+        if ( !( obj instanceof LongRange ) ) {
+            return false;
+        }
+        LongRange other = (LongRange) obj;
+        return start == other.start && end == other.end;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + start + "," + end + ")";
+    }
+}
@@ -0,0 +1,171 @@
+package nl.fontys.sebivenlo.ranges;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * Collectors for streams of ranges.
+ */
+public final class RangeCollectors {
+
+    private RangeCollectors() {
+    }
+
+    /**
+     * Collector that coalesces ranges into the smallest sorted list of
+     * disjoint ranges covering the same points. Ranges that overlap or meet
+     * are joined into one; empty ranges cover no points and are dropped.
+     *
+     * <p>
+     * The ranges are gathered unsorted and sorted once per stream part,
+     * after which joining is a single pass that creates a range only where
+     * two or more are joined. The parts of a parallel stream are combined by
+     * merging their sorted lists in linear time, so the input is sorted in
+     * pieces by all threads instead of once at the end. Unlike
+     * {@link Range#joinWith(Range)} nothing is thrown for disjoint ranges.</p>
+     *
+     * <pre>{@code
+     *   List<IntegerRange> free = busy.parallelStream()
+     *           .collect( RangeCollectors.coalescing() );
+     * }</pre>
+     *
+     * @param <R> range type
+     * @param <P> demarcation type of range
+     * @param <D> unit of distance
+     * @return the collector, producing an unmodifiable list in start order
+     */
+    public static <R extends Range<R, P, D>, P extends Comparable<? super P>, D extends Comparable<? super D>>
+            Collector<R, ?, List<R>> coalescing() {
+        Supplier<Coalescer<R, P>> supplier = Coalescer::new;
+        BiConsumer<Coalescer<R, P>, R> accumulator = Coalescer::add;
+        BinaryOperator<Coalescer<R, P>> combiner = Coalescer::combine;
+        Function<Coalescer<R, P>, List<R>> finisher = Coalescer::finish;
+        return Collector.of( supplier, accumulator, combiner, finisher,
+                Collector.Characteristics.UNORDERED );
+    }
+
+    /**
+     * Container of a stream part: the ranges not yet sorted and the sorted
+     * disjoint ranges made of the earlier ones.
+     */
+    private static final class Coalescer<R extends Range<R, P, ?>, P extends Comparable<? super P>> {
+
+        private final List<R> pending = new ArrayList<>();
+        private List<R> merged = List.of();
+
+        void add( R range ) {
+            if ( range.start().compareTo( range.end() ) < 0 ) {
+                pending.add( range );
+            }
+        }
+
+        /**
+         * Sort the pending ranges and merge them into the merged ones.
+         */
+        List<R> normalized() {
+            if ( !pending.isEmpty() ) {
+                Collections.sort( pending );
+                List<R> sorted = coalesce( pending, new ArrayList<>( pending.size() ) );
+                pending.clear();
+                merged = merged.isEmpty() ? sorted : merge( merged, sorted );
+            }
+            return merged;
+        }
+
+        Coalescer<R, P> combine( Coalescer<R, P> other ) {
+            List<R> left = normalized();
+            List<R> right = other.normalized();
+            merged = left.isEmpty() ? right : right.isEmpty() ? left : merge(
+                    left, right );
+            return this;
+        }
+
+        List<R> finish() {
+            return Collections.unmodifiableList( normalized() );
+        }
+
+        /**
+         * Merge two sorted disjoint lists into one, in linear time.
+         */
+        private List<R> merge( List<R> a, List<R> b ) {
+            Run<R, P> run = new Run<>( new ArrayList<R>( a.size() + b.size() ) );
+            int i = 0;
+            int j = 0;
+            while ( i < a.size() && j < b.size() ) {
+                R x = a.get( i );
+                R y = b.get( j );
+                if ( x.compareTo( y ) <= 0 ) {
+                    run.push( x );
+                    i++;
+                } else {
+                    run.push( y );
+                    j++;
+                }
+            }
+            while ( i < a.size() ) {
+                run.push( a.get( i++ ) );
+            }
+            while ( j < b.size() ) {
+                run.push( b.get( j++ ) );
+            }
+            return run.close();
+        }
+
+        private List<R> coalesce( List<R> sorted, List<R> out ) {
+            Run<R, P> run = new Run<>( out );
+            for ( R r : sorted ) {
+                run.push( r );
+            }
+            return run.close();
+        }
+    }
+
+    /**
+     * Joins ranges pushed in start order. A run is the first range of a
+     * group of overlapping or meeting ranges and the largest end in the
+     * group; the run's range is only created when that end is not the end
+     * of the first range.
+     */
+    private static final class Run<R extends Range<R, P, ?>, P extends Comparable<? super P>> {
+
+        private final List<R> out;
+        private R first;
+        private P end;
+
+        Run( List<R> out ) {
+            this.out = out;
+        }
+
+        void push( R range ) {
+            if ( first != null && range.start().compareTo( end ) <= 0 ) {
+                if ( range.end().compareTo( end ) > 0 ) {
+                    end = range.end();
+                }
+                return;
+            }
+            emit();
+            first = range;
+            end = range.end();
+        }
+
+        List<R> close() {
+            emit();
+            first = null;
+            return out;
+        }
+
+        private void emit() {
+            if ( first != null ) {
+                out.add( end == first.end() ? first : first.between( first
+                        .start(), end ) );
+            }
+        }
+    }
+}
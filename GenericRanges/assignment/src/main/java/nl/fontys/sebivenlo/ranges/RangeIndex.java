@@ -0,0 +1,434 @@
+package nl.fontys.sebivenlo.ranges;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Index over a collection of ranges to find the ranges that overlap a range
+ * or contain a point without testing every range.
+ *
+ * <p>
+ * The index is an interval tree: a balanced (AVL) search tree ordered by
+ * start, then end, in which every node also knows the largest end in its
+ * subtree. A query skips every subtree whose largest end is left of the
+ * query and every right subtree that starts right of it. Each result may
+ * still cost a path of O(log n) nodes, so {@link #overlapping(Range) overlapping} and
+ * {@link #containing(Comparable) containing} take O(min(n, k log n)) for k
+ * results; O(log n + k) would need a centered interval tree or a priority
+ * search tree. Adding and removing take O(log n).</p>
+ *
+ * <p>
+ * Queries have the meaning of the corresponding {@link Range} methods, so an
+ * index query gives the same ranges as filtering all ranges with that method,
+ * in the order of their start. The tree only compares the points of the
+ * ranges and keeps references to them, so it creates no points of its
+ * own. It compares them through {@link Comparable} though, so an index of
+ * {@link IntegerRange} unboxes two Integers per comparison and a point query
+ * boxes its point once; there is no variant over the primitive
+ * {@link IntRange}.</p>
+ *
+ * <p>
+ * The index may contain equal ranges more than once. It is not thread
+ * safe.</p>
+ *
+ * @param <R> range type
+ * @param <P> demarcation type of range
+ * @param <D> unit of distance
+ */
+public class RangeIndex<R extends Range<R, P, D>, P extends Comparable<? super P>, D extends Comparable<? super D>>
+        implements Iterable<R> {
+
+    private Node<R, P> root;
+    private int size;
+
+    /**
+     * Create an empty index.
+     */
+    public RangeIndex() {
+    }
+
+    /**
+     * Create an index over some ranges, balanced from the start.
+     *
+     * @param <R> range type
+     * @param <P> demarcation type of range
+     * @param <D> unit of distance
+     * @param ranges to index
+     * @return the index
+     */
+    public static <R extends Range<R, P, D>, P extends Comparable<? super P>, D extends Comparable<? super D>>
+            RangeIndex<R, P, D> of( Collection<? extends R> ranges ) {
+        List<R> sorted = new ArrayList<>( ranges );
+        sorted.sort( Comparator.<R, P>comparing( Range::start ).thenComparing(
+                Range::end ) );
+        RangeIndex<R, P, D> index = new RangeIndex<>();
+        index.root = build( sorted, 0, sorted.size() );
+        index.size = sorted.size();
+        return index;
+    }
+
+    private static <R extends Range<R, P, ?>, P extends Comparable<? super P>>
+            Node<R, P> build( List<R> sorted, int from, int to ) {
+        if ( from >= to ) {
+            return null;
+        }
+        int mid = ( from + to ) >>> 1;
+        Node<R, P> node = new Node<>( sorted.get( mid ) );
+        node.left = build( sorted, from, mid );
+        node.right = build( sorted, mid + 1, to );
+        node.update();
+        return node;
+    }
+
+    /**
+     * Number of ranges in the index.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Test for emptiness.
+     *
+     * @return true when there are no ranges
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Add a range.
+     *
+     * @param range to add
+     */
+    public void add( R range ) {
+        root = insert( root, range );
+        size++;
+    }
+
+    /**
+     * Remove one range equal to the given range, if any.
+     *
+     * @param range to remove
+     * @return true when a range was removed
+     */
+    public boolean remove( R range ) {
+        int before = size;
+        root = delete( root, range );
+        return size < before;
+    }
+
+    /**
+     * Ranges that {@link Range#overlaps(Range) overlap} the query range.
+     *
+     * @param query range
+     * @return the overlapping ranges in start order
+     */
+    public List<R> overlapping( R query ) {
+        return overlapping( query.start(), query.end() );
+    }
+
+    /**
+     * Ranges that overlap [from, to).
+     *
+     * @param from start of the query, inclusive
+     * @param to end of the query, exclusive
+     * @return the overlapping ranges in start order
+     */
+    public List<R> overlapping( P from, P to ) {
+        List<R> result = new ArrayList<>();
+        forEachOverlapping( from, to, result::add );
+        return result;
+    }
+
+    /**
+     * Visit the ranges that overlap [from, to), without collecting them.
+     *
+     * @param from start of the query, inclusive
+     * @param to end of the query, exclusive
+     * @param action for each overlapping range, in start order
+     */
+    public void forEachOverlapping( P from, P to,
+            Consumer<? super R> action ) {
+        if ( to.compareTo( from ) > 0 ) {
+            overlapping( root, from, to, action );
+        }
+    }
+
+    private void overlapping( Node<R, P> node, P from, P to,
+            Consumer<? super R> action ) {
+        while ( node != null && node.maxEnd.compareTo( from ) > 0 ) {
+            overlapping( node.left, from, to, action );
+            P start = node.range.start();
+            if ( start.compareTo( to ) >= 0 ) {
+                return;
+            }
+            if ( node.range.end().compareTo( from ) > 0
+                    && node.range.end().compareTo( start ) > 0 ) {
+                action.accept( node.range );
+            }
+            node = node.right;
+        }
+    }
+
+    /**
+     * Ranges that {@link Range#contains(Comparable) contain} a point.
+     *
+     * @param point to stab with
+     * @return the containing ranges in start order
+     */
+    public List<R> containing( P point ) {
+        List<R> result = new ArrayList<>();
+        containing( root, point, result );
+        return result;
+    }
+
+    private void containing( Node<R, P> node, P point, List<R> result ) {
+        // >= rather than >: a range that starts at the point contains it
+        while ( node != null && node.maxEnd.compareTo( point ) >= 0 ) {
+            containing( node.left, point, result );
+            int fromStart = point.compareTo( node.range.start() );
+            if ( fromStart < 0 ) {
+                return;
+            }
+            if ( fromStart == 0 || point.compareTo( node.range.end() ) < 0 ) {
+                result.add( node.range );
+            }
+            node = node.right;
+        }
+    }
+
+    /**
+     * Ranges that the outer range {@link Range#contains(Range) contains}.
+     * Takes O(log n + m) for the m ranges that start in the outer range.
+     *
+     * @param outer range
+     * @return the enclosed ranges in start order
+     */
+    public List<R> enclosedBy( R outer ) {
+        List<R> result = new ArrayList<>();
+        enclosedBy( root, outer, result );
+        return result;
+    }
+
+    private void enclosedBy( Node<R, P> node, R outer, List<R> result ) {
+        while ( node != null ) {
+            int fromStart = node.range.start().compareTo( outer.start() );
+            if ( fromStart >= 0 ) {
+                enclosedBy( node.left, outer, result );
+            }
+            if ( node.range.start().compareTo( outer.end() ) > 0 ) {
+                return;
+            }
+            if ( fromStart >= 0 && node.range.end().compareTo( outer.end() ) <= 0 ) {
+                result.add( node.range );
+            }
+            node = node.right;
+        }
+    }
+
+    /**
+     * Ranges that {@link Range#contains(Range) contain} the inner range.
+     *
+     * @param inner range
+     * @return the enclosing ranges in start order
+     */
+    public List<R> enclosing( R inner ) {
+        List<R> result = new ArrayList<>();
+        enclosing( root, inner, result );
+        return result;
+    }
+
+    private void enclosing( Node<R, P> node, R inner, List<R> result ) {
+        while ( node != null && node.maxEnd.compareTo( inner.end() ) >= 0 ) {
+            enclosing( node.left, inner, result );
+            if ( node.range.start().compareTo( inner.start() ) > 0 ) {
+                return;
+            }
+            if ( node.range.end().compareTo( inner.end() ) >= 0 ) {
+                result.add( node.range );
+            }
+            node = node.right;
+        }
+    }
+
+    /**
+     * The ranges in start order.
+     *
+     * @return an iterator, not supporting remove
+     */
+    @Override
+    public Iterator<R> iterator() {
+        Deque<Node<R, P>> path = new ArrayDeque<>();
+        for ( Node<R, P> n = root; n != null; n = n.left ) {
+            path.push( n );
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !path.isEmpty();
+            }
+
+            @Override
+            public R next() {
+                if ( path.isEmpty() ) {
+                    throw new NoSuchElementException();
+                }
+                Node<R, P> n = path.pop();
+                for ( Node<R, P> l = n.right; l != null; l = l.left ) {
+                    path.push( l );
+                }
+                return n.range;
+            }
+        };
+    }
+
+    /**
+     * Height of the tree, 0 when empty.
+     */
+    int height() {
+        return height( root );
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder( "RangeIndex[" );
+        String sep = "";
+        for ( R r : this ) {
+            sb.append( sep ).append( r );
+            sep = ", ";
+        }
+        return sb.append( ']' ).toString();
+    }
+
+    private int compare( R a, R b ) {
+        int c = a.start().compareTo( b.start() );
+        return c != 0 ? c : a.end().compareTo( b.end() );
+    }
+
+    private Node<R, P> insert( Node<R, P> node, R range ) {
+        if ( node == null ) {
+            return new Node<>( range );
+        }
+        if ( compare( range, node.range ) < 0 ) {
+            node.left = insert( node.left, range );
+        } else {
+            node.right = insert( node.right, range );
+        }
+        return balance( node );
+    }
+
+    private Node<R, P> delete( Node<R, P> node, R range ) {
+        if ( node == null ) {
+            return null;
+        }
+        int c = compare( range, node.range );
+        if ( c < 0 ) {
+            node.left = delete( node.left, range );
+        } else if ( c > 0 ) {
+            node.right = delete( node.right, range );
+        } else {
+            size--;
+            if ( node.left == null ) {
+                return node.right;
+            }
+            if ( node.right == null ) {
+                return node.left;
+            }
+            Node<R, P> successor = node.right;
+            while ( successor.left != null ) {
+                successor = successor.left;
+            }
+            node.range = successor.range;
+            node.right = deleteFirst( node.right );
+        }
+        return balance( node );
+    }
+
+    private Node<R, P> deleteFirst( Node<R, P> node ) {
+        if ( node.left == null ) {
+            return node.right;
+        }
+        node.left = deleteFirst( node.left );
+        return balance( node );
+    }
+
+    private static int height( Node<?, ?> node ) {
+        return node == null ? 0 : node.height;
+    }
+
+    private Node<R, P> balance( Node<R, P> node ) {
+        int skew = height( node.left ) - height( node.right );
+        if ( skew > 1 ) {
+            if ( height( node.left.left ) < height( node.left.right ) ) {
+                node.left = rotateLeft( node.left );
+            }
+            return rotateRight( node );
+        }
+        if ( skew < -1 ) {
+            if ( height( node.right.right ) < height( node.right.left ) ) {
+                node.right = rotateRight( node.right );
+            }
+            return rotateLeft( node );
+        }
+        node.update();
+        return node;
+    }
+
+    private Node<R, P> rotateRight( Node<R, P> node ) {
+        Node<R, P> top = node.left;
+        node.left = top.right;
+        top.right = node;
+        node.update();
+        top.update();
+        return top;
+    }
+
+    private Node<R, P> rotateLeft( Node<R, P> node ) {
+        Node<R, P> top = node.right;
+        node.right = top.left;
+        top.left = node;
+        node.update();
+        top.update();
+        return top;
+    }
+
+    /**
+     * Tree node, augmented with the largest end in its subtree.
+     */
+    private static final class Node<R extends Range<R, P, ?>, P extends Comparable<? super P>> {
+
+        R range;
+        P maxEnd;
+        int height;
+        Node<R, P> left;
+        Node<R, P> right;
+
+        Node( R range ) {
+            this.range = range;
+            update();
+        }
+
+        void update() {
+            P max = range.end();
+            if ( left != null && left.maxEnd.compareTo( max ) > 0 ) {
+                max = left.maxEnd;
+            }
+            if ( right != null && right.maxEnd.compareTo( max ) > 0 ) {
+                max = right.maxEnd;
+            }
+            maxEnd = max;
+            height = 1 + Math.max( RangeIndex.height( left ), RangeIndex
+                    .height( right ) );
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package nl.fontys.sebivenlo.ranges;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Join of two collections of ranges on overlap: every pair of a left and a
+ * right range that {@link Range#overlaps(Range) overlap}, like room bookings
+ * against maintenance windows.
+ *
+ * <p>
+ * Instead of testing all n &times; m pairs, both sides are sorted by start
+ * and swept in start order. Each side keeps the ranges that have started
+ * and not yet ended; a range that starts is paired with the still active
+ * ranges of the other side and drops the ended ones. This takes
+ * O((n + m) log(n + m) + k) for k pairs, and the pairs are produced
+ * lazily, so a stream that is short-circuited stops the sweep.</p>
+ *
+ * <p>
+ * {@link #overlapsParallel(Collection, Collection) overlapsParallel} cuts
+ * the time axis into slices with about the same number of starts and
+ * sweeps the slices at the same time. A pair belongs to the slice in which
+ * its intersection starts, so each pair is produced once. A slice starts
+ * with the ranges of earlier slices that are still active at its start;
+ * these are found in one linear pass over the sorted sides.</p>
+ */
+public final class RangeJoin {
+
+    /**
+     * Slices per worker thread in the parallel join, to even out slices
+     * with many pairs.
+     */
+    static final int SLICES_PER_THREAD = 4;
+
+    private RangeJoin() {
+    }
+
+    /**
+     * The overlapping pairs, in order of the start of their intersection.
+     *
+     * @param <R> range type
+     * @param <P> demarcation type of range
+     * @param <D> unit of distance
+     * @param left ranges
+     * @param right ranges
+     * @return a sequential stream of the overlapping pairs
+     */
+    public static <R extends Range<R, P, D>, P extends Comparable<? super P>, D extends Comparable<? super D>>
+            Stream<Overlap<R>> overlaps( Collection<? extends R> left,
+                    Collection<? extends R> right ) {
+        Sweep<R, P> sweep = new Sweep<>( null, sorted( left ), sorted( right ) );
+        return StreamSupport.stream( sweep, false );
+    }
+
+    /**
+     * The overlapping pairs, swept in parallel slices of the time axis.
+     *
+     * @param <R> range type
+     * @param <P> demarcation type of range
+     * @param <D> unit of distance
+     * @param left ranges
+     * @param right ranges
+     * @return a parallel stream of the overlapping pairs, in no particular
+     * order
+     */
+    public static <R extends Range<R, P, D>, P extends Comparable<? super P>, D extends Comparable<? super D>>
+            Stream<Overlap<R>> overlapsParallel( Collection<? extends R> left,
+                    Collection<? extends R> right ) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        return overlapsParallel( left, right, threads * SLICES_PER_THREAD );
+    }
+
+    static <R extends Range<R, P, D>, P extends Comparable<? super P>, D extends Comparable<? super D>>
+            Stream<Overlap<R>> overlapsParallel( Collection<? extends R> left,
+                    Collection<? extends R> right, int slices ) {
+        List<R> l = sortedParallel( left );
+        List<R> r = sortedParallel( right );
+        List<P> bounds = bounds( l, r, slices );
+        List<List<R>> leftCarry = carries( l, bounds );
+        List<List<R>> rightCarry = carries( r, bounds );
+        return IntStream.rangeClosed( 0, bounds.size() ).parallel()
+                .mapToObj( s -> {
+                    P from = s == 0 ? null : bounds.get( s - 1 );
+                    P to = s == bounds.size() ? null : bounds.get( s );
+                    Sweep<R, P> sweep = new Sweep<>( from,
+                            slice( l, leftCarry.get( s ), from, to ),
+                            slice( r, rightCarry.get( s ), from, to ) );
+                    return StreamSupport.stream( sweep, false );
+                } )
+                .flatMap( s -> s );
+    }
+
+    private static <R extends Range<R, ?, ?>> List<R> sorted(
+            Collection<? extends R> ranges ) {
+        List<R> sorted = new ArrayList<>( ranges );
+        Collections.sort( sorted );
+        return sorted;
+    }
+
+    private static <R extends Range<R, ?, ?>> List<R> sortedParallel(
+            Collection<? extends R> ranges ) {
+        return ranges.parallelStream().sorted().collect( Collectors.toList() );
+    }
+
+    /**
+     * Distinct slice boundaries, at evenly spaced starts of the larger side.
+     */
+    private static <R extends Range<R, P, ?>, P extends Comparable<? super P>>
+            List<P> bounds( List<R> left, List<R> right, int slices ) {
+        List<R> larger = left.size() >= right.size() ? left : right;
+        List<P> bounds = new ArrayList<>();
+        for ( int s = 1; s < slices && !larger.isEmpty(); s++ ) {
+            P bound = larger.get( (int) ( (long) s * larger.size() / slices ) )
+                    .start();
+            if ( bounds.isEmpty() || bound.compareTo( bounds.get( bounds
+                    .size() - 1 ) ) > 0 ) {
+                bounds.add( bound );
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * Per slice the ranges of earlier slices still active at its start, in
+     * start order. Slice 0 has none.
+     */
+    private static <R extends Range<R, P, ?>, P extends Comparable<? super P>>
+            List<List<R>> carries( List<R> sorted, List<P> bounds ) {
+        List<List<R>> carries = new ArrayList<>( bounds.size() + 1 );
+        carries.add( List.of() );
+        List<R> active = new ArrayList<>();
+        int i = 0;
+        for ( P bound : bounds ) {
+            while ( i < sorted.size() && sorted.get( i ).start().compareTo(
+                    bound ) < 0 ) {
+                active.add( sorted.get( i++ ) );
+            }
+            active.removeIf( a -> a.end().compareTo( bound ) <= 0 );
+            carries.add( new ArrayList<>( active ) );
+        }
+        return carries;
+    }
+
+    /**
+     * The carried ranges followed by the ranges starting in [from, to).
+     */
+    private static <R extends Range<R, P, ?>, P extends Comparable<? super P>>
+            List<R> slice( List<R> sorted, List<R> carry, P from, P to ) {
+        int first = from == null ? 0 : firstStartingAt( sorted, from );
+        int last = to == null ? sorted.size() : firstStartingAt( sorted, to );
+        List<R> slice = new ArrayList<>( carry.size() + last - first );
+        slice.addAll( carry );
+        slice.addAll( sorted.subList( first, last ) );
+        return slice;
+    }
+
+    private static <R extends Range<R, P, ?>, P extends Comparable<? super P>>
+            int firstStartingAt( List<R> sorted, P point ) {
+        int low = 0;
+        int high = sorted.size();
+        while ( low < high ) {
+            int mid = ( low + high ) >>> 1;
+            if ( sorted.get( mid ).start().compareTo( point ) < 0 ) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * A left and a right range that overlap.
+     *
+     * @param <R> range type
+     */
+    public static final class Overlap<R extends Range<R, ?, ?>> {
+
+        private final R left;
+        private final R right;
+
+        Overlap( R left, R right ) {
+            this.left = left;
+            this.right = right;
+        }
+
+        /**
+         * The range of the left collection.
+         *
+         * @return left range
+         */
+        public R left() {
+            return left;
+        }
+
+        /**
+         * The range of the right collection.
+         *
+         * @return right range
+         */
+        public R right() {
+            return right;
+        }
+
+        /**
+         * The part that left and right have in common, computed on request.
+         *
+         * @return the intersection
+         */
+        public R intersection() {
+            return left.intersectWith( right ).orElseThrow();
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * left.hashCode() + right.hashCode();
+        }
+
+        @Override
+        public boolean equals( Object obj ) {
+            if ( this == obj ) {
+                return true;
+            }
+            if ( !( obj instanceof Overlap ) ) {
+                return false;
+            }
+            Overlap<?> other = (Overlap<?>) obj;
+            return left.equals( other.left ) && right.equals( other.right );
+        }
+
+        @Override
+        public String toString() {
+            return left + " x " + right;
+        }
+    }
+
+    /**
+     * The sweep over two lists sorted by start. Ranges starting before
+     * {@code from} are carried in from an earlier slice: they are made
+     * active without producing pairs, which their slice produces.
+     */
+    private static final class Sweep<R extends Range<R, P, ?>, P extends Comparable<? super P>>
+            extends Spliterators.AbstractSpliterator<Overlap<R>> {
+
+        private final P from;
+        private final List<R> left;
+        private final List<R> right;
+        private final List<R> activeLeft = new ArrayList<>();
+        private final List<R> activeRight = new ArrayList<>();
+        private int nextLeft;
+        private int nextRight;
+        // the range that started last, and the next active range to pair it with
+        private R arrived;
+        private boolean arrivedLeft;
+        private List<R> partners = List.of();
+        private int partner;
+
+        Sweep( P from, List<R> left, List<R> right ) {
+            super( Long.MAX_VALUE, Spliterator.NONNULL );
+            this.from = from;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean tryAdvance( Consumer<? super Overlap<R>> action ) {
+            while ( partner >= partners.size() ) {
+                if ( !arrive() ) {
+                    return false;
+                }
+            }
+            R other = partners.get( partner++ );
+            action.accept( arrivedLeft ? new Overlap<>( arrived, other )
+                    : new Overlap<>( other, arrived ) );
+            return true;
+        }
+
+        /**
+         * Start the next range: drop the ranges of the other side that ended,
+         * pair with the rest.
+         *
+         * @return false when both sides are done
+         */
+        private boolean arrive() {
+            boolean takeLeft;
+            if ( nextLeft < left.size() && nextRight < right.size() ) {
+                takeLeft = left.get( nextLeft ).start().compareTo( right.get(
+                        nextRight ).start() ) <= 0;
+            } else if ( nextLeft < left.size() ) {
+                // nothing can overlap the rest of the left side
+                takeLeft = !activeRight.isEmpty();
+                if ( !takeLeft ) {
+                    return false;
+                }
+            } else if ( nextRight < right.size() ) {
+                takeLeft = false;
+                if ( activeLeft.isEmpty() ) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+            arrivedLeft = takeLeft;
+            arrived = takeLeft ? left.get( nextLeft++ ) : right.get( nextRight++ );
+            P start = arrived.start();
+            List<R> others = takeLeft ? activeRight : activeLeft;
+            others.removeIf( o -> o.end().compareTo( start ) <= 0 );
+            partner = 0;
+            partners = List.of();
+            if ( arrived.end().compareTo( start ) > 0 ) {
+                ( takeLeft ? activeLeft : activeRight ).add( arrived );
+                if ( from == null || start.compareTo( from ) >= 0 ) {
+                    partners = others;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package nl.fontys.sebivenlo.ranges;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * IntRange must give the answers of IntegerRange for every pair of ranges
+ * over a few points, including empty ranges and ranges that meet.
+ */
+public class IntRangeTest {
+
+    static final int[] POINTS = { -3, 0, 2, 5, 7 };
+
+    static List<IntegerRange> ranges() {
+        List<IntegerRange> ranges = new ArrayList<>();
+        for ( int a : POINTS ) {
+            for ( int b : POINTS ) {
+                if ( a <= b ) {
+                    ranges.add( IntegerRange.of( a, b ) );
+                }
+            }
+        }
+        return ranges;
+    }
+
+    @Test
+    void sameAnswersAsIntegerRange() {
+        SoftAssertions softly = new SoftAssertions();
+        for ( IntegerRange x : ranges() ) {
+            IntRange ix = IntRange.of( x );
+            softly.assertThat( ix.toIntegerRange() ).isEqualTo( x );
+            softly.assertThat( ix.length() ).isEqualTo( (long) x.length() );
+            for ( int p = -4; p <= 8; p++ ) {
+                softly.assertThat( ix.contains( p ) ).as( "%s contains %s", x, p )
+                        .isEqualTo( x.contains( p ) );
+            }
+            for ( IntegerRange y : ranges() ) {
+                IntRange iy = IntRange.of( y );
+                String pair = x + " " + y;
+                softly.assertThat( ix.overlaps( iy ) ).as( pair ).isEqualTo( x
+                        .overlaps( y ) );
+                softly.assertThat( ix.overlap( iy ) ).as( pair ).isEqualTo(
+                        (long) x.overlap( y ) );
+                softly.assertThat( ix.meets( iy ) ).as( pair ).isEqualTo( x
+                        .meets( y ) );
+                softly.assertThat( ix.contains( iy ) ).as( pair ).isEqualTo( x
+                        .contains( y ) );
+                softly.assertThat( ix.compareTo( iy ) ).as( pair ).isEqualTo( x
+                        .compareTo( y ) );
+                softly.assertThat( ix.intersectWith( iy ).map(
+                        IntRange::toIntegerRange ) ).as( pair ).isEqualTo( x
+                        .intersectWith( y ) );
+                softly.assertThat( ix.punchThrough( iy ).map(
+                        IntRange::toIntegerRange ).collect( Collectors.toList() ) )
+                        .as( pair ).isEqualTo( x.punchThrough( y ).collect(
+                        Collectors.toList() ) );
+                if ( x.start() < y.start() && ( x.meets( y ) || x.overlaps( y ) ) ) {
+                    softly.assertThat( ix.joinWith( iy ).toIntegerRange() ).as(
+                            pair ).isEqualTo( x.joinWith( y ) );
+                }
+            }
+        }
+        softly.assertAll();
+    }
+
+    @Test
+    void meetsComparesValues() {
+        // outside the Integer cache, where Range.meets compares identities
+        IntRange a = IntRange.of( 1000, 2000 );
+        IntRange b = IntRange.of( 2000, 3000 );
+
+        assertThat( a.meets( b ) ).isTrue();
+        assertThat( a.joinWith( b ) ).isEqualTo( IntRange.of( 1000, 3000 ) );
+    }
+
+    @Test
+    void joinWithSameStart() {
+        assertThat( IntRange.of( 2, 5 ).joinWith( IntRange.of( 2, 7 ) ) )
+                .isEqualTo( IntRange.of( 2, 7 ) );
+    }
+
+    @Test
+    void joinDisjointThrows() {
+        assertThatThrownBy( () -> IntRange.of( 0, 2 ).joinWith( IntRange.of(
+                5, 7 ) ) ).isInstanceOf( IllegalArgumentException.class );
+    }
+
+    @Test
+    void farApartRangesDoNotOverlap() {
+        IntRange low = IntRange.of( Integer.MIN_VALUE, Integer.MIN_VALUE + 1 );
+        IntRange high = IntRange.of( Integer.MAX_VALUE - 1, Integer.MAX_VALUE );
+
+        assertThat( low.overlap( high ) ).isZero();
+        assertThat( high.overlap( low ) ).isZero();
+        assertThat( low.overlap( low ) ).isEqualTo( 1L );
+        assertThat( high.overlap( IntRange.of( 0, Integer.MAX_VALUE ) ) )
+                .isEqualTo( 1L );
+    }
+
+    @Test
+    void lengthAndOverlapOfExtremeRanges() {
+        IntRange all = IntRange.of( Integer.MIN_VALUE, Integer.MAX_VALUE );
+        IntRange lowHalf = IntRange.of( Integer.MIN_VALUE, 1 );
+        IntRange highHalf = IntRange.of( -1, Integer.MAX_VALUE );
+
+        assertThat( all.length() ).isEqualTo( 0xFFFF_FFFFL );
+        assertThat( all.overlap( all ) ).isEqualTo( 0xFFFF_FFFFL );
+        assertThat( all.overlap( highHalf ) ).isEqualTo( 1L + Integer.MAX_VALUE );
+        assertThat( lowHalf.overlap( all ) ).isEqualTo( 2L + Integer.MAX_VALUE );
+        assertThat( lowHalf.overlap( highHalf ) ).isEqualTo( 2L );
+    }
+
+    @Test
+    void pointsInAnyOrder() {
+        assertThat( IntRange.of( 7, 2 ) ).isEqualTo( IntRange.of( 2, 7 ) )
+                .hasToString( "[2,7)" );
+        assertThat( IntRange.of( 2, 7 ).toLongRange() ).isEqualTo( LongRange
+                .of( 2, 7 ) );
+    }
+}
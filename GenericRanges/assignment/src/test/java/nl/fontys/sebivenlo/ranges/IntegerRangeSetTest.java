@@ -0,0 +1,131 @@
+package nl.fontys.sebivenlo.ranges;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The set must hold the same points as a BitSet after every operation,
+ * with sparse chunks as runs and dense chunks as bitmaps, around zero and at
+ * the ends of the int range.
+ */
+public class IntegerRangeSetTest {
+
+    static final int BASE = -300_000;
+    static final int SPAN = 600_000;
+
+    final Random random = new Random( 13 );
+
+    /**
+     * Ranges over the span, with a dense stretch of short ranges and gaps
+     * that needs a bitmap.
+     */
+    List<IntegerRange> randomRanges() {
+        List<IntegerRange> ranges = new ArrayList<>();
+        for ( int i = 0; i < 500; i++ ) {
+            int start = BASE + random.nextInt( SPAN - 5000 );
+            ranges.add( IntegerRange.of( start, start + random.nextInt( 5000 ) ) );
+        }
+        int dense = BASE + random.nextInt( SPAN - 100_000 );
+        for ( int i = 0; i < 20_000; i++ ) {
+            int start = dense + random.nextInt( 100_000 );
+            ranges.add( IntegerRange.of( start, start + random.nextInt( 3 ) ) );
+        }
+        return ranges;
+    }
+
+    static BitSet bits( List<IntegerRange> ranges ) {
+        BitSet bits = new BitSet( SPAN );
+        for ( IntegerRange r : ranges ) {
+            bits.set( r.start() - BASE, r.end() - BASE );
+        }
+        return bits;
+    }
+
+    static List<IntegerRange> ranges( BitSet bits ) {
+        List<IntegerRange> ranges = new ArrayList<>();
+        for ( int from = bits.nextSetBit( 0 ); from >= 0; from = bits
+                .nextSetBit( from ) ) {
+            int to = bits.nextClearBit( from );
+            ranges.add( IntegerRange.of( from + BASE, to + BASE ) );
+            from = to;
+        }
+        return ranges;
+    }
+
+    static void assertSamePoints( IntegerRangeSet set, BitSet bits ) {
+        assertThat( set.stream().collect( Collectors.toList() ) )
+                .isEqualTo( ranges( bits ) );
+        assertThat( set.cardinality() ).isEqualTo( bits.cardinality() );
+        for ( int p = BASE; p < BASE + SPAN; p += 7 ) {
+            assertThat( set.contains( p ) ).as( "contains %s", p ).isEqualTo(
+                    bits.get( p - BASE ) );
+        }
+        // one representation per set of points
+        assertThat( set ).isEqualTo( IntegerRangeSet.of( ranges( bits ) ) );
+    }
+
+    @Test
+    void fromAndToRanges() {
+        List<IntegerRange> input = randomRanges();
+
+        IntegerRangeSet set = IntegerRangeSet.of( input );
+
+        assertSamePoints( set, bits( input ) );
+        assertThat( set.stream().collect( Collectors.toList() ) ).isEqualTo(
+                input.stream().collect( RangeCollectors.coalescing() ) );
+    }
+
+    @Test
+    void operationsLikeBitSet() {
+        List<IntegerRange> a = randomRanges();
+        List<IntegerRange> b = randomRanges();
+        IntegerRangeSet setA = IntegerRangeSet.of( a );
+        IntegerRangeSet setB = IntegerRangeSet.of( b );
+
+        BitSet union = bits( a );
+        union.or( bits( b ) );
+        BitSet intersection = bits( a );
+        intersection.and( bits( b ) );
+        BitSet difference = bits( a );
+        difference.andNot( bits( b ) );
+
+        assertSamePoints( setA.union( setB ), union );
+        assertSamePoints( setA.intersection( setB ), intersection );
+        assertSamePoints( setA.difference( setB ), difference );
+        assertThat( setA.difference( setA ) ).isEqualTo( IntegerRangeSet.empty() );
+    }
+
+    @Test
+    void punchThroughLikeRange() {
+        IntegerRangeSet free = IntegerRangeSet.of( List.of( IntegerRange.of( 0,
+                100 ) ) );
+        IntegerRangeSet taken = IntegerRangeSet.of( List.of( IntegerRange.of(
+                40, 60 ) ) );
+
+        assertThat( free.difference( taken ).stream() ).containsExactly(
+                IntegerRange.of( 0, 40 ), IntegerRange.of( 60, 100 ) );
+    }
+
+    @Test
+    void extremes() {
+        List<IntegerRange> input = List.of( IntegerRange.of( Integer.MIN_VALUE,
+                Integer.MIN_VALUE + 70_000 ), IntegerRange.of( -1, 1 ),
+                IntegerRange.of( Integer.MAX_VALUE - 70_000, Integer.MAX_VALUE ) );
+
+        IntegerRangeSet set = IntegerRangeSet.of( input );
+
+        assertThat( set.stream() ).containsExactlyElementsOf( input );
+        assertThat( set.cardinality() ).isEqualTo( 140_002 );
+        assertThat( set.contains( Integer.MIN_VALUE ) ).isTrue();
+        assertThat( set.contains( Integer.MAX_VALUE ) ).isFalse();
+        assertThat( set.contains( 0 ) ).isTrue();
+        assertThat( set.contains( 1 ) ).isFalse();
+    }
+}
@@ -0,0 +1,85 @@
+package nl.fontys.sebivenlo.ranges;
+
+import java.time.Instant;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * LongRange over epoch milliseconds must agree with InstantRange.
+ */
+public class LongRangeTest {
+
+    final Instant t0 = Instant.parse( "2021-01-01T08:00:00Z" );
+    final InstantRange morning = InstantRange.of( t0, t0.plusSeconds( 4 * 3600 ) );
+    final InstantRange meeting = InstantRange.of( t0.plusSeconds( 3600 ), t0
+            .plusSeconds( 2 * 3600 ) );
+    final InstantRange lunch = InstantRange.of( t0.plusSeconds( 4 * 3600 ), t0
+            .plusSeconds( 5 * 3600 ) );
+
+    static LongRange millis( InstantRange range ) {
+        return LongRange.of( range, Instant::toEpochMilli );
+    }
+
+    static InstantRange instants( LongRange range ) {
+        return range.toRange( Instant::ofEpochMilli, InstantRange::of );
+    }
+
+    @Test
+    void roundTrip() {
+        assertThat( instants( millis( morning ) ) ).isEqualTo( morning );
+        assertThat( millis( morning ).length() ).isEqualTo( morning.length()
+                .toMillis() );
+    }
+
+    @Test
+    void algebraLikeInstantRange() {
+        LongRange m = millis( morning );
+        LongRange x = millis( meeting );
+        LongRange l = millis( lunch );
+
+        assertThat( m.overlaps( x ) ).isTrue();
+        assertThat( m.overlap( x ) ).isEqualTo( morning.overlap( meeting )
+                .toMillis() );
+        assertThat( m.overlaps( l ) ).isFalse();
+        assertThat( m.meets( l ) ).isTrue();
+        // not morning.joinWith( lunch ): Range.meets compares the instants by identity
+        assertThat( instants( m.joinWith( l ) ) ).isEqualTo( InstantRange.of(
+                morning.start(), lunch.end() ) );
+        assertThat( m.intersectWith( x ).map( LongRangeTest::instants ) )
+                .isEqualTo( morning.intersectWith( meeting ) );
+        assertThat( m.punchThrough( x ).map( LongRangeTest::instants ).collect(
+                Collectors.toList() ) ).isEqualTo( morning.punchThrough( meeting )
+                .collect( Collectors.toList() ) );
+    }
+
+    @Test
+    void farApartRangesDoNotOverlap() {
+        LongRange low = LongRange.of( Long.MIN_VALUE, Long.MIN_VALUE + 1 );
+        LongRange high = LongRange.of( Long.MAX_VALUE - 1, Long.MAX_VALUE );
+
+        assertThat( low.overlap( high ) ).isZero();
+        assertThat( high.overlap( low ) ).isZero();
+        assertThat( low.overlap( low ) ).isEqualTo( 1L );
+        assertThat( high.overlap( LongRange.of( 0, Long.MAX_VALUE ) ) )
+                .isEqualTo( 1L );
+    }
+
+    @Test
+    void lengthAndOverlapUpToLongMax() {
+        LongRange upper = LongRange.of( 0, Long.MAX_VALUE );
+        LongRange widest = LongRange.of( -1, Long.MAX_VALUE - 1 );
+        LongRange all = LongRange.of( Long.MIN_VALUE, Long.MAX_VALUE );
+
+        assertThat( upper.length() ).isEqualTo( Long.MAX_VALUE );
+        assertThat( widest.length() ).isEqualTo( Long.MAX_VALUE );
+        assertThat( all.overlap( upper ) ).isEqualTo( Long.MAX_VALUE );
+        // past the documented limit the length wraps around
+        assertThat( all.length() ).isEqualTo( -1L );
+        assertThat( all.overlap( all ) ).isEqualTo( -1L );
+        assertThat( all.overlap( LongRange.of( -1, Long.MAX_VALUE ) ) )
+                .isNegative();
+    }
+}
@@ -0,0 +1,87 @@
+package nl.fontys.sebivenlo.ranges;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Coalescing must cover exactly the points of the input with sorted ranges
+ * that neither overlap nor meet, sequential and parallel alike.
+ */
+public class RangeCollectorsTest {
+
+    static BitSet points( List<IntegerRange> ranges ) {
+        BitSet points = new BitSet();
+        for ( IntegerRange r : ranges ) {
+            points.set( r.start(), r.end() );
+        }
+        return points;
+    }
+
+    static void assertCoalesced( List<IntegerRange> input,
+            List<IntegerRange> result ) {
+        assertThat( points( result ) ).isEqualTo( points( input ) );
+        for ( int i = 1; i < result.size(); i++ ) {
+            assertThat( result.get( i ).start() ).as( "gap before %s", result
+                    .get( i ) ).isGreaterThan( result.get( i - 1 ).end() );
+        }
+        assertThat( result ).allMatch( r -> r.start() < r.end() );
+    }
+
+    @Test
+    void sequentialAndParallel() {
+        Random random = new Random( 7 );
+        List<IntegerRange> input = new ArrayList<>();
+        for ( int i = 0; i < 100_000; i++ ) {
+            int start = random.nextInt( 1_000_000 );
+            input.add( IntegerRange.of( start, start + random.nextInt( 12 ) ) );
+        }
+
+        List<IntegerRange> sequential = input.stream().collect(
+                RangeCollectors.coalescing() );
+        List<IntegerRange> parallel = input.parallelStream().collect(
+                RangeCollectors.coalescing() );
+
+        assertCoalesced( input, sequential );
+        assertThat( parallel ).isEqualTo( sequential );
+    }
+
+    @Test
+    void meetingRangesAreJoined() {
+        List<IntegerRange> result = Stream.of( IntegerRange.of( 5, 8 ),
+                IntegerRange.of( 0, 2 ), IntegerRange.of( 2, 5 ),
+                IntegerRange.of( 3, 4 ), IntegerRange.of( 10, 12 ),
+                IntegerRange.of( 20, 20 ) ).collect( RangeCollectors.coalescing() );
+
+        assertThat( result ).containsExactly( IntegerRange.of( 0, 8 ),
+                IntegerRange.of( 10, 12 ) );
+    }
+
+    @Test
+    void instantRanges() {
+        Instant t0 = Instant.parse( "2021-01-01T08:00:00Z" );
+        List<InstantRange> result = Stream.of(
+                InstantRange.of( t0.plusSeconds( 3600 ), t0.plusSeconds( 7200 ) ),
+                InstantRange.of( t0, t0.plusSeconds( 3600 ) ),
+                InstantRange.of( t0.plusSeconds( 9000 ), t0.plusSeconds( 9900 ) ) )
+                .parallel().collect( RangeCollectors.coalescing() );
+
+        assertThat( result ).containsExactly(
+                InstantRange.of( t0, t0.plusSeconds( 7200 ) ),
+                InstantRange.of( t0.plusSeconds( 9000 ), t0.plusSeconds( 9900 ) ) );
+    }
+
+    @Test
+    void empty() {
+        assertThat( Stream.<IntegerRange>empty().collect( RangeCollectors
+                .coalescing() ) ).isEmpty();
+    }
+}
@@ -0,0 +1,107 @@
+package nl.fontys.sebivenlo.ranges;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The index must answer every query like filtering all ranges with the
+ * matching Range method, also after adds and removes, and stay balanced.
+ */
+public class RangeIndexTest {
+
+    final Random random = new Random( 42 );
+
+    IntegerRange randomRange( int span, int maxLength ) {
+        int start = random.nextInt( span );
+        return IntegerRange.of( start, start + random.nextInt( maxLength + 1 ) );
+    }
+
+    static List<IntegerRange> filter( List<IntegerRange> all,
+            Predicate<IntegerRange> test ) {
+        return all.stream().filter( test ).sorted( Comparator.comparing(
+                IntegerRange::start ).thenComparing( IntegerRange::end ) )
+                .collect( Collectors.toList() );
+    }
+
+    void assertSameAnswers( RangeIndex<IntegerRange, Integer, Integer> index,
+            List<IntegerRange> all ) {
+        assertThat( index.size() ).isEqualTo( all.size() );
+        assertThat( index ).containsExactlyElementsOf( filter( all, r -> true ) );
+        for ( int q = 0; q < 200; q++ ) {
+            IntegerRange query = randomRange( 1000, 60 );
+            int point = random.nextInt( 1000 );
+            assertThat( index.overlapping( query ) ).as( "overlapping %s", query )
+                    .containsExactlyElementsOf( filter( all, r -> r.overlaps( query ) ) );
+            assertThat( index.containing( point ) ).as( "containing %s", point )
+                    .containsExactlyElementsOf( filter( all, r -> r.contains( point ) ) );
+            assertThat( index.enclosedBy( query ) ).as( "enclosed by %s", query )
+                    .containsExactlyElementsOf( filter( all, r -> query.contains( r ) ) );
+            assertThat( index.enclosing( query ) ).as( "enclosing %s", query )
+                    .containsExactlyElementsOf( filter( all, r -> r.contains( query ) ) );
+        }
+        // AVL height bound
+        assertThat( index.height() ).isLessThanOrEqualTo(
+                (int) ( 1.45 * Math.log( all.size() + 2 ) / Math.log( 2 ) ) + 1 );
+    }
+
+    @Test
+    void queriesLikeFiltering() {
+        List<IntegerRange> all = new ArrayList<>();
+        RangeIndex<IntegerRange, Integer, Integer> index = new RangeIndex<>();
+        for ( int i = 0; i < 2000; i++ ) {
+            IntegerRange r = randomRange( 1000, 40 );
+            all.add( r );
+            index.add( r );
+        }
+
+        assertSameAnswers( index, all );
+        assertSameAnswers( RangeIndex.of( all ), all );
+    }
+
+    @Test
+    void removeKeepsAnswers() {
+        List<IntegerRange> all = new ArrayList<>();
+        for ( int i = 0; i < 2000; i++ ) {
+            all.add( randomRange( 1000, 40 ) );
+        }
+        RangeIndex<IntegerRange, Integer, Integer> index = RangeIndex.of( all );
+
+        for ( int i = 0; i < 1500; i++ ) {
+            IntegerRange victim = all.remove( random.nextInt( all.size() ) );
+            assertThat( index.remove( victim ) ).isTrue();
+        }
+
+        assertThat( index.remove( IntegerRange.of( -5, -1 ) ) ).isFalse();
+        assertSameAnswers( index, all );
+    }
+
+    @Test
+    void instantRanges() {
+        Instant t0 = Instant.parse( "2021-01-01T00:00:00Z" );
+        InstantRange morning = InstantRange.of( t0.plusSeconds( 8 * 3600 ),
+                t0.plusSeconds( 12 * 3600 ) );
+        InstantRange lunch = InstantRange.of( t0.plusSeconds( 12 * 3600 ),
+                t0.plusSeconds( 13 * 3600 ) );
+        InstantRange day = InstantRange.of( t0.plusSeconds( 9 * 3600 ),
+                t0.plusSeconds( 17 * 3600 ) );
+        RangeIndex<InstantRange, Instant, Duration> index = RangeIndex.of(
+                List.of( lunch, day, morning ) );
+
+        assertThat( index.containing( t0.plusSeconds( 12 * 3600 ) ) )
+                .containsExactly( day, lunch );
+        assertThat( index.overlapping( t0, t0.plusSeconds( 9 * 3600 + 1 ) ) )
+                .containsExactly( morning, day );
+        assertThat( index.enclosing( lunch ) ).containsExactly( day, lunch );
+        assertThat( index.overlapping( lunch.end(), lunch.end() ) ).isEmpty();
+    }
+}
@@ -0,0 +1,121 @@
+package nl.fontys.sebivenlo.ranges;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * The sweep must find the pairs of the nested loop over overlaps, each
+ * once, also when the time axis is cut in slices.
+ */
+public class RangeJoinTest {
+
+    final Random random = new Random( 11 );
+
+    List<IntegerRange> randomRanges( int count ) {
+        List<IntegerRange> ranges = new ArrayList<>();
+        for ( int i = 0; i < count; i++ ) {
+            int start = random.nextInt( 5000 );
+            // some long ranges to carry over slice boundaries, some empty
+            int length = random.nextInt( 20 ) == 0 ? random.nextInt( 1000 )
+                    : random.nextInt( 30 );
+            ranges.add( IntegerRange.of( start, start + length ) );
+        }
+        return ranges;
+    }
+
+    static List<RangeJoin.Overlap<IntegerRange>> nestedLoop(
+            List<IntegerRange> left, List<IntegerRange> right ) {
+        List<RangeJoin.Overlap<IntegerRange>> pairs = new ArrayList<>();
+        for ( IntegerRange l : left ) {
+            for ( IntegerRange r : right ) {
+                if ( l.overlaps( r ) ) {
+                    pairs.add( new RangeJoin.Overlap<>( l, r ) );
+                }
+            }
+        }
+        return pairs;
+    }
+
+    // compareTo of a range looks at the start only
+    static final Comparator<IntegerRange> START_END = Comparator.comparing(
+            IntegerRange::start ).thenComparing( IntegerRange::end );
+
+    /**
+     * Sorted copy, so two pair lists compare in n log n instead of the
+     * quadratic any-order assertion.
+     */
+    static List<RangeJoin.Overlap<IntegerRange>> byLeftThenRight(
+            List<RangeJoin.Overlap<IntegerRange>> pairs ) {
+        List<RangeJoin.Overlap<IntegerRange>> sorted = new ArrayList<>( pairs );
+        sorted.sort( Comparator.comparing( RangeJoin.Overlap<IntegerRange>::left,
+                START_END ).thenComparing( RangeJoin.Overlap::right, START_END ) );
+        return sorted;
+    }
+
+    @Test
+    void sameAsNestedLoop() {
+        List<IntegerRange> left = randomRanges( 1500 );
+        List<IntegerRange> right = randomRanges( 1000 );
+
+        List<RangeJoin.Overlap<IntegerRange>> pairs = RangeJoin.overlaps( left,
+                right ).collect( Collectors.toList() );
+
+        assertThat( byLeftThenRight( pairs ) ).isEqualTo( byLeftThenRight(
+                nestedLoop( left, right ) ) );
+        assertThat( pairs ).allMatch( o -> o.intersection().equals( o.left()
+                .intersectWith( o.right() ).get() ) );
+        // in order of the start of the intersection
+        assertThat( pairs ).isSortedAccordingTo( ( a, b ) -> a.intersection()
+                .compareTo( b.intersection() ) );
+    }
+
+    @ParameterizedTest
+    @ValueSource( ints = { 1, 2, 7, 64, 5000 } )
+    void parallelSameAsNestedLoop( int slices ) {
+        List<IntegerRange> left = randomRanges( 1500 );
+        List<IntegerRange> right = randomRanges( 1000 );
+
+        assertThat( byLeftThenRight( RangeJoin.overlapsParallel( left, right,
+                slices ).collect( Collectors.toList() ) ) ).isEqualTo(
+                byLeftThenRight( nestedLoop( left, right ) ) );
+    }
+
+    @Test
+    void bookingsAgainstMaintenance() {
+        Instant t0 = Instant.parse( "2021-03-01T00:00:00Z" );
+        InstantRange booking1 = InstantRange.of( t0.plusSeconds( 9 * 3600 ), t0
+                .plusSeconds( 11 * 3600 ) );
+        InstantRange booking2 = InstantRange.of( t0.plusSeconds( 11 * 3600 ), t0
+                .plusSeconds( 12 * 3600 ) );
+        InstantRange window = InstantRange.of( t0.plusSeconds( 10 * 3600 ), t0
+                .plusSeconds( 11 * 3600 ) );
+
+        List<RangeJoin.Overlap<InstantRange>> pairs = RangeJoin.overlaps(
+                List.of( booking2, booking1 ), List.of( window ) ).collect(
+                Collectors.toList() );
+
+        assertThat( pairs ).hasSize( 1 );
+        assertThat( pairs.get( 0 ).left() ).isEqualTo( booking1 );
+        assertThat( pairs.get( 0 ).intersection() ).isEqualTo( window );
+    }
+
+    @Test
+    void emptySides() {
+        assertThat( RangeJoin.overlaps( List.<IntegerRange>of(), randomRanges(
+                10 ) ) ).isEmpty();
+        assertThat( RangeJoin.overlapsParallel( randomRanges( 10 ), List
+                .<IntegerRange>of() ) ).isEmpty();
+        assertThat( RangeJoin.overlapsParallel( List.<IntegerRange>of(), List
+                .<IntegerRange>of(), 4 ) ).isEmpty();
+    }
+}
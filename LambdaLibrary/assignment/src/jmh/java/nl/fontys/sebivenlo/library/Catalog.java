@@ -0,0 +1,117 @@
+package nl.fontys.sebivenlo.library;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic book catalogs of fixed sizes for the benchmarks.
+ *
+ * A catalog is a function of its size only, so every run and every machine
+ * measures the same books. Titles carry marker words with a known share of
+ * the books, see {@link Selectivity}; authors and publishers repeat as in a
+ * real catalog.
+ */
+public enum Catalog {
+    SMALL( 10_000 ), MEDIUM( 1_000_000 ), LARGE( 10_000_000 );
+
+    static final String HEADER = "id;title;author;isbn;publisher;language;year";
+
+    /**
+     * Search terms that match a known share of any catalog.
+     */
+    public enum Selectivity {
+        /** Matches no book. */
+        NONE( "zzz" ),
+        /** Matches one book in 10000: the rare marker of the title. */
+        RARE( "r0042" ),
+        /** Matches one book in 100: the common marker of the title. */
+        COMMON( "c42" ),
+        /** Matches every book. */
+        ALL( "title" );
+
+        final String term;
+
+        Selectivity( String term ) {
+            this.term = term;
+        }
+    }
+
+    final int size;
+
+    Catalog( int size ) {
+        this.size = size;
+    }
+
+    /**
+     * The csv line of book i, 1 based.
+     */
+    static String line( int i ) {
+        // seeded per book, so any range of a catalog can be made alone
+        SplittableRandom random = new SplittableRandom( i );
+        return i + ";Title " + i + " r" + pad( i % 10_000, 4 ) + " c"
+                + pad( i % 100, 2 ) + ";Author " + random.nextInt( 50_000 )
+                + ";978-" + ( 1_000_000_000L + i ) + ";Publisher "
+                + random.nextInt( 500 ) + ";"
+                + Book.Language.values()[ random.nextInt(
+                        Book.Language.values().length ) ] + ";"
+                + ( 1900 + random.nextInt( 125 ) );
+    }
+
+    private static String pad( int value, int width ) {
+        String digits = Integer.toString( value );
+        return "0".repeat( width - digits.length() ) + digits;
+    }
+
+    /**
+     * The books, made in memory.
+     *
+     * @return the books in id order
+     */
+    public List<Book> books() {
+        List<Book> books = new ArrayList<>( size );
+        for ( int i = 1; i <= size; i++ ) {
+            books.add( Book.fromStrings( line( i ).split( ";" ) ) );
+        }
+        return books;
+    }
+
+    /**
+     * The catalog as a csv file with a header line, written once into
+     * jmh-data in the working directory and reused by later runs.
+     *
+     * @return the file
+     */
+    public Path file() {
+        Path file = Paths.get( "jmh-data", "catalog-" + size + ".csv" );
+        if ( Files.exists( file ) ) {
+            return file;
+        }
+        try {
+            Files.createDirectories( file.getParent() );
+            Path tmp = Files.createTempFile( file.getParent(), "catalog", ".tmp" );
+            try ( BufferedWriter out = Files.newBufferedWriter( tmp,
+                    StandardCharsets.UTF_8 ) ) {
+                out.write( HEADER );
+                out.newLine();
+                for ( int i = 1; i <= size; i++ ) {
+                    out.write( line( i ) );
+                    out.newLine();
+                }
+            }
+            // forks running at the same time may both write, one wins
+            Files.move( tmp, file, StandardCopyOption.REPLACE_EXISTING );
+            return file;
+        } catch ( IOException ex ) {
+            throw new UncheckedIOException( ex );
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of the searches of a {@link DefaultLibrary}: search terms of
+ * several selectivities, id lookups, and predicate scans with and without a
+ * query plan.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class LibraryBenchmark {
+
+    @Param( { "SMALL", "MEDIUM" } )
+    Catalog catalog;
+
+    DefaultLibrary library;
+    long[] ids;
+    int next;
+    Query query;
+    Predicate<Book> lambda;
+
+    /**
+     * The search term, a state of its own so the other benchmarks do not
+     * run once per selectivity.
+     */
+    @State( Scope.Benchmark )
+    public static class Term {
+
+        @Param( { "NONE", "RARE", "COMMON", "ALL" } )
+        Catalog.Selectivity selectivity;
+    }
+
+    @Setup
+    public void setUp() {
+        library = new DefaultLibrary( catalog.books() );
+        // known and unknown ids in a fixed random order
+        ids = new SplittableRandom( 42 ).longs( 4096, 1,
+                catalog.size + catalog.size / 10 ).toArray();
+        query = Query.language( Book.Language.DUTCH ).and( Query.yearBetween(
+                2000, 2009 ) );
+        lambda = b -> b.getLanguage() == Book.Language.DUTCH
+                && b.getYearOfPublication() >= 2000
+                && b.getYearOfPublication() <= 2009;
+        // build the lazy query index outside of the measurement
+        library.booksMatchPredicate( query );
+    }
+
+    @Benchmark
+    public List<Book> searchTerm( Term term ) {
+        return library.booksMatchSearchTerm( term.selectivity.term );
+    }
+
+    @Benchmark
+    public List<Book> searchTermFirstPage( Term term ) {
+        return library.booksMatchSearchTerm( term.selectivity.term, 0, 20 );
+    }
+
+    @Benchmark
+    public Book getBookById() {
+        long id = ids[ next++ & ( ids.length - 1 ) ];
+        return library.getBookById( id );
+    }
+
+    @Benchmark
+    public List<Book> predicateQuery() {
+        return library.booksMatchPredicate( query );
+    }
+
+    @Benchmark
+    public List<Book> predicateLambda() {
+        return library.booksMatchPredicate( lambda );
+    }
+}
@@ -0,0 +1,129 @@
+package nl.fontys.sebivenlo.library;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to load a catalog file into books, through the string array path of
+ * {@link Book#fromStrings(String[])} and the {@link CSVRow} path, sequential
+ * and parallel, and with a generated {@link RowMappers} mapper.
+ *
+ * The splitLines and rowLines benchmarks compare only the tokenizing, on
+ * lines already in memory; the gc profiler reports the bytes they allocate.
+ * rowLinesMapper does what rowLines does with the generated mapper.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class LoadBenchmark {
+
+    static final Function<CSVRow, Book> MAPPER = RowMappers.of( Book.class,
+            long.class, String.class, String.class, String.class, String.class,
+            Book.Language.class, int.class );
+
+    @Param( { "SMALL", "MEDIUM" } )
+    Catalog catalog;
+
+    Path file;
+    int processors;
+    List<String> lines;
+    CSVRow row;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = catalog.file();
+        processors = Runtime.getRuntime().availableProcessors();
+        lines = Files.readAllLines( file );
+        row = new CSVRow( ";" );
+    }
+
+    static boolean isBookRow( String[] row ) {
+        return row.length >= 7 && !row[ 0 ].isEmpty()
+                && Character.isDigit( row[ 0 ].charAt( 0 ) );
+    }
+
+    @Benchmark
+    public List<Book> fromStrings() throws IOException {
+        return new CSVObjectStream<Book>( file )
+                .asList( Book::fromStrings, LoadBenchmark::isBookRow );
+    }
+
+    @Benchmark
+    public long splitLines() {
+        long sum = 0;
+        for ( String line : lines ) {
+            String[] parts = line.split( ";" );
+            if ( isBookRow( parts ) ) {
+                sum += Book.fromStrings( parts ).getId();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long rowLines() {
+        long sum = 0;
+        for ( String line : lines ) {
+            row.reset( line );
+            if ( Book.isBookRow( row ) ) {
+                sum += Book.fromRow( row ).getId();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long rowLinesMapper() {
+        long sum = 0;
+        for ( String line : lines ) {
+            row.reset( line );
+            if ( Book.isBookRow( row ) ) {
+                sum += MAPPER.apply( row ).getId();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public List<Book> fromRow() throws IOException {
+        return new CSVObjectStream<Book>( file )
+                .rowsAsList( Book::fromRow, Book::isBookRow );
+    }
+
+    @Benchmark
+    public List<Book> rowMapper() throws IOException {
+        return new CSVObjectStream<Book>( file )
+                .rowsAsList( MAPPER, Book::isBookRow );
+    }
+
+    @Benchmark
+    public List<Book> fromRowParallel() throws IOException {
+        return new CSVObjectStream<Book>( file )
+                .parallel( processors, CSVObjectStream.DEFAULT_CHUNK_SIZE )
+                .rowsAsList( Book::fromRow, Book::isBookRow );
+    }
+
+    @Benchmark
+    public List<Book> loadFromPath() throws IOException {
+        return Book.loadFromPath( file, processors );
+    }
+}
@@ -0,0 +1,87 @@
+package nl.fontys.sebivenlo.fxlambdalibrary;
+
+import java.util.List;
+import java.util.function.Function;
+import javafx.beans.InvalidationListener;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.control.TableColumn;
+import nl.fontys.sebivenlo.library.Book;
+
+/**
+ * The columns of the book table.
+ *
+ * Each column reads its value with a getter, instead of the reflective
+ * property lookup of a PropertyValueFactory for every cell that scrolls into
+ * view. As books do not change, a cell value is a bare constant, not a
+ * property with listener bookkeeping.
+ */
+final class BookTable {
+
+    /**
+     * Row height in pixels. A fixed height lets the table skip measuring
+     * rows while scrolling.
+     */
+    static final double ROW_HEIGHT = 24;
+
+    private BookTable() {
+    }
+
+    /**
+     * New columns for a table of books, in the order of the book fields.
+     *
+     * @return the columns
+     */
+    static List<TableColumn<Book, ?>> columns() {
+        return List.of(
+                column( "id", Book::getId ),
+                column( "title", Book::getTitle ),
+                column( "author", Book::getAuthor ),
+                column( "isbn", Book::getIsbn ),
+                column( "publisher", Book::getPublisher ),
+                column( "language", Book::getLanguage ),
+                column( "yearOfPublication", Book::getYearOfPublication ) );
+    }
+
+    static <T> TableColumn<Book, T> column( String name,
+            Function<Book, T> getter ) {
+        TableColumn<Book, T> column = new TableColumn<>( name );
+        column.setCellValueFactory( cell -> new Constant<>( getter.apply(
+                cell.getValue() ) ) );
+        return column;
+    }
+
+    /**
+     * Value that never changes, so listeners are never called and need not
+     * be kept.
+     */
+    static final class Constant<T> implements ObservableValue<T> {
+
+        private final T value;
+
+        Constant( T value ) {
+            this.value = value;
+        }
+
+        @Override
+        public T getValue() {
+            return value;
+        }
+
+        @Override
+        public void addListener( ChangeListener<? super T> listener ) {
+        }
+
+        @Override
+        public void removeListener( ChangeListener<? super T> listener ) {
+        }
+
+        @Override
+        public void addListener( InvalidationListener listener ) {
+        }
+
+        @Override
+        public void removeListener( InvalidationListener listener ) {
+        }
+    }
+}
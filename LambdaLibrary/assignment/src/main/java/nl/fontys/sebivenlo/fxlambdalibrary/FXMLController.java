@@ -1,24 +1,39 @@
 package nl.fontys.sebivenlo.fxlambdalibrary;
 
-import java.lang.reflect.Field;
-import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.function.Predicate;
 import java.util.ResourceBundle;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.application.Platform;
 import javafx.beans.value.ObservableValue;
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.Label;
-import javafx.scene.control.TableColumn;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.AnchorPane;
 import nl.fontys.sebivenlo.library.Book;
 import nl.fontys.sebivenlo.library.DefaultLibrary;
 import nl.fontys.sebivenlo.library.LibraryModel;
+import nl.fontys.sebivenlo.library.SearchSession;
 
-public class FXMLController implements Initializable {
+/**
+ * Shows the library in a table that narrows down while typing a search term.
+ *
+ * The library is loaded by a {@link LibraryLoader} after the window is up.
+ * Until it is complete, the batches loaded so far are collected in the book
+ * list and the table shows them through a filter on the current search term.
+ * When loading is done the complete library and its search session take
+ * over, and the book list holds only the search result.
+ */
+public class FXMLController implements Initializable, LibraryLoader.Listener {
 
     @FXML
     private AnchorPane root;
@@ -29,49 +44,78 @@ public class FXMLController implements Initializable {
     @FXML
     private TextField searchTerm;
 
+    @FXML
+    private ProgressBar progress;
+
     @FXML
     TableView<Book> tv;
 
-    LibraryModel library;
-    ObservableList<Book> bookList = javafx.collections.FXCollections
-            .observableArrayList();
-
-    public FXMLController() throws URISyntaxException {
-        library = new DefaultLibrary( Book.loadFromFile( "library.csv" ) );
-    }
+    // until loading is done, an empty library that only provides the match rule
+    LibraryModel library = new DefaultLibrary( List.of() );
+    SearchSession session;
+    ObservableList<Book> bookList = FXCollections.observableArrayList();
+    // shown while loading, null afterwards
+    FilteredList<Book> loading = new FilteredList<>( bookList );
 
     @Override
     public void initialize( URL url, ResourceBundle rb ) {
         label.setText( "Search Term" );
-        bookList.addAll( library.getBooks() );
+        progress.setProgress( 0 );
         defineTable();
-        tv.setItems( bookList );
+        tv.setItems( loading );
         AnchorPane.setTopAnchor( tv, 40.0 );
         AnchorPane.setRightAnchor( tv, 0.0 );
         AnchorPane.setBottomAnchor( tv, 0.0 );
         AnchorPane.setLeftAnchor( tv, 0.0 );
         searchTerm.setText( "" );
         searchTerm.textProperty().addListener( this::searcher );
-
+        new LibraryLoader( Paths.get( "library.csv" ), Platform::runLater, this,
+                LibraryLoader.BATCH_SIZE ).start();
     }
 
     void searcher( ObservableValue<? extends String> t, String ov, String nv ) {
-        bookList.clear();
-        if ( nv.length() == 0 ) {
-            bookList.addAll( library.getBooks() );
+        if ( session == null ) {
+            loading.setPredicate( matching( nv ) );
         } else {
-            bookList.addAll( library.booksMatchSearchTerm( nv ) );
+            ListDiff.update( bookList, session.search( nv ),
+                    Book::sameContent );
         }
     }
 
-    void defineTable() throws SecurityException {
-        Field[] declaredFields = Book.class.getDeclaredFields();
-        for ( Field declaredField : declaredFields ) {
-            // Class<?> cType = declaredField.getType();
-            String clsName = declaredField.getName();
-            TableColumn<Book, Object> tc = new TableColumn<>( clsName );
-            tc.setCellValueFactory( new PropertyValueFactory<>( clsName ) );
-            tv.getColumns().add( tc );
+    private Predicate<Book> matching( String term ) {
+        if ( term == null || term.isEmpty() ) {
+            return null;
         }
+        return book -> library.bookMatchesSearchTerm( book, term );
+    }
+
+    @Override
+    public void loaded( List<Book> books, double fraction ) {
+        bookList.addAll( books );
+        progress.setProgress( fraction );
+    }
+
+    @Override
+    public void done( LibraryModel complete ) {
+        library = complete;
+        session = complete.searchSession();
+        tv.setItems( bookList );
+        loading = null;
+        progress.setVisible( false );
+        ListDiff.update( bookList, session.search( searchTerm.getText() ),
+                Book::sameContent );
+    }
+
+    @Override
+    public void failed( Throwable cause ) {
+        Logger.getLogger( FXMLController.class.getName() )
+                .log( Level.SEVERE, "cannot load library", cause );
+        progress.setVisible( false );
+        label.setText( "Load failed: " + cause.getMessage() );
+    }
+
+    void defineTable() {
+        tv.getColumns().setAll( BookTable.columns() );
+        tv.setFixedCellSize( BookTable.ROW_HEIGHT );
     }
 }
@@ -0,0 +1,173 @@
+package nl.fontys.sebivenlo.fxlambdalibrary;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import nl.fontys.sebivenlo.library.Book;
+import nl.fontys.sebivenlo.library.ColumnarLibrary;
+import nl.fontys.sebivenlo.library.LibraryModel;
+import nl.fontys.sebivenlo.library.LibrarySnapshot;
+
+/**
+ * Loads a library csv file on a background thread and hands the books to a
+ * listener in batches, while they are read.
+ *
+ * All listener calls go through the given executor, which for the GUI is
+ * {@code Platform::runLater}, so the listener only ever runs on the FX
+ * thread. A batch is handed over when it is full or when the previous one is
+ * older than a frame or two, whichever comes first, which keeps the number
+ * of runLater calls low on big files and the first rows quick on slow ones.
+ *
+ * The csv file is parsed as {@link Book#streamFromPath} does, on all
+ * processors and with interned authors and publishers, and streamed straight
+ * into the columns of the library, so the loader keeps no list of books.
+ * When the snapshot of the csv file is up to date it is read instead, and
+ * its books are published in the same way. After parsing the csv file a new
+ * snapshot is written.
+ *
+ * Any failure, also an {@link Error} such as running out of memory, is
+ * reported to the listener; errors are then thrown on.
+ */
+final class LibraryLoader implements Runnable {
+
+    /**
+     * Receives the results of a load, on the thread of the executor.
+     */
+    interface Listener {
+
+        /**
+         * Some more books have been read.
+         *
+         * @param books next books in file order
+         * @param progress fraction of the file done, between 0 and 1
+         */
+        void loaded( List<Book> books, double progress );
+
+        /**
+         * All books have been read.
+         *
+         * @param library over all books
+         */
+        void done( LibraryModel library );
+
+        /**
+         * Loading stopped.
+         *
+         * @param cause of the failure
+         */
+        void failed( Throwable cause );
+    }
+
+    static final int BATCH_SIZE = 4096;
+    static final long BATCH_NANOS = 40_000_000L;
+
+    private final Path csv;
+    private final Executor publisher;
+    private final Listener listener;
+    private final int batchSize;
+
+    private List<Book> batch;
+    private long batchStart;
+    private long published;
+
+    /**
+     * Create a loader.
+     *
+     * @param csv file to load
+     * @param publisher executor that runs the listener calls
+     * @param listener to inform
+     * @param batchSize maximum number of books per batch
+     */
+    LibraryLoader( Path csv, Executor publisher, Listener listener,
+            int batchSize ) {
+        this.csv = csv;
+        this.publisher = publisher;
+        this.listener = listener;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Start loading on a new daemon thread, so an unfinished load does not
+     * keep the application alive after its window closed.
+     *
+     * @return the started thread
+     */
+    Thread start() {
+        Thread loader = new Thread( this, "library-loader" );
+        loader.setDaemon( true );
+        loader.start();
+        return loader;
+    }
+
+    @Override
+    public void run() {
+        try {
+            LibraryModel library = load();
+            publisher.execute( () -> listener.done( library ) );
+        } catch ( Throwable ex ) {
+            publisher.execute( () -> listener.failed( ex ) );
+            if ( ex instanceof Error ) {
+                throw (Error) ex;
+            }
+        }
+    }
+
+    private LibraryModel load() throws IOException {
+        long sourceSize = Files.size( csv );
+        long sourceTime = Files.getLastModifiedTime( csv ).toMillis();
+        batch = new ArrayList<>( batchSize );
+        batchStart = System.nanoTime();
+        ColumnarLibrary cached = LibrarySnapshot.readIfCurrent( csv );
+        if ( cached != null ) {
+            int size = cached.size();
+            for ( int r = 0; r < size; r++ ) {
+                add( cached.book( r ), (double) r / size );
+            }
+            flush( 1.0 );
+            return cached;
+        }
+        // the parser runs ahead of what is published, so progress is the
+        // length of the published rows against the file size; a row is
+        // estimated from its fields, chars against bytes is close enough.
+        double total = Math.max( 1, sourceSize );
+        ColumnarLibrary library;
+        try ( Stream<Book> books = Book.streamFromPath( csv, Runtime
+                .getRuntime().availableProcessors() ) ) {
+            library = ColumnarLibrary.fromStream( books.peek( b -> {
+                published += rowLength( b );
+                add( b, Math.min( 1.0, published / total ) );
+            } ) );
+        }
+        flush( 1.0 );
+        LibrarySnapshot.store( library, csv, sourceSize, sourceTime );
+        return library;
+    }
+
+    private void add( Book book, double progress ) {
+        batch.add( book );
+        if ( batch.size() >= batchSize
+                || System.nanoTime() - batchStart >= BATCH_NANOS ) {
+            flush( progress );
+        }
+    }
+
+    private static int rowLength( Book book ) {
+        // six separators and a line end around the seven fields
+        return 7 + Long.toString( book.getId() ).length()
+                + book.getTitle().length() + book.getAuthor().length()
+                + book.getIsbn().length() + book.getPublisher().length()
+                + book.getLanguage().name().length()
+                + Integer.toString( book.getYearOfPublication() ).length();
+    }
+
+    private void flush( double progress ) {
+        List<Book> ready = batch;
+        publisher.execute( () -> listener.loaded( ready, progress ) );
+        batch = new ArrayList<>( batchSize );
+        batchStart = System.nanoTime();
+    }
+}
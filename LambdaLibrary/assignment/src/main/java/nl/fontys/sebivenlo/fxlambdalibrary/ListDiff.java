@@ -0,0 +1,117 @@
+package nl.fontys.sebivenlo.fxlambdalibrary;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import javafx.collections.ObservableList;
+
+/**
+ * Brings an observable list in line with a new content by removing and
+ * inserting only what differs, instead of clearing and refilling it.
+ *
+ * Listeners, such as a TableView, then receive small change sets. The diff
+ * is minimal when the new content keeps the relative order of the elements it
+ * shares with the old, as search results in library order do.
+ *
+ * Elements are matched with equals. A matched element whose content differs,
+ * such as a book with the same id that was edited, is replaced, so that the
+ * new content shows. Every inserted segment and every replacement
+ * shifts or touches the backing list and fires a change of its own, so past
+ * {@link #MAX_EDITS} of them the list is refilled with a single setAll. The
+ * work is thus proportional to the sizes of the old and new content.
+ */
+final class ListDiff {
+
+    /**
+     * Inserted segments plus replacements above which one setAll is
+     * cheaper.
+     */
+    static final int MAX_EDITS = 16;
+
+    private ListDiff() {
+    }
+
+    /**
+     * Update target so that it equals next, for elements whose equals
+     * compares all content.
+     *
+     * @param <T> element type
+     * @param target list to update
+     * @param next desired content
+     */
+    static <T> void update( ObservableList<T> target, List<? extends T> next ) {
+        update( target, next, Object::equals );
+    }
+
+    /**
+     * Update target so that it equals next and holds the new content of
+     * equal elements.
+     *
+     * @param <T> element type
+     * @param target list to update
+     * @param next desired content
+     * @param sameContent tells whether an equal old element can stay
+     */
+    static <T> void update( ObservableList<T> target, List<? extends T> next,
+            BiPredicate<? super T, ? super T> sameContent ) {
+        if ( next.isEmpty() ) {
+            target.clear();
+            return;
+        }
+        Set<T> keep = new HashSet<>( next );
+        // one batched change for all removals
+        target.retainAll( keep );
+        // plan on the unchanged target: per edit the target position and the
+        // range in next, a replacement has an empty range
+        int[] edits = new int[ 3 * MAX_EDITS ];
+        int count = 0;
+        int t = 0;
+        int n = 0;
+        while ( n < next.size() ) {
+            if ( t < target.size() && target.get( t ).equals( next.get( n ) ) ) {
+                if ( !sameContent.test( target.get( t ), next.get( n ) ) ) {
+                    if ( count == MAX_EDITS ) {
+                        target.setAll( next );
+                        return;
+                    }
+                    edits[ 3 * count ] = t;
+                    edits[ 3 * count + 1 ] = n;
+                    edits[ 3 * count + 2 ] = n;
+                    count++;
+                }
+                t++;
+                n++;
+                continue;
+            }
+            int start = n;
+            while ( n < next.size() && ( t >= target.size()
+                    || !target.get( t ).equals( next.get( n ) ) ) ) {
+                n++;
+            }
+            if ( count == MAX_EDITS ) {
+                target.setAll( next );
+                return;
+            }
+            edits[ 3 * count ] = t;
+            edits[ 3 * count + 1 ] = start;
+            edits[ 3 * count + 2 ] = n;
+            count++;
+        }
+        // only when the order of shared elements changed
+        if ( t < target.size() ) {
+            target.remove( t, target.size() );
+        }
+        // back to front, so that earlier target positions stay valid
+        for ( int e = count - 1; e >= 0; e-- ) {
+            int at = edits[ 3 * e ];
+            int from = edits[ 3 * e + 1 ];
+            int to = edits[ 3 * e + 2 ];
+            if ( from == to ) {
+                target.set( at, next.get( from ) );
+            } else {
+                target.addAll( at, next.subList( from, to ) );
+            }
+        }
+    }
+}
@@ -2,11 +2,15 @@ package nl.fontys.sebivenlo.library;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.Objects;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Simple book object. All objects are Immutable.
@@ -25,6 +29,12 @@ public class Book {
         GERMAN, DUTCH, ENGLISH;
     }
 
+    /**
+     * Slots of the author and publisher pools of
+     * {@link #loadFromPath(Path, int)}.
+     */
+    private static final int INTERN_POOL_SIZE = 4096;
+
     private final long id;
     private final String title;
     private final String author;
@@ -102,6 +112,23 @@ public class Book {
         return yearOfPublication;
     }
 
+    /**
+     * Compare all fields, where {@link #equals(java.lang.Object)} only
+     * compares ids. Tells whether a book with the same id has been edited.
+     *
+     * @param other book to compare with
+     * @return true if all fields are equal
+     */
+    public boolean sameContent( Book other ) {
+        return other != null && id == other.id
+                && yearOfPublication == other.yearOfPublication
+                && language == other.language
+                && Objects.equals( title, other.title )
+                && Objects.equals( author, other.author )
+                && Objects.equals( isbn, other.isbn )
+                && Objects.equals( publisher, other.publisher );
+    }
+
     @Override
     public String toString() {
         return "Book{" + "id=" + id + "\n, title=" + title + "\n, author="
@@ -109,6 +136,19 @@ public class Book {
                 + "\n, language=" + language + "\n, " + yearOfPublication + "\n}";
     }
 
+    /**
+     * The variable parts of {@link #toString()}, in order.
+     *
+     * @return id, title, author, isbn, publisher, language and year as they
+     * appear in toString
+     */
+    String[] searchableValues() {
+        return new String[]{ String.valueOf( id ), String.valueOf( title ),
+            String.valueOf( author ), String.valueOf( isbn ),
+            String.valueOf( publisher ), String.valueOf( language ),
+            String.valueOf( yearOfPublication ) };
+    }
+
     /**
      * Static factory from array of string to books.
      * 
@@ -132,6 +172,38 @@ public class Book {
         return b;
     }
 
+    /**
+     * Static factory from a tokenized csv row to books. Id, language and year
+     * are parsed from the row directly.
+     *
+     * @param row used to construct
+     * @return a book instance
+     * @throws RuntimeException when one of the fields does not meet the field
+     * specification of the book.
+     */
+    public static Book fromRow( CSVRow row ) {
+        return new Book( row.getLong( 0 ), row.getString( 1 ),
+                row.getString( 2 ), row.getString( 3 ), row.getString( 4 ),
+                row.getEnum( 5, Book.Language.class ), row.getInt( 6 ) );
+    }
+
+    /**
+     * Tell book rows from headers and short lines: a book row has all seven
+     * fields and starts with a numeric id. Trailing empty fields do not
+     * count, as {@code String.split} drops them, so a row that ends in a
+     * separator instead of a year is skipped.
+     *
+     * @param row to test
+     * @return true when {@link #fromRow(CSVRow)} should be applied to the row
+     */
+    public static boolean isBookRow( CSVRow row ) {
+        int fields = row.fieldCount();
+        while ( fields > 0 && row.field( fields - 1 ).length() == 0 ) {
+            fields--;
+        }
+        return fields >= 7 && row.isDigits( 0 );
+    }
+
     /**
      * Read a file as a list of books. For this demo, any exceptions are logged.
      * When exceptions occur, an null is return, to fail fast.
@@ -145,15 +217,73 @@ public class Book {
         List<Book> result = null;
 
         try{
-            CSVObjectStream<Book> bookStream = new CSVObjectStream<>(
-                    Paths.get( filename ) );
-            Predicate<String[]> rowFilter = as -> as.length >= 7 && as[ 0 ]
-                    .matches( "^\\d+$" );
-            result = bookStream.asList( Book::fromStrings, rowFilter );
+            result = loadFromPath( Paths.get( filename ), Runtime.getRuntime()
+                    .availableProcessors() );
         } catch ( IOException ex ) {
             Logger.getLogger( Book.class.getName() )
                     .log( Level.SEVERE, null, ex );
         }
         return result;
     }
+
+    /**
+     * Read a file as a list of books, passing on exceptions.
+     *
+     * @param path to read
+     * @param parallelism number of threads to parse with, 1 to read the file
+     * sequentially
+     * @return the books in file order
+     * @throws IOException when the file cannot be read
+     */
+    public static List<Book> loadFromPath( Path path, int parallelism )
+            throws IOException {
+        try ( Stream<Book> books = streamFromPath( path, parallelism ) ) {
+            return books.collect( Collectors.toList() );
+        }
+    }
+
+    /**
+     * Stream the books of a file, parsed like
+     * {@link #loadFromPath(Path, int)} does. The stream must be closed.
+     *
+     * @param path to read
+     * @param parallelism number of threads to parse with, 1 to read the file
+     * sequentially
+     * @return the books in file order
+     * @throws IOException when the file cannot be opened
+     */
+    public static Stream<Book> streamFromPath( Path path, int parallelism )
+            throws IOException {
+        return streamFromPath( path, parallelism, line -> true );
+    }
+
+    /**
+     * Stream the books of a file, parsed like
+     * {@link #loadFromPath(Path, int)} does, with a look at every line. The
+     * stream must be closed.
+     *
+     * @param path to read
+     * @param parallelism number of threads to parse with, 1 to read the file
+     * sequentially
+     * @param lineFilter sees every line, on the parsing threads, so it must
+     * be thread safe when parallelism is above 1
+     * @return the books in file order
+     * @throws IOException when the file cannot be opened
+     */
+    public static Stream<Book> streamFromPath( Path path, int parallelism,
+            Predicate<String> lineFilter ) throws IOException {
+        // few authors and publishers write many books
+        InternPool authors = new InternPool( INTERN_POOL_SIZE );
+        InternPool publishers = new InternPool( INTERN_POOL_SIZE );
+        return new CSVObjectStream<Book>( path, ";", lineFilter )
+                .parallel( parallelism, CSVObjectStream.DEFAULT_CHUNK_SIZE )
+                .interning( 2, authors )
+                .interning( 4, publishers )
+                .streamRows( Book::fromRow, Book::isBookRow )
+                .onClose( () -> Logger.getLogger( Book.class.getName() ).log(
+                Level.FINE,
+                "{0}: interning saved {1} bytes of authors, {2} of publishers",
+                new Object[]{ path, authors.savedBytes(),
+                    publishers.savedBytes() } ) );
+    }
 }
@@ -1,13 +1,35 @@
 package nl.fontys.sebivenlo.library;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.stream.Stream;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 /**
  * Reads CSV files and turns the records into objects. Can read source from
@@ -16,14 +38,45 @@ import java.util.stream.Collectors;
  * Version 1.1 adds both the separator char (defaulted to semi colon) and line
  * filter, to allow commented csv files.
  *
+ * Version 1.2 adds a parallel mode, see {@link #parallel(int, int)}.
+ *
+ * Version 1.3 adds {@link #streamRows(Function, Predicate)}, which cuts lines
+ * with a {@link CSVRow} instead of a regex split and maps rows without
+ * intermediate arrays. Quoted fields are understood there on request, see
+ * {@link #quoted(boolean)}.
+ *
+ * Version 1.4 adds intern pools per column, see
+ * {@link #interning(int, InternPool)}.
+ *
+ * Version 1.5 reads gzip compressed files, recognized by their first bytes,
+ * without unpacking them to disk. Decompression runs on a thread of its own,
+ * ahead of the parsing. Such a file is always read sequentially, also in
+ * parallel mode, as compressed data cannot be cut into ranges.
+ *
  * @author Pieter van den Hombergh (p dot vandenhombergh at fontys dot nl)
  * @param <T> type of the created objects.
  */
 public class CSVObjectStream<T> {
 
+    /**
+     * Default size of the byte ranges parsed by one worker in parallel mode.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * Ranges per worker thread that may be parsed ahead of the consumer in
+     * parallel mode.
+     */
+    static final int WINDOW_PER_THREAD = 2;
+
     final Path filePath;
     final String splitString;
     final Predicate<String> lineFilter;
+    final int parallelism;
+    final int chunkSize;
+    final boolean ordered;
+    final InternPool[] pools;
+    final boolean quoted;
 
     /**
      * Construct the stream from a path.
@@ -38,8 +91,9 @@ public class CSVObjectStream<T> {
      * Construct the stream from a path with given separator.
      *
      * @param filePath the source of the csv records
-     * @param splitString separator in csv file, like ";" or "," to split
-     * strings with {@code String.split(String)}
+     * @param splitString separator in csv file, like ";" or ",". It is a
+     * regex for {@link #stream(Function, Predicate)} and taken literally by
+     * {@link #streamRows(Function, Predicate)}.
      */
     public CSVObjectStream( Path filePath, String splitString ) {
         this(filePath,splitString, x -> true);
@@ -53,9 +107,99 @@ public class CSVObjectStream<T> {
      * @param lineFilter set filter, to filter out (un) wanted
      */
     public CSVObjectStream( Path filePath, String splitString, Predicate<String> lineFilter ) {
+        this( filePath, splitString, lineFilter, 1, DEFAULT_CHUNK_SIZE, true,
+                new InternPool[ 0 ], false );
+    }
+
+    private CSVObjectStream( Path filePath, String splitString,
+            Predicate<String> lineFilter, int parallelism, int chunkSize,
+            boolean ordered, InternPool[] pools, boolean quoted ) {
         this.filePath = filePath;
         this.splitString = splitString;
         this.lineFilter = lineFilter;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        this.ordered = ordered;
+        this.pools = pools;
+        this.quoted = quoted;
+    }
+
+    /**
+     * Get a copy of this stream that reads in parallel.
+     *
+     * The file is memory mapped and cut into byte ranges of about chunkSize
+     * bytes, each ending at a line end. Each range is decoded, split and
+     * turned into objects on a fork join worker. The lineFilter, rowFilter and
+     * creator are thus invoked concurrently and must be thread safe. Workers
+     * parse at most two ranges per thread ahead of the consumer.
+     *
+     * A parallelism of 1 gives the plain sequential, lazy reading.
+     *
+     * @param parallelism number of worker threads
+     * @param chunkSize size of the byte range per task, in bytes
+     * @return the configured stream
+     */
+    public CSVObjectStream<T> parallel( int parallelism, int chunkSize ) {
+        if ( parallelism < 1 || chunkSize < 1 ) {
+            throw new IllegalArgumentException( "parallelism " + parallelism
+                    + " and chunkSize " + chunkSize + " must be positive" );
+        }
+        return new CSVObjectStream<>( filePath, splitString, lineFilter,
+                parallelism, chunkSize, ordered, pools, quoted );
+    }
+
+    /**
+     * Get a copy of this stream with or without guaranteed encounter order in
+     * parallel mode. Ordered is the default. Without order, the objects of a
+     * byte range are delivered as soon as the range is parsed. Within a range
+     * the order is always the file order.
+     *
+     * @param ordered whether the objects must come in file order
+     * @return the configured stream
+     */
+    public CSVObjectStream<T> ordered( boolean ordered ) {
+        return new CSVObjectStream<>( filePath, splitString, lineFilter,
+                parallelism, chunkSize, ordered, pools, quoted );
+    }
+
+    /**
+     * Get a copy of this stream that takes the strings of a column from a
+     * pool, so equal values, such as the publishers of many books, share one
+     * String. The pool is shared by all workers in parallel mode and its
+     * size is fixed, so a column with many distinct values costs no extra
+     * memory, it just gets few hits. A pool may serve several columns or
+     * streams; its counters tell the bytes saved.
+     *
+     * Pools apply to the strings of {@link CSVRow#getString(int)} and to the
+     * arrays of {@link #stream(Function, Predicate)}.
+     *
+     * @param column field index
+     * @param pool to take the strings of the column from, null for none
+     * @return the configured stream
+     */
+    public CSVObjectStream<T> interning( int column, InternPool pool ) {
+        if ( column < 0 ) {
+            throw new IllegalArgumentException( "column " + column );
+        }
+        InternPool[] next = Arrays.copyOf( pools, Math.max( pools.length,
+                column + 1 ) );
+        next[ column ] = pool;
+        return new CSVObjectStream<>( filePath, splitString, lineFilter,
+                parallelism, chunkSize, ordered, next, quoted );
+    }
+
+    /**
+     * Get a copy of this stream whose rows understand quoted fields, as
+     * described at {@link CSVRow#quoted(boolean)}. Off by default. Only
+     * applies to {@link #streamRows(Function, Predicate)}; the arrays of
+     * {@link #stream(Function, Predicate)} are always plainly split.
+     *
+     * @param quoted whether to understand quoted fields
+     * @return the configured stream
+     */
+    public CSVObjectStream<T> quoted( boolean quoted ) {
+        return new CSVObjectStream<>( filePath, splitString, lineFilter,
+                parallelism, chunkSize, ordered, pools, quoted );
     }
 
     /**
@@ -71,16 +215,255 @@ public class CSVObjectStream<T> {
     public Stream<T> stream( Function<? super String[], ? extends T> creator,
             Predicate<? super String[]> rowFilter ) throws
     IOException {
+        return lines( () -> this::split, rowFilter, creator );
+    }
+
+    private String[] split( String line ) {
+        String[] parts = line.split( this.splitString );
+        for ( int i = 0; i < pools.length && i < parts.length; i++ ) {
+            if ( pools[ i ] != null ) {
+                parts[ i ] = pools[ i ].intern( parts[ i ] );
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Stream of objects made directly from tokenized rows. The row handed to
+     * rowFilter and creator is reused for the next line, so the creator must
+     * take the values it needs and not keep the row. The separator is taken
+     * literally. Quoted fields are only understood when configured with
+     * {@link #quoted(boolean)}.
+     *
+     * @param creator from {@code CSVRow -> T}, such as
+     * {@code Book::fromRow}
+     * @param rowFilter to make it possible to reject rows, e.g. the header of
+     * the csv file.
+     * @return the stream of T
+     * @throws IOException when the file cannot be processed.
+     */
+    public Stream<T> streamRows( Function<? super CSVRow, ? extends T> creator,
+            Predicate<? super CSVRow> rowFilter ) throws IOException {
+        return lines( () -> new CSVRow( splitString ).internPools( pools )
+                .quoted( quoted )::reset, rowFilter, creator );
+    }
+
+    /**
+     * Collect the stream of rows to a list.
+     *
+     * @param creator from {@code CSVRow -> T}
+     * @param rowFilter to make it possible to reject rows, e.g. the header of
+     * the csv file.
+     * @return the created objects in a list in file encounter order.
+     * @throws IOException when csv file cannot be read.
+     * @see #streamRows(Function, Predicate)
+     */
+    public List<T> rowsAsList( Function<? super CSVRow, ? extends T> creator,
+            Predicate<? super CSVRow> rowFilter ) throws IOException {
+        try ( Stream<T> stream = this.streamRows( creator, rowFilter ) ) {
+            return stream.collect( Collectors.toList() );
+        }
+    }
 
+    /**
+     * Common pipeline: filter lines, tokenize, filter rows, create objects.
+     * A tokenizer may reuse its row, so each thread, and each byte range in
+     * parallel mode, gets one of its own, also when the caller makes the
+     * returned stream parallel.
+     *
+     * @param <R> row representation
+     * @param tokenizers supplies tokenizers from a line to R
+     */
+    private <R> Stream<T> lines( Supplier<Function<String, R>> tokenizers,
+            Predicate<? super R> rowFilter,
+            Function<? super R, ? extends T> creator ) throws IOException {
+        boolean compressed = DecompressingInputStream.isGzip( filePath );
+        if ( parallelism > 1 && !compressed ) {
+            return parallelStream( tokenizers, rowFilter, creator );
+        }
+        ThreadLocal<Function<String, R>> tokenizer
+                = ThreadLocal.withInitial( tokenizers );
         return
-                Files.lines( filePath )
+                ( compressed ? decompressedLines() : Files.lines( filePath ) )
                 .filter( this.lineFilter )
-                .map( s -> s.split( this.splitString ) )
+                .map( s -> tokenizer.get().apply( s ) )
                 .filter( rowFilter )
                 .map( creator )
                         ;
     }
 
+    /**
+     * Lines of a gzip file, decompressed on the way. Closing the stream stops
+     * the decompression.
+     */
+    private Stream<String> decompressedLines() throws IOException {
+        BufferedReader reader = new BufferedReader( new InputStreamReader(
+                new DecompressingInputStream( Files.newInputStream( filePath ) ),
+                StandardCharsets.UTF_8 ), DecompressingInputStream.BUFFER_SIZE );
+        return reader.lines().onClose( () -> {
+            try {
+                reader.close();
+            } catch ( IOException ex ) {
+                throw new UncheckedIOException( ex );
+            }
+        } );
+    }
+
+    /**
+     * Parse the file in newline aligned byte ranges on a private fork join
+     * pool. At most {@link #WINDOW_PER_THREAD} ranges per thread are
+     * submitted or parsed and not yet taken; the next range is submitted as
+     * one is taken. A slow consumer thus holds a bounded number of parsed
+     * objects, not the whole file. The returned stream hands out the results
+     * per range, waiting for a range when it is not yet done.
+     */
+    private <R> Stream<T> parallelStream( Supplier<Function<String, R>> tokenizers,
+            Predicate<? super R> rowFilter,
+            Function<? super R, ? extends T> creator ) throws IOException {
+        List<long[]> ranges = lineAlignedRanges();
+        ForkJoinPool pool = new ForkJoinPool( parallelism );
+        CompletionService<List<T>> done = new ExecutorCompletionService<>( pool );
+        List<Future<List<T>>> futures = new ArrayList<>( ranges.size() );
+        Runnable submitNext = () -> {
+            long[] range = ranges.get( futures.size() );
+            futures.add( done.submit( () -> parseRange( range[ 0 ], range[ 1 ],
+                    tokenizers.get(), rowFilter, creator ) ) );
+            if ( futures.size() == ranges.size() ) {
+                // lets submitted tasks finish, and the workers die afterwards
+                pool.shutdown();
+            }
+        };
+        int window = (int) Math.min( ranges.size(),
+                (long) parallelism * WINDOW_PER_THREAD );
+        for ( int i = 0; i < window; i++ ) {
+            submitNext.run();
+        }
+        if ( ranges.isEmpty() ) {
+            pool.shutdown();
+        }
+        Iterator<List<T>> chunks = new Iterator<>() {
+            int taken = 0;
+
+            @Override
+            public boolean hasNext() {
+                return taken < ranges.size();
+            }
+
+            @Override
+            public List<T> next() {
+                if ( !hasNext() ) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    Future<List<T>> f = ordered ? futures.get( taken )
+                            : done.take();
+                    List<T> chunk = f.get();
+                    taken++;
+                    if ( futures.size() < ranges.size() ) {
+                        submitNext.run();
+                    }
+                    return chunk;
+                } catch ( InterruptedException ex ) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException( ex );
+                } catch ( ExecutionException ex ) {
+                    Throwable cause = ex.getCause();
+                    if ( cause instanceof RuntimeException ) {
+                        throw (RuntimeException) cause;
+                    }
+                    if ( cause instanceof IOException ) {
+                        throw new UncheckedIOException( (IOException) cause );
+                    }
+                    throw new IllegalStateException( cause );
+                }
+            }
+        };
+        return StreamSupport.stream( Spliterators.spliterator( chunks,
+                ranges.size(), Spliterator.ORDERED ), false )
+                .flatMap( List::stream )
+                .onClose( () -> {
+                    futures.forEach( f -> f.cancel( false ) );
+                    pool.shutdown();
+                } );
+    }
+
+    /**
+     * Cut the file into ranges of at least chunkSize bytes, each but the last
+     * ending just after a newline.
+     *
+     * @return list of {start, end} pairs, end exclusive
+     * @throws IOException when the file cannot be read
+     */
+    List<long[]> lineAlignedRanges() throws IOException {
+        List<long[]> result = new ArrayList<>();
+        try ( FileChannel channel = FileChannel.open( filePath,
+                StandardOpenOption.READ ) ) {
+            long size = channel.size();
+            ByteBuffer probe = ByteBuffer.allocate( 8 * 1024 );
+            long start = 0;
+            while ( start < size ) {
+                long end = Math.min( size, start + chunkSize );
+                while ( end < size ) {
+                    probe.clear();
+                    int read = channel.read( probe, end );
+                    int newline = -1;
+                    for ( int i = 0; i < read; i++ ) {
+                        if ( probe.get( i ) == '\n' ) {
+                            newline = i;
+                            break;
+                        }
+                    }
+                    if ( newline >= 0 ) {
+                        end += newline + 1;
+                        break;
+                    }
+                    end = read <= 0 ? size : Math.min( size, end + read );
+                }
+                result.add( new long[]{ start, end } );
+                start = end;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Map one byte range, decode it and turn its lines into objects.
+     */
+    private <R> List<T> parseRange( long start, long end,
+            Function<String, R> tokenizer, Predicate<? super R> rowFilter,
+            Function<? super R, ? extends T> creator ) throws IOException {
+        CharBuffer chars;
+        try ( FileChannel channel = FileChannel.open( filePath,
+                StandardOpenOption.READ ) ) {
+            MappedByteBuffer bytes = channel.map( FileChannel.MapMode.READ_ONLY,
+                    start, end - start );
+            chars = StandardCharsets.UTF_8.newDecoder().decode( bytes );
+        }
+        List<T> result = new ArrayList<>();
+        int length = chars.length();
+        int lineStart = 0;
+        while ( lineStart < length ) {
+            int lineEnd = lineStart;
+            while ( lineEnd < length && chars.get( lineEnd ) != '\n'
+                    && chars.get( lineEnd ) != '\r' ) {
+                lineEnd++;
+            }
+            String line = chars.subSequence( lineStart, lineEnd ).toString();
+            if ( lineEnd < length && chars.get( lineEnd ) == '\r'
+                    && lineEnd + 1 < length && chars.get( lineEnd + 1 ) == '\n' ) {
+                lineEnd++;
+            }
+            lineStart = lineEnd + 1;
+            if ( this.lineFilter.test( line ) ) {
+                R row = tokenizer.apply( line );
+                if ( rowFilter.test( row ) ) {
+                    result.add( creator.apply( row ) );
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Collect stream to a list.
      *
@@ -93,7 +476,9 @@ public class CSVObjectStream<T> {
     public List<T> asList( Function<? super String[], ? extends T> creator,
             Predicate<? super String[]> rowFilter ) throws
     IOException {
-        return this.stream( creator, rowFilter ).collect( Collectors.toList() );
+        try ( Stream<T> stream = this.stream( creator, rowFilter ) ) {
+            return stream.collect( Collectors.toList() );
+        }
 
     }
 
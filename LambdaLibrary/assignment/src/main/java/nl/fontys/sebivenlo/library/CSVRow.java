@@ -0,0 +1,412 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.Arrays;
+
+/**
+ * One line of a csv file, cut into fields without regular expressions and
+ * without creating a String per field.
+ *
+ * A row is reused: {@link #reset(java.lang.CharSequence)} tokenizes the next
+ * line into the same object. The fields are available as {@link CharSequence}
+ * views, which are also reused, and through accessors that parse numbers and
+ * enum constants directly from the line. Only {@link #getString(int)} and
+ * {@link #toStringArray()} create strings, and for columns with an
+ * {@link InternPool} they only do so when the pool has no equal string yet.
+ *
+ * The separator is taken literally and a double quote is an ordinary
+ * character, so the fields are those of {@link String#split(String)} with the
+ * separator. Quoted fields are opt-in, see {@link #quoted(boolean)}.
+ *
+ * Because of the reuse, a row and its field views must not be kept or shared
+ * between threads. Take what is needed while the row is current.
+ */
+public final class CSVRow {
+
+    private static final ClassValue<Enum<?>[]> ENUM_CONSTANTS
+            = new ClassValue<>() {
+        @Override
+        protected Enum<?>[] computeValue( Class<?> type ) {
+            return (Enum<?>[]) type.getEnumConstants();
+        }
+    };
+
+    private final String separator;
+    private CharSequence line;
+    private final StringBuilder unescaped = new StringBuilder();
+    private int count;
+    private int[] starts = new int[ 8 ];
+    private int[] ends = new int[ 8 ];
+    private boolean[] inUnescaped = new boolean[ 8 ];
+    private Field[] fields = new Field[ 8 ];
+    private InternPool[] pools = new InternPool[ 0 ];
+    private boolean quoted;
+
+    /**
+     * Create a row for a separator.
+     *
+     * @param separator literal field separator, not empty
+     */
+    public CSVRow( String separator ) {
+        if ( separator.isEmpty() ) {
+            throw new IllegalArgumentException( "empty separator" );
+        }
+        this.separator = separator;
+    }
+
+    /**
+     * Let {@link #getString(int)} take the strings of some columns from
+     * pools. Pools may be shared between rows, also on other threads.
+     *
+     * @param poolsByColumn pool per field index, null for a column that is
+     * not pooled
+     * @return this row
+     */
+    public CSVRow internPools( InternPool... poolsByColumn ) {
+        this.pools = poolsByColumn.clone();
+        return this;
+    }
+
+    /**
+     * Let a field that starts with a double quote extend to the matching
+     * closing quote, so that it may contain the separator. A doubled quote
+     * inside a quoted field stands for one quote. Characters between a
+     * closing quote and the next separator are ignored, and an unclosed quote
+     * takes the rest of the line. Off by default.
+     *
+     * @param quoted whether to understand quoted fields
+     * @return this row
+     */
+    public CSVRow quoted( boolean quoted ) {
+        this.quoted = quoted;
+        return this;
+    }
+
+    /**
+     * Tokenize a new line into this row.
+     *
+     * @param line to tokenize, without line terminator
+     * @return this row
+     */
+    public CSVRow reset( CharSequence line ) {
+        this.line = line;
+        this.count = 0;
+        this.unescaped.setLength( 0 );
+        int length = line.length();
+        int pos = 0;
+        while ( true ) {
+            if ( quoted && pos < length && line.charAt( pos ) == '"' ) {
+                pos = quotedField( pos + 1 );
+            } else {
+                int end = indexOfSeparator( pos );
+                addField( pos, end, false );
+                pos = end;
+            }
+            if ( pos >= length ) {
+                return this;
+            }
+            pos += separator.length();
+            if ( pos == length ) {
+                // line ends in a separator: one more, empty field.
+                addField( pos, pos, false );
+                return this;
+            }
+        }
+    }
+
+    /**
+     * Scan a quoted field whose content starts at pos.
+     *
+     * @return position of the separator after the field, or line length
+     */
+    private int quotedField( int pos ) {
+        int length = line.length();
+        int start = pos;
+        int scratchStart = -1;
+        while ( pos < length ) {
+            char c = line.charAt( pos );
+            if ( c == '"' ) {
+                if ( pos + 1 < length && line.charAt( pos + 1 ) == '"' ) {
+                    if ( scratchStart < 0 ) {
+                        scratchStart = unescaped.length();
+                        unescaped.append( line, start, pos );
+                    }
+                    unescaped.append( '"' );
+                    pos += 2;
+                    continue;
+                }
+                break;
+            }
+            if ( scratchStart >= 0 ) {
+                unescaped.append( c );
+            }
+            pos++;
+        }
+        if ( scratchStart >= 0 ) {
+            addField( scratchStart, unescaped.length(), true );
+        } else {
+            addField( start, pos, false );
+        }
+        return indexOfSeparator( Math.min( pos + 1, length ) );
+    }
+
+    private int indexOfSeparator( int from ) {
+        int length = line.length();
+        int sepLength = separator.length();
+        char first = separator.charAt( 0 );
+        for ( int i = from; i + sepLength <= length; i++ ) {
+            if ( line.charAt( i ) == first && matchesSeparatorAt( i ) ) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private boolean matchesSeparatorAt( int i ) {
+        for ( int k = 1; k < separator.length(); k++ ) {
+            if ( line.charAt( i + k ) != separator.charAt( k ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addField( int start, int end, boolean escaped ) {
+        if ( count == starts.length ) {
+            int newLength = count * 2;
+            starts = Arrays.copyOf( starts, newLength );
+            ends = Arrays.copyOf( ends, newLength );
+            inUnescaped = Arrays.copyOf( inUnescaped, newLength );
+            fields = Arrays.copyOf( fields, newLength );
+        }
+        starts[ count ] = start;
+        ends[ count ] = end;
+        inUnescaped[ count ] = escaped;
+        count++;
+    }
+
+    /**
+     * The line this row was last reset to.
+     *
+     * @return the line
+     */
+    public CharSequence line() {
+        return line;
+    }
+
+    /**
+     * Number of fields in the current line. An empty line has one empty
+     * field.
+     *
+     * @return the field count
+     */
+    public int fieldCount() {
+        return count;
+    }
+
+    /**
+     * View on a field. The view is only valid until the next reset and is
+     * reused for the same index.
+     *
+     * @param i field index
+     * @return the field content
+     */
+    public CharSequence field( int i ) {
+        checkIndex( i );
+        Field f = fields[ i ];
+        if ( f == null ) {
+            f = fields[ i ] = new Field( i );
+        }
+        return f;
+    }
+
+    /**
+     * Field as a String, new or from the pool of the column.
+     *
+     * @param i field index
+     * @return the field content
+     */
+    public String getString( int i ) {
+        checkIndex( i );
+        if ( i < pools.length && pools[ i ] != null ) {
+            return pools[ i ].intern( source( i ), starts[ i ], ends[ i ] );
+        }
+        return source( i ).subSequence( starts[ i ], ends[ i ] ).toString();
+    }
+
+    /**
+     * Parse a field as a decimal long, like {@link Long#parseLong(String)}.
+     *
+     * @param i field index
+     * @return the value
+     * @throws NumberFormatException when the field is not a long
+     */
+    public long getLong( int i ) {
+        checkIndex( i );
+        CharSequence src = source( i );
+        int pos = starts[ i ];
+        int end = ends[ i ];
+        if ( pos == end ) {
+            throw numberFormat( i );
+        }
+        boolean negative = false;
+        char c = src.charAt( pos );
+        if ( c == '-' || c == '+' ) {
+            negative = c == '-';
+            if ( ++pos == end ) {
+                throw numberFormat( i );
+            }
+        }
+        // accumulate negatively, to be able to reach Long.MIN_VALUE
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multMin = limit / 10;
+        long result = 0;
+        for ( ; pos < end; pos++ ) {
+            int digit = src.charAt( pos ) - '0';
+            if ( digit < 0 || digit > 9 || result < multMin ) {
+                throw numberFormat( i );
+            }
+            result *= 10;
+            if ( result < limit + digit ) {
+                throw numberFormat( i );
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parse a field as a decimal int, like {@link Integer#parseInt(String)}.
+     *
+     * @param i field index
+     * @return the value
+     * @throws NumberFormatException when the field is not an int
+     */
+    public int getInt( int i ) {
+        long value = getLong( i );
+        if ( value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ) {
+            throw numberFormat( i );
+        }
+        return (int) value;
+    }
+
+    /**
+     * Look up the enum constant whose name equals the field, like
+     * {@link Enum#valueOf(java.lang.Class, java.lang.String)}.
+     *
+     * @param <E> enum type
+     * @param i field index
+     * @param type enum class
+     * @return the constant
+     * @throws IllegalArgumentException when no constant has this name
+     */
+    public <E extends Enum<E>> E getEnum( int i, Class<E> type ) {
+        CharSequence value = field( i );
+        for ( Enum<?> constant : ENUM_CONSTANTS.get( type ) ) {
+            if ( constant.name().contentEquals( value ) ) {
+                return type.cast( constant );
+            }
+        }
+        throw new IllegalArgumentException( "No enum constant "
+                + type.getCanonicalName() + "." + value );
+    }
+
+    /**
+     * Test if a field is a non empty sequence of the digits 0 to 9.
+     *
+     * @param i field index
+     * @return true if the field contains only digits
+     */
+    public boolean isDigits( int i ) {
+        checkIndex( i );
+        CharSequence src = source( i );
+        if ( starts[ i ] == ends[ i ] ) {
+            return false;
+        }
+        for ( int p = starts[ i ]; p < ends[ i ]; p++ ) {
+            char c = src.charAt( p );
+            if ( c < '0' || c > '9' ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * All fields as strings, with the result {@link String#split(String)}
+     * would give for an unquoted line: trailing empty fields are dropped,
+     * except that an empty line gives one empty string.
+     *
+     * @return the fields
+     */
+    public String[] toStringArray() {
+        if ( line.length() == 0 ) {
+            return new String[]{ "" };
+        }
+        int n = count;
+        while ( n > 0 && starts[ n - 1 ] == ends[ n - 1 ] ) {
+            n--;
+        }
+        String[] result = new String[ n ];
+        for ( int i = 0; i < n; i++ ) {
+            result[ i ] = getString( i );
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf( line );
+    }
+
+    private CharSequence source( int i ) {
+        return inUnescaped[ i ] ? unescaped : line;
+    }
+
+    private void checkIndex( int i ) {
+        if ( i < 0 || i >= count ) {
+            throw new IndexOutOfBoundsException( "field " + i + " of "
+                    + count );
+        }
+    }
+
+    private NumberFormatException numberFormat( int i ) {
+        return new NumberFormatException( "For input string: \"" + field( i )
+                + "\"" );
+    }
+
+    /**
+     * Reusable view on field i of the current line.
+     */
+    private final class Field implements CharSequence {
+
+        private final int index;
+
+        Field( int index ) {
+            this.index = index;
+        }
+
+        @Override
+        public int length() {
+            return ends[ index ] - starts[ index ];
+        }
+
+        @Override
+        public char charAt( int i ) {
+            if ( i < 0 || i >= length() ) {
+                throw new IndexOutOfBoundsException( i );
+            }
+            return source( index ).charAt( starts[ index ] + i );
+        }
+
+        @Override
+        public CharSequence subSequence( int start, int end ) {
+            return source( index ).subSequence( starts[ index ] + start,
+                    starts[ index ] + end );
+        }
+
+        @Override
+        public String toString() {
+            return getString( index );
+        }
+    }
+}
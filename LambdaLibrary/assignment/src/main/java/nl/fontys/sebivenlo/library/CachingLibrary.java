@@ -0,0 +1,296 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Library decorator that remembers the results of the most recent search
+ * terms.
+ * <p>
+ * The results of {@link #booksMatchSearchTerm(java.lang.String)} and
+ * {@link #authorsMatchSearchTerm(java.lang.String)} are kept in one least
+ * recently used map of bounded size. As all searches are case insensitive,
+ * terms are cached in lower case, so "Java" and "java" share an entry. The
+ * authors of a term are taken from the, possibly cached, books of the same
+ * term.
+ * <p>
+ * Every call compares the {@link LibraryModel#version()} of the wrapped
+ * library with the version the cache was filled from, and empties the cache
+ * when the books have changed. Other operations, including pages and top k
+ * lists, are passed on as is.
+ * <p>
+ * The cache is thread safe. A result is computed outside of the lock, so two
+ * threads missing on the same term at the same time may both compute it.
+ */
+public class CachingLibrary implements LibraryModel {
+
+    private final LibraryModel library;
+    private final int capacity;
+    private final Map<Key, List<?>> cache;
+    private long cachedVersion;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Wrap a library.
+     *
+     * @param library to cache results of
+     * @param capacity maximum number of cached results, at least 1
+     */
+    public CachingLibrary( LibraryModel library, int capacity ) {
+        if ( capacity < 1 ) {
+            throw new IllegalArgumentException( "capacity " + capacity );
+        }
+        this.library = library;
+        this.capacity = capacity;
+        this.cachedVersion = library.version();
+        this.cache = new LinkedHashMap<>( 16, 0.75f, true ) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<Key, List<?>> eldest ) {
+                if ( size() > CachingLibrary.this.capacity ) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Book> getBooks() {
+        return library.getBooks();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Book> booksMatchSearchTerm( String searchTerm ) {
+        return cached( new Key( false, searchTerm ),
+                library::booksMatchSearchTerm );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> authorsMatchSearchTerm( String searchTerm ) {
+        return cached( new Key( true, searchTerm ), term -> booksMatchSearchTerm(
+                term ).stream().map( Book::getAuthor ).distinct()
+                .collect( Collectors.toUnmodifiableList() ) );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private <T> List<T> cached( Key key, Function<String, List<T>> compute ) {
+        long version = library.version();
+        synchronized ( cache ) {
+            if ( version != cachedVersion ) {
+                cache.clear();
+                cachedVersion = version;
+            }
+            List<?> result = cache.get( key );
+            if ( result != null ) {
+                hits++;
+                return (List<T>) result;
+            }
+            misses++;
+        }
+        List<T> result = compute.apply( key.term );
+        synchronized ( cache ) {
+            // do not store a result computed from books that changed meanwhile
+            if ( version == cachedVersion ) {
+                cache.put( key, result );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Book> booksMatchPredicate( Predicate<? super Book> searchPredicate ) {
+        return library.booksMatchPredicate( searchPredicate );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Book> booksMatchSearchTerm( String searchTerm, int offset,
+            int limit ) {
+        return library.booksMatchSearchTerm( searchTerm, offset, limit );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Book> booksMatchPredicate( Predicate<? super Book> searchPredicate,
+            int offset, int limit ) {
+        return library.booksMatchPredicate( searchPredicate, offset, limit );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Book> topBooksMatchSearchTerm( String searchTerm,
+            Comparator<? super Book> order, int k ) {
+        return library.topBooksMatchSearchTerm( searchTerm, order, k );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Book> topBooksMatchPredicate( Predicate<? super Book> searchPredicate,
+            Comparator<? super Book> order, int k ) {
+        return library.topBooksMatchPredicate( searchPredicate, order, k );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Book getBookById( long id ) {
+        return library.getBookById( id );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean bookMatchesSearchTerm( Book book, String searchTerm ) {
+        return library.bookMatchesSearchTerm( book, searchTerm );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<TrigramIndex.Match> booksFuzzyMatch( String searchTerm, int k,
+            double minSimilarity ) {
+        return library.booksFuzzyMatch( searchTerm, k, minSimilarity );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long version() {
+        return library.version();
+    }
+
+    /**
+     * Forget all cached results. The counters are kept.
+     */
+    public void invalidate() {
+        synchronized ( cache ) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Number of cached results.
+     *
+     * @return the size, at most the capacity
+     */
+    public int size() {
+        synchronized ( cache ) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Maximum number of cached results, as given to the constructor.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Number of searches answered from the cache.
+     *
+     * @return the hit count
+     */
+    public long hitCount() {
+        synchronized ( cache ) {
+            return hits;
+        }
+    }
+
+    /**
+     * Number of searches passed on to the wrapped library.
+     *
+     * @return the miss count
+     */
+    public long missCount() {
+        synchronized ( cache ) {
+            return misses;
+        }
+    }
+
+    /**
+     * Number of results dropped to stay within capacity. Results dropped
+     * because the books changed are not counted.
+     *
+     * @return the eviction count
+     */
+    public long evictionCount() {
+        synchronized ( cache ) {
+            return evictions;
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized ( cache ) {
+            return "CachingLibrary{size=" + cache.size() + "/" + capacity
+                    + ", hits=" + hits + ", misses=" + misses
+                    + ", evictions=" + evictions + "}";
+        }
+    }
+
+    /**
+     * Kind of search and its lower case term.
+     */
+    private static final class Key {
+
+        final boolean authors;
+        final String term;
+
+        Key( boolean authors, String term ) {
+            this.authors = authors;
+            this.term = term.toLowerCase();
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * term.hashCode() + Boolean.hashCode( authors );
+        }
+
+        @Override
+        public boolean equals( Object obj ) {
+            if ( !( obj instanceof Key ) ) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return authors == other.authors && Objects.equals( term, other.term );
+        }
+    }
+}
@@ -0,0 +1,541 @@
+package nl.fontys.sebivenlo.library;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Library that stores its books column wise instead of as Book objects.
+ * <p>
+ * Ids and years are kept in primitive arrays. Author, publisher and language
+ * are dictionary encoded: each distinct value is stored once and every row
+ * holds a small int code. Titles and isbns are packed as UTF-8 into one byte
+ * array. A {@link Book} is only created when one is asked for, for instance
+ * from the {@link #getBooks()} view or as a search result.
+ * <p>
+ * Predicates over the primitive columns can be evaluated without creating
+ * books, with {@link #booksMatchRows(java.util.function.IntPredicate)}:
+ * <pre>{@code
+ *   lib.booksMatchRows( r -> lib.language( r ) == Book.Language.DUTCH
+ *           && lib.year( r ) > 2000 );
+ * }</pre>
+ * A search term is tested once against each distinct author, publisher and
+ * language, so per row only titles, isbns and the numbers are compared.
+ * <p>
+ * The packed text is limited to 2 GB.
+ */
+public class ColumnarLibrary implements LibraryModel {
+
+    private static final Book.Language[] LANGUAGES = Book.Language.values();
+
+    final int size;
+    final long[] ids;
+    final short[] years;
+    final byte[] languages;
+    final int[] authors;
+    final String[] authorDictionary;
+    final int[] publishers;
+    final String[] publisherDictionary;
+    /**
+     * Title of row r at [offsets[2r], offsets[2r+1]), isbn up to
+     * offsets[2r+2].
+     */
+    final int[] textOffsets;
+    final byte[] text;
+    final LongIndexMap idIndex;
+    private volatile QueryIndex queryIndex;
+    private volatile TrigramIndex trigramIndex;
+
+    /**
+     * Create the library from a list of books. The list is not kept.
+     *
+     * @param books to store
+     */
+    public ColumnarLibrary( List<Book> books ) {
+        this( books.stream(), books.size() );
+    }
+
+    /**
+     * Create the library from a stream of books, without keeping them. The
+     * stream is consumed but not closed.
+     *
+     * @param books to store, in order
+     * @return the library
+     */
+    public static ColumnarLibrary fromStream( Stream<Book> books ) {
+        return new ColumnarLibrary( books, 1024 );
+    }
+
+    private ColumnarLibrary( Stream<Book> books, int expectedSize ) {
+        Columns c = new Columns( expectedSize );
+        books.forEachOrdered( c::add );
+        size = c.size;
+        ids = Arrays.copyOf( c.ids, size );
+        years = Arrays.copyOf( c.years, size );
+        languages = Arrays.copyOf( c.languages, size );
+        authors = Arrays.copyOf( c.authors, size );
+        publishers = Arrays.copyOf( c.publishers, size );
+        authorDictionary = c.authorDictionary.toArray( new String[ 0 ] );
+        publisherDictionary = c.publisherDictionary.toArray( new String[ 0 ] );
+        textOffsets = Arrays.copyOf( c.textOffsets, 2 * size + 1 );
+        text = Arrays.copyOf( c.text, c.textOffsets[ 2 * size ] );
+        idIndex = new LongIndexMap( size );
+        for ( int r = 0; r < size; r++ ) {
+            idIndex.putIfAbsent( ids[ r ], r );
+        }
+    }
+
+    /**
+     * Create the library from complete columns, as read back from a
+     * {@link LibrarySnapshot}.
+     */
+    ColumnarLibrary( long[] ids, short[] years, byte[] languages, int[] authors,
+            String[] authorDictionary, int[] publishers,
+            String[] publisherDictionary, int[] textOffsets, byte[] text,
+            LongIndexMap idIndex ) {
+        this.size = ids.length;
+        this.ids = ids;
+        this.years = years;
+        this.languages = languages;
+        this.authors = authors;
+        this.authorDictionary = authorDictionary;
+        this.publishers = publishers;
+        this.publisherDictionary = publisherDictionary;
+        this.textOffsets = textOffsets;
+        this.text = text;
+        this.idIndex = idIndex;
+    }
+
+    /**
+     * Read a csv file straight into columns, without keeping the parsed
+     * books.
+     *
+     * @param filename to read, as in {@link Book#loadFromFile(String)}
+     * @return the library
+     * @throws IOException when the file cannot be read
+     */
+    public static ColumnarLibrary loadFromFile( String filename ) throws IOException {
+        try ( Stream<Book> books = Book.streamFromPath( Paths.get( filename ),
+                Runtime.getRuntime().availableProcessors() ) ) {
+            return new ColumnarLibrary( books, 1024 );
+        }
+    }
+
+    /**
+     * Number of books.
+     *
+     * @return the row count
+     */
+    public int size() {
+        return size;
+    }
+
+    public long id( int row ) {
+        return ids[ row ];
+    }
+
+    public int year( int row ) {
+        return years[ row ];
+    }
+
+    public Book.Language language( int row ) {
+        return LANGUAGES[ languages[ row ] ];
+    }
+
+    public String author( int row ) {
+        return authorDictionary[ authors[ row ] ];
+    }
+
+    public String publisher( int row ) {
+        return publisherDictionary[ publishers[ row ] ];
+    }
+
+    public String title( int row ) {
+        return decode( 2 * row );
+    }
+
+    public String isbn( int row ) {
+        return decode( 2 * row + 1 );
+    }
+
+    private String decode( int field ) {
+        int start = textOffsets[ field ];
+        return new String( text, start, textOffsets[ field + 1 ] - start,
+                StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Materialize the book in a row.
+     *
+     * @param row index
+     * @return a new book with the row values
+     */
+    public Book book( int row ) {
+        return new Book( ids[ row ], title( row ), author( row ), isbn( row ),
+                publisher( row ), language( row ), years[ row ] );
+    }
+
+    /**
+     * Retrieves all books whose row satisfies a predicate on row indices.
+     * Books are only created for matching rows.
+     *
+     * @param rowPredicate test on a row index, typically using the column
+     * accessors of this library
+     * @return Unmodifiable list of matching books
+     */
+    public List<Book> booksMatchRows( IntPredicate rowPredicate ) {
+        List<Book> result = new ArrayList<>();
+        for ( int r = 0; r < size; r++ ) {
+            if ( rowPredicate.test( r ) ) {
+                result.add( book( r ) );
+            }
+        }
+        return Collections.unmodifiableList( result );
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The view creates a book on each {@code get}.
+     */
+    @Override
+    public List<Book> getBooks() {
+        return new BookView();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Book> booksMatchSearchTerm( String searchTerm ) {
+        return booksMatchRows( rowsMatching( searchTerm ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> authorsMatchSearchTerm( String searchTerm ) {
+        IntPredicate matches = rowsMatching( searchTerm );
+        boolean[] seen = new boolean[ authorDictionary.length ];
+        List<String> result = new ArrayList<>();
+        for ( int r = 0; r < size; r++ ) {
+            if ( !seen[ authors[ r ] ] && matches.test( r ) ) {
+                seen[ authors[ r ] ] = true;
+                result.add( author( r ) );
+            }
+        }
+        return Collections.unmodifiableList( result );
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A {@link Query} is answered from indexes over the columns, built on its
+     * first use. Only candidate rows become books.
+     */
+    @Override
+    public List<Book> booksMatchPredicate( Predicate<? super Book> searchPredicate ) {
+        if ( searchPredicate instanceof Query ) {
+            QueryIndex.Plan plan = queryIndex().plan( (Query) searchPredicate );
+            if ( plan != null ) {
+                List<Book> result = new ArrayList<>();
+                for ( int row : plan.rows ) {
+                    Book book = book( row );
+                    if ( plan.test( book ) ) {
+                        result.add( book );
+                    }
+                }
+                return Collections.unmodifiableList( result );
+            }
+        }
+        return booksMatchRows( r -> searchPredicate.test( book( r ) ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Rows are tested on the columns and only the books of the page are
+     * created.
+     */
+    @Override
+    public List<Book> booksMatchSearchTerm( String searchTerm, int offset,
+            int limit ) {
+        IntPredicate matches = rowsMatching( searchTerm );
+        Page<Book> page = new Page<>( offset, limit );
+        for ( int r = 0; r < size && !page.isFull(); r++ ) {
+            if ( matches.test( r ) ) {
+                page.add( book( r ) );
+            }
+        }
+        return page.toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Rows are tested on the columns, books are only created for matches.
+     */
+    @Override
+    public List<Book> topBooksMatchSearchTerm( String searchTerm,
+            Comparator<? super Book> order, int k ) {
+        IntPredicate matches = rowsMatching( searchTerm );
+        TopK<Book> top = new TopK<>( order, k );
+        for ( int r = 0; r < size; r++ ) {
+            if ( matches.test( r ) ) {
+                top.offer( book( r ) );
+            }
+        }
+        return top.toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A {@link Query} only visits the rows of its most selective indexed
+     * term, up to the last book of the page.
+     */
+    @Override
+    public List<Book> booksMatchPredicate( Predicate<? super Book> searchPredicate,
+            int offset, int limit ) {
+        QueryIndex.Plan plan = searchPredicate instanceof Query
+                ? queryIndex().plan( (Query) searchPredicate ) : null;
+        if ( plan == null ) {
+            return LibraryModel.super.booksMatchPredicate( searchPredicate,
+                    offset, limit );
+        }
+        Page<Book> page = new Page<>( offset, limit );
+        for ( int row : plan.rows ) {
+            if ( page.isFull() ) {
+                break;
+            }
+            Book book = book( row );
+            if ( plan.test( book ) ) {
+                page.add( book );
+            }
+        }
+        return page.toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A {@link Query} only ranks the rows of its most selective indexed term.
+     */
+    @Override
+    public List<Book> topBooksMatchPredicate(
+            Predicate<? super Book> searchPredicate,
+            Comparator<? super Book> order, int k ) {
+        QueryIndex.Plan plan = searchPredicate instanceof Query
+                ? queryIndex().plan( (Query) searchPredicate ) : null;
+        if ( plan == null ) {
+            return LibraryModel.super.topBooksMatchPredicate( searchPredicate,
+                    order, k );
+        }
+        TopK<Book> top = new TopK<>( order, k );
+        for ( int row : plan.rows ) {
+            Book book = book( row );
+            if ( plan.test( book ) ) {
+                top.offer( book );
+            }
+        }
+        return top.toList();
+    }
+
+    private QueryIndex queryIndex() {
+        QueryIndex result = queryIndex;
+        if ( result == null ) {
+            synchronized ( this ) {
+                result = queryIndex;
+                if ( result == null ) {
+                    result = queryIndex = new QueryIndex( size, this::language,
+                            this::author, this::publisher, this::year );
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The trigram index is built on first use and kept.
+     */
+    @Override
+    public List<TrigramIndex.Match> booksFuzzyMatch( String searchTerm, int k,
+            double minSimilarity ) {
+        return trigramIndex().topK( searchTerm, k, minSimilarity );
+    }
+
+    private TrigramIndex trigramIndex() {
+        TrigramIndex result = trigramIndex;
+        if ( result == null ) {
+            synchronized ( this ) {
+                result = trigramIndex;
+                if ( result == null ) {
+                    result = trigramIndex = new TrigramIndex( size, this::book,
+                            List.of( this::author, this::title ) );
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Book getBookById( long id ) {
+        int row = idIndex.get( id );
+        return row == LongIndexMap.NOT_FOUND ? DefaultLibrary.NULL_OBJECT_BOOK
+                : book( row );
+    }
+
+    /**
+     * Row test with the outcome of
+     * {@link #bookMatchesSearchTerm(Book, String)}. The dictionary values are
+     * tested once up front.
+     */
+    private IntPredicate rowsMatching( String searchTerm ) {
+        String term = searchTerm.toLowerCase();
+        if ( IndexedLibrary.overlapsLabel( term ) ) {
+            return r -> bookMatchesSearchTerm( book( r ), searchTerm );
+        }
+        boolean[] authorHit = hits( authorDictionary, term );
+        boolean[] publisherHit = hits( publisherDictionary, term );
+        boolean[] languageHit = new boolean[ LANGUAGES.length ];
+        for ( Book.Language l : LANGUAGES ) {
+            languageHit[ l.ordinal() ] = l.toString().toLowerCase().contains( term );
+        }
+        return r -> authorHit[ authors[ r ] ] || publisherHit[ publishers[ r ] ]
+                || languageHit[ languages[ r ] ]
+                || String.valueOf( ids[ r ] ).contains( term )
+                || String.valueOf( years[ r ] ).contains( term )
+                || title( r ).toLowerCase().contains( term )
+                || isbn( r ).toLowerCase().contains( term );
+    }
+
+    private static boolean[] hits( String[] dictionary, String term ) {
+        boolean[] result = new boolean[ dictionary.length ];
+        for ( int i = 0; i < dictionary.length; i++ ) {
+            result[ i ] = String.valueOf( dictionary[ i ] ).toLowerCase()
+                    .contains( term );
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for ( int r = 0; r < size; r++ ) {
+            sb.append( book( r ) );
+            sb.append( "\n" );
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Read only list view that creates books on demand.
+     */
+    private final class BookView extends AbstractList<Book> implements RandomAccess {
+
+        @Override
+        public Book get( int index ) {
+            if ( index < 0 || index >= size ) {
+                throw new IndexOutOfBoundsException( index );
+            }
+            return book( index );
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Growable columns, used while loading.
+     */
+    private static final class Columns {
+
+        int size;
+        long[] ids;
+        short[] years;
+        byte[] languages;
+        int[] authors;
+        int[] publishers;
+        int[] textOffsets;
+        byte[] text;
+        final List<String> authorDictionary = new ArrayList<>();
+        final List<String> publisherDictionary = new ArrayList<>();
+        final Map<String, Integer> authorCodes = new HashMap<>();
+        final Map<String, Integer> publisherCodes = new HashMap<>();
+
+        Columns( int capacity ) {
+            capacity = Math.max( 16, capacity );
+            ids = new long[ capacity ];
+            years = new short[ capacity ];
+            languages = new byte[ capacity ];
+            authors = new int[ capacity ];
+            publishers = new int[ capacity ];
+            textOffsets = new int[ 2 * capacity + 1 ];
+            text = new byte[ 32 * capacity ];
+        }
+
+        void add( Book b ) {
+            if ( size == ids.length ) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf( ids, capacity );
+                years = Arrays.copyOf( years, capacity );
+                languages = Arrays.copyOf( languages, capacity );
+                authors = Arrays.copyOf( authors, capacity );
+                publishers = Arrays.copyOf( publishers, capacity );
+                textOffsets = Arrays.copyOf( textOffsets, 2 * capacity + 1 );
+            }
+            ids[ size ] = b.getId();
+            years[ size ] = (short) b.getYearOfPublication();
+            languages[ size ] = (byte) b.getLanguage().ordinal();
+            authors[ size ] = code( b.getAuthor(), authorCodes, authorDictionary );
+            publishers[ size ] = code( b.getPublisher(), publisherCodes,
+                    publisherDictionary );
+            appendText( 2 * size, b.getTitle() );
+            appendText( 2 * size + 1, b.getIsbn() );
+            size++;
+        }
+
+        private static int code( String value, Map<String, Integer> codes,
+                List<String> dictionary ) {
+            return codes.computeIfAbsent( value, v -> {
+                dictionary.add( v );
+                return dictionary.size() - 1;
+            } );
+        }
+
+        private void appendText( int field, String value ) {
+            byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+            int start = textOffsets[ field ];
+            long end = (long) start + bytes.length;
+            if ( end > Integer.MAX_VALUE - 8 ) {
+                throw new IllegalStateException( "text columns exceed 2 GB" );
+            }
+            if ( end > text.length ) {
+                text = Arrays.copyOf( text, (int) Math.min( Integer.MAX_VALUE - 8,
+                        Math.max( end, 2L * text.length ) ) );
+            }
+            System.arraycopy( bytes, 0, text, start, bytes.length );
+            textOffsets[ field + 1 ] = (int) end;
+        }
+    }
+}
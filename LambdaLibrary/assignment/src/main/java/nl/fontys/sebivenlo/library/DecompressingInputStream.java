@@ -0,0 +1,161 @@
+package nl.fontys.sebivenlo.library;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Gzip decompression on a thread of its own. The decompressed bytes are
+ * handed over in buffers through a bounded queue, so the reader parses one
+ * buffer while the next ones are inflated, and the inflater stops when the
+ * reader falls behind by {@link #QUEUE_SIZE} buffers.
+ *
+ * A failure of the inflater is thrown to the reader once it has read
+ * everything before it: an IOException or Error as it is, any other exception
+ * wrapped in an IOException. Closing the stream stops the inflater.
+ */
+final class DecompressingInputStream extends InputStream {
+
+    /**
+     * Size of the buffers handed over, in bytes.
+     */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Number of buffers that may wait for the reader.
+     */
+    static final int QUEUE_SIZE = 16;
+
+    private static final byte[] END = new byte[ 0 ];
+
+    private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(
+            QUEUE_SIZE );
+    private final Thread inflater;
+    // written before END is queued, so visible to the reader that took END
+    private Throwable failure;
+    private byte[] current = new byte[ 0 ];
+    private int pos;
+    private boolean ended;
+
+    /**
+     * Start decompressing.
+     *
+     * @param compressed gzip data, closed when decompression ends
+     */
+    DecompressingInputStream( InputStream compressed ) {
+        inflater = new Thread( () -> inflate( compressed ), "csv-gunzip" );
+        inflater.setDaemon( true );
+        inflater.start();
+    }
+
+    /**
+     * Test for the gzip magic bytes.
+     *
+     * @param path to test
+     * @return true when the file starts like a gzip stream
+     * @throws IOException when the file cannot be read
+     */
+    static boolean isGzip( Path path ) throws IOException {
+        try ( InputStream in = Files.newInputStream( path ) ) {
+            return in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+
+    private void inflate( InputStream compressed ) {
+        // compressed is also closed when the gzip header cannot be read
+        try ( InputStream source = compressed;
+                InputStream in = new GZIPInputStream( source, BUFFER_SIZE ) ) {
+            int n;
+            do {
+                byte[] buffer = new byte[ BUFFER_SIZE ];
+                n = in.readNBytes( buffer, 0, BUFFER_SIZE );
+                if ( n > 0 ) {
+                    queue.put( n == BUFFER_SIZE ? buffer
+                            : Arrays.copyOf( buffer, n ) );
+                }
+            } while ( n == BUFFER_SIZE );
+        } catch ( InterruptedException ex ) {
+            // closed by the reader
+        } catch ( Throwable ex ) {
+            // anything, so the reader is never left waiting for END
+            failure = ex;
+        } finally {
+            try {
+                queue.put( END );
+            } catch ( InterruptedException ex ) {
+                // closed by the reader
+            }
+        }
+    }
+
+    /**
+     * Make sure there are bytes in the current buffer.
+     *
+     * @return false at the end of the data
+     */
+    private boolean fill() throws IOException {
+        if ( pos < current.length ) {
+            return true;
+        }
+        if ( ended ) {
+            return false;
+        }
+        try {
+            current = queue.take();
+        } catch ( InterruptedException ex ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "interrupted while decompressing" );
+        }
+        pos = 0;
+        if ( current == END ) {
+            ended = true;
+            if ( failure instanceof IOException ) {
+                throw (IOException) failure;
+            } else if ( failure instanceof Error ) {
+                throw (Error) failure;
+            } else if ( failure != null ) {
+                throw new IOException( "decompression failed", failure );
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? current[ pos++ ] & 0xff : -1;
+    }
+
+    @Override
+    public int read( byte[] b, int off, int len ) throws IOException {
+        if ( len == 0 ) {
+            return 0;
+        }
+        if ( !fill() ) {
+            return -1;
+        }
+        int n = Math.min( len, current.length - pos );
+        System.arraycopy( current, pos, b, off, n );
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current.length - pos;
+    }
+
+    @Override
+    public void close() {
+        ended = true;
+        current = END;
+        inflater.interrupt();
+        queue.clear();
+    }
+}
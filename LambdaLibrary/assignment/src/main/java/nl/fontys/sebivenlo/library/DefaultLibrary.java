@@ -2,6 +2,7 @@ package nl.fontys.sebivenlo.library;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Predicate;
@@ -24,6 +25,21 @@ public class DefaultLibrary implements LibraryModel {
      */
     private final List<Book> books;
 
+    /**
+     * Position in books by book id.
+     */
+    private final LongIndexMap idIndex;
+
+    /**
+     * Indexes for queries, built on first use.
+     */
+    private volatile QueryIndex queryIndex;
+
+    /**
+     * Index for fuzzy search, built on first use.
+     */
+    private volatile TrigramIndex trigramIndex;
+
     /**
      * Dummy book returned if no book is found.
      */
@@ -31,12 +47,73 @@ public class DefaultLibrary implements LibraryModel {
             = new Book(0, "Null object", "", "", "", Book.Language.ENGLISH, -1);
 
     /**
-     * The constructor loads the library catalogue file.
+     * The constructor loads the library catalogue file and indexes the books
+     * by id. The list should not be modified afterwards.
      *
      * @param books to add in this constructor.
      */
     public DefaultLibrary(List<Book> books) {
         this.books = books;
+        this.idIndex = new LongIndexMap(books.size());
+        for (int i = 0; i < books.size(); i++) {
+            // first one wins, as in a linear search
+            idIndex.putIfAbsent(books.get(i).getId(), i);
+        }
+    }
+
+    private DefaultLibrary(List<Book> books, LongIndexMap idIndex) {
+        this.books = books;
+        this.idIndex = idIndex;
+    }
+
+    /**
+     * Create a library with some books added, replaced or removed, leaving
+     * this one as it is. The books and the id index are copied, which are
+     * plain array copies, and only the changes are applied to the copies.
+     * <p>
+     * A changed book keeps its position, a new one is added at the end.
+     * Removing books moves the later books up, and only those are indexed
+     * again. Indexes built on first use are built anew by the new library.
+     *
+     * @param upserts books to add, or to replace the book with the same id
+     * @param deletedIds ids of the books to remove
+     * @return the changed library
+     */
+    DefaultLibrary withChanges(List<Book> upserts, long[] deletedIds) {
+        List<Book> next = new ArrayList<>(books.size() + upserts.size());
+        next.addAll(books);
+        LongIndexMap index = idIndex.copy();
+        for (Book book : upserts) {
+            int row = index.get(book.getId());
+            if (row == LongIndexMap.NOT_FOUND) {
+                index.put(book.getId(), next.size());
+                next.add(book);
+            } else {
+                next.set(row, book);
+            }
+        }
+        int firstGap = next.size();
+        for (long id : deletedIds) {
+            int row = index.remove(id);
+            if (row != LongIndexMap.NOT_FOUND) {
+                next.set(row, null);
+                firstGap = Math.min(firstGap, row);
+            }
+        }
+        int kept = firstGap;
+        for (int row = firstGap; row < next.size(); row++) {
+            Book book = next.get(row);
+            if (book == null) {
+                continue;
+            }
+            // the index points at the first book of an id only
+            if (index.get(book.getId()) == row) {
+                index.put(book.getId(), kept);
+            }
+            next.set(kept++, book);
+        }
+        next.subList(kept, next.size()).clear();
+        return new DefaultLibrary(next, index);
     }
 
     /**
@@ -52,7 +129,7 @@ public class DefaultLibrary implements LibraryModel {
      */
     @Override
     public List<Book> booksMatchSearchTerm(String searchTerm) {
-        return books.stream().filter(b -> b.toString().toLowerCase().contains(searchTerm.toLowerCase())).collect(Collectors.toUnmodifiableList());
+        return books.stream().filter(b -> bookMatchesSearchTerm(b, searchTerm)).collect(Collectors.toUnmodifiableList());
     }
 
     /**
@@ -68,21 +145,125 @@ public class DefaultLibrary implements LibraryModel {
      */
     @Override
     public Book getBookById(long id) {
-        var bookOptional = books.stream().filter(b -> b.getId() == id).findFirst();
-
-        return bookOptional.orElse(NULL_OBJECT_BOOK);
+        int index = idIndex.get(id);
 
+        return index == LongIndexMap.NOT_FOUND ? NULL_OBJECT_BOOK : books.get(index);
     }
 
     /**
      * {@inheritDoc}
+     * <p>
+     * A {@link Query} is answered from indexes built on its first use: only
+     * the rows of its most selective indexed term are tested.
      */
     @Override
     public List<Book> booksMatchPredicate(
             Predicate<? super Book> searchPredicate) {
+        QueryIndex.Plan plan = plan(searchPredicate);
+        if (plan != null) {
+            List<Book> result = new ArrayList<>();
+            for (int row : plan.rows) {
+                Book book = books.get(row);
+                if (plan.test(book)) {
+                    result.add(book);
+                }
+            }
+            return Collections.unmodifiableList(result);
+        }
         return books.stream().filter(searchPredicate).collect(Collectors.toUnmodifiableList());
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A {@link Query} only visits the rows of its most selective indexed
+     * term, up to the last book of the page.
+     */
+    @Override
+    public List<Book> booksMatchPredicate(
+            Predicate<? super Book> searchPredicate, int offset, int limit) {
+        QueryIndex.Plan plan = plan(searchPredicate);
+        if (plan == null) {
+            return LibraryModel.super.booksMatchPredicate(searchPredicate, offset, limit);
+        }
+        Page<Book> page = new Page<>(offset, limit);
+        for (int row : plan.rows) {
+            if (page.isFull()) {
+                break;
+            }
+            Book book = books.get(row);
+            if (plan.test(book)) {
+                page.add(book);
+            }
+        }
+        return page.toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A {@link Query} only ranks the rows of its most selective indexed term.
+     */
+    @Override
+    public List<Book> topBooksMatchPredicate(
+            Predicate<? super Book> searchPredicate,
+            Comparator<? super Book> order, int k) {
+        QueryIndex.Plan plan = plan(searchPredicate);
+        if (plan == null) {
+            return LibraryModel.super.topBooksMatchPredicate(searchPredicate, order, k);
+        }
+        TopK<Book> top = new TopK<>(order, k);
+        for (int row : plan.rows) {
+            Book book = books.get(row);
+            if (plan.test(book)) {
+                top.offer(book);
+            }
+        }
+        return top.toList();
+    }
+
+    private QueryIndex.Plan plan(Predicate<? super Book> searchPredicate) {
+        return searchPredicate instanceof Query
+                ? queryIndex().plan((Query) searchPredicate) : null;
+    }
+
+    private QueryIndex queryIndex() {
+        QueryIndex result = queryIndex;
+        if (result == null) {
+            synchronized (this) {
+                result = queryIndex;
+                if (result == null) {
+                    result = queryIndex = QueryIndex.of(books);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The trigram index is built on first use and kept.
+     */
+    @Override
+    public List<TrigramIndex.Match> booksFuzzyMatch(String searchTerm, int k,
+            double minSimilarity) {
+        return trigramIndex().topK(searchTerm, k, minSimilarity);
+    }
+
+    private TrigramIndex trigramIndex() {
+        TrigramIndex result = trigramIndex;
+        if (result == null) {
+            synchronized (this) {
+                result = trigramIndex;
+                if (result == null) {
+                    result = trigramIndex = TrigramIndex.of(books);
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,144 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Inverted index from short character grams to sorted posting lists of
+ * document numbers.
+ *
+ * Every substring of length {@code minGram} up to and including
+ * {@code maxGram} of an added text is a key. The posting list of a key holds
+ * the numbers of all documents that contain the key, in ascending order.
+ * Documents must be added in ascending document number order.
+ */
+final class GramIndex {
+
+    private static final int[] NO_POSTINGS = new int[ 0 ];
+
+    private final int minGram;
+    private final int maxGram;
+    private final Map<String, IntList> building = new HashMap<>();
+    private Map<String, int[]> postings;
+
+    /**
+     * Create an empty index.
+     *
+     * @param minGram shortest gram to index, at least 1
+     * @param maxGram longest gram to index, at least minGram
+     */
+    GramIndex( int minGram, int maxGram ) {
+        if ( minGram < 1 || maxGram < minGram ) {
+            throw new IllegalArgumentException( "illegal gram range ["
+                    + minGram + ", " + maxGram + "]" );
+        }
+        this.minGram = minGram;
+        this.maxGram = maxGram;
+    }
+
+    int minGram() {
+        return minGram;
+    }
+
+    int maxGram() {
+        return maxGram;
+    }
+
+    /**
+     * Add all grams of text to the posting lists of document doc.
+     *
+     * @param doc document number, not smaller than any previously added
+     * @param text to index as is; normalisation is the caller's concern
+     */
+    void add( int doc, String text ) {
+        if ( postings != null ) {
+            throw new IllegalStateException( "index is frozen" );
+        }
+        int length = text.length();
+        for ( int n = minGram; n <= maxGram; n++ ) {
+            for ( int i = 0; i + n <= length; i++ ) {
+                building.computeIfAbsent( text.substring( i, i + n ),
+                        k -> new IntList() ).addIfNotLast( doc );
+            }
+        }
+    }
+
+    /**
+     * Stop adding and compact the posting lists. Lookups are only possible on
+     * a frozen index.
+     *
+     * @return this index
+     */
+    GramIndex freeze() {
+        Map<String, int[]> result = new HashMap<>( building.size() * 4 / 3 + 1 );
+        building.forEach( ( k, v ) -> result.put( k, v.toArray() ) );
+        building.clear();
+        postings = result;
+        return this;
+    }
+
+    /**
+     * Get the posting list of one gram.
+     *
+     * @param gram to look up, length within the indexed gram range
+     * @return the sorted document numbers, empty if the gram does not occur.
+     * The array is shared and must not be modified.
+     */
+    int[] postings( String gram ) {
+        return postings.getOrDefault( gram, NO_POSTINGS );
+    }
+
+    /**
+     * Find the documents that contain all {@code maxGram} long grams of the
+     * term. For terms not longer than maxGram the answer is exact, for longer
+     * terms the result is a superset of the documents containing the term.
+     *
+     * @param term to look up, at least minGram long
+     * @return sorted document numbers
+     */
+    int[] candidates( String term ) {
+        if ( term.length() <= maxGram ) {
+            return postings( term );
+        }
+        int gramCount = term.length() - maxGram + 1;
+        int[][] lists = new int[ gramCount ][];
+        for ( int i = 0; i < gramCount; i++ ) {
+            lists[ i ] = postings( term.substring( i, i + maxGram ) );
+            if ( lists[ i ].length == 0 ) {
+                return NO_POSTINGS;
+            }
+        }
+        // intersect shortest first, keeps the intermediate results small.
+        Arrays.sort( lists, ( a, b ) -> Integer.compare( a.length, b.length ) );
+        int[] result = lists[ 0 ];
+        for ( int i = 1; i < lists.length && result.length > 0; i++ ) {
+            result = intersect( result, lists[ i ] );
+        }
+        return result;
+    }
+
+    /**
+     * Intersect two sorted arrays.
+     *
+     * @param a sorted
+     * @param b sorted
+     * @return sorted elements in both a and b
+     */
+    static int[] intersect( int[] a, int[] b ) {
+        int[] result = new int[ Math.min( a.length, b.length ) ];
+        int i = 0, j = 0, k = 0;
+        while ( i < a.length && j < b.length ) {
+            if ( a[ i ] < b[ j ] ) {
+                i++;
+            } else if ( a[ i ] > b[ j ] ) {
+                j++;
+            } else {
+                result[ k++ ] = a[ i ];
+                i++;
+                j++;
+            }
+        }
+        return k == result.length ? result : Arrays.copyOf( result, k );
+    }
+}
@@ -0,0 +1,181 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non negative long values, such as latencies in nanoseconds or
+ * result sizes, in the manner of an HDR histogram.
+ * <p>
+ * The buckets are log linear: every power of two range is split into
+ * {@link #SUB_BUCKETS} equal buckets, so a value is known to within about
+ * 3%, over the full range of long, in a fixed array of counters. Recording a
+ * value increments one counter and allocates nothing. Histograms of
+ * different threads, libraries or intervals can be merged by adding their
+ * counters.
+ * <p>
+ * Recording is thread safe. Reads and {@link #reset()} do not stop
+ * recording, so a read during recording may miss the latest values.
+ */
+public final class Histogram {
+
+    private static final int SUB_BITS = 5;
+
+    /**
+     * Number of buckets per power of two.
+     */
+    public static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    // values below SUB_BUCKETS, then SUB_BUCKETS per bit above SUB_BITS
+    static final int BUCKETS = ( 64 - SUB_BITS ) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray( BUCKETS );
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Count a value.
+     *
+     * @param value to count, negative values count as 0
+     */
+    public void record( long value ) {
+        long v = Math.max( 0, value );
+        counts.incrementAndGet( bucket( v ) );
+        sum.add( v );
+        if ( v > max.get() ) {
+            max.accumulateAndGet( v, Math::max );
+        }
+    }
+
+    static int bucket( long value ) {
+        int msb = 63 - Long.numberOfLeadingZeros( value );
+        if ( msb < SUB_BITS ) {
+            return (int) value;
+        }
+        int shift = msb - SUB_BITS;
+        return ( shift + 1 ) * SUB_BUCKETS
+                + (int) ( ( value >>> shift ) & ( SUB_BUCKETS - 1 ) );
+    }
+
+    /**
+     * Smallest value of a bucket.
+     */
+    static long lowest( int bucket ) {
+        int group = bucket >>> SUB_BITS;
+        long sub = bucket & ( SUB_BUCKETS - 1 );
+        return group == 0 ? sub : ( SUB_BUCKETS + sub ) << ( group - 1 );
+    }
+
+    /**
+     * Largest value of a bucket.
+     */
+    static long highest( int bucket ) {
+        return bucket + 1 == BUCKETS ? Long.MAX_VALUE : lowest( bucket + 1 ) - 1;
+    }
+
+    /**
+     * Number of values counted.
+     *
+     * @return the count
+     */
+    public long count() {
+        long count = 0;
+        for ( int i = 0; i < BUCKETS; i++ ) {
+            count += counts.get( i );
+        }
+        return count;
+    }
+
+    /**
+     * Largest value counted, exact.
+     *
+     * @return the maximum, 0 when empty
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Average of the values counted, exact.
+     *
+     * @return the mean, 0 when empty
+     */
+    public double mean() {
+        long count = count();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * Value below or at which the given percentage of the values are, as the
+     * highest value of its bucket.
+     *
+     * @param percentile between 0 and 100
+     * @return the value at the percentile, 0 when empty
+     */
+    public long valueAtPercentile( double percentile ) {
+        if ( !( percentile >= 0 && percentile <= 100 ) ) {
+            throw new IllegalArgumentException( "percentile " + percentile );
+        }
+        long[] snapshot = new long[ BUCKETS ];
+        long count = 0;
+        for ( int i = 0; i < BUCKETS; i++ ) {
+            snapshot[ i ] = counts.get( i );
+            count += snapshot[ i ];
+        }
+        long rank = Math.max( 1, (long) Math.ceil( percentile / 100 * count ) );
+        long seen = 0;
+        for ( int i = 0; i < BUCKETS; i++ ) {
+            seen += snapshot[ i ];
+            if ( seen >= rank ) {
+                return Math.min( highest( i ), max() );
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Add the counts of another histogram to this one.
+     *
+     * @param other histogram to add, unchanged
+     * @return this
+     */
+    public Histogram merge( Histogram other ) {
+        for ( int i = 0; i < BUCKETS; i++ ) {
+            long c = other.counts.get( i );
+            if ( c != 0 ) {
+                counts.addAndGet( i, c );
+            }
+        }
+        sum.add( other.sum.sum() );
+        max.accumulateAndGet( other.max(), Math::max );
+        return this;
+    }
+
+    /**
+     * Copy of the current counts, for instance to compare intervals.
+     *
+     * @return a new histogram
+     */
+    public Histogram copy() {
+        return new Histogram().merge( this );
+    }
+
+    /**
+     * Forget all values.
+     */
+    public void reset() {
+        for ( int i = 0; i < BUCKETS; i++ ) {
+            counts.set( i, 0 );
+        }
+        sum.reset();
+        max.set( 0 );
+    }
+
+    @Override
+    public String toString() {
+        return "Histogram{count=" + count() + ", mean=" + mean() + ", p50="
+                + valueAtPercentile( 50 ) + ", p99=" + valueAtPercentile( 99 )
+                + ", max=" + max() + "}";
+    }
+}
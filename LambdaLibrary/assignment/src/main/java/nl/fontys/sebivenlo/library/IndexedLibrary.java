@@ -0,0 +1,208 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Library that answers search term queries from an inverted index instead of
+ * scanning all books.
+ * <p>
+ * When the library is constructed, the lower case field values of every book
+ * (id, title, author, isbn, publisher, language and year) are cut into grams
+ * of one to three characters, each pointing to the books that contain it. A
+ * search term of at most three characters is answered by a single posting
+ * list. A longer term intersects the posting lists of its trigrams and only
+ * the remaining candidates are checked for the complete term.
+ * <p>
+ * The results are exactly those of {@link DefaultLibrary}, which matches
+ * against the lower case {@link Book#toString()}. That text contains fixed
+ * labels, so a term that occurs in a label (such as {@code "t"},
+ * {@code "ti"} or {@code "title"}) matches every book and is answered
+ * without looking at any book. Only terms that cross a label boundary (such
+ * as {@code "=eric"}) are not covered by the index and fall back to the scan
+ * of the default implementation.
+ */
+public class IndexedLibrary extends DefaultLibrary {
+
+    /**
+     * The lower case fixed parts of {@link Book#toString()}, between which
+     * the values of {@link Book#searchableValues()} go. Must be kept in sync
+     * with toString.
+     */
+    private static final String[] LOWER_LABELS = {
+        "book{id=", "\n, title=", "\n, author=", "\n, isbn=", "\n, publisher=",
+        "\n, language=", "\n, ", "\n}"
+    };
+
+    private final List<Book> books;
+    private final GramIndex index;
+
+    /**
+     * Create the library and build the index over the books.
+     *
+     * @param books to add in this constructor.
+     */
+    public IndexedLibrary( List<Book> books ) {
+        super( books );
+        this.books = books;
+        this.index = new GramIndex( 1, 3 );
+        int doc = 0;
+        for ( Book book : books ) {
+            for ( String value : book.searchableValues() ) {
+                index.add( doc, value.toLowerCase() );
+            }
+            doc++;
+        }
+        index.freeze();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Book> booksMatchSearchTerm( String searchTerm ) {
+        String term = searchTerm.toLowerCase();
+        if ( inLabel( term ) ) {
+            return getBooks();
+        }
+        if ( overlapsLabel( term ) ) {
+            return super.booksMatchSearchTerm( searchTerm );
+        }
+        int[] candidates = index.candidates( term );
+        List<Book> result = new ArrayList<>( candidates.length );
+        for ( int doc : candidates ) {
+            Book book = books.get( doc );
+            if ( verified( book, term ) ) {
+                result.add( book );
+            }
+        }
+        return Collections.unmodifiableList( result );
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only candidates from the index are visited, up to the last book of the
+     * page.
+     */
+    @Override
+    public List<Book> booksMatchSearchTerm( String searchTerm, int offset,
+            int limit ) {
+        String term = searchTerm.toLowerCase();
+        if ( overlapsLabel( term ) && !inLabel( term ) ) {
+            return super.booksMatchSearchTerm( searchTerm, offset, limit );
+        }
+        Page<Book> page = new Page<>( offset, limit );
+        if ( inLabel( term ) ) {
+            for ( Book book : books ) {
+                if ( !page.add( book ) ) {
+                    break;
+                }
+            }
+            return page.toList();
+        }
+        for ( int doc : index.candidates( term ) ) {
+            if ( page.isFull() ) {
+                break;
+            }
+            Book book = books.get( doc );
+            if ( verified( book, term ) ) {
+                page.add( book );
+            }
+        }
+        return page.toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only candidates from the index are ranked.
+     */
+    @Override
+    public List<Book> topBooksMatchSearchTerm( String searchTerm,
+            Comparator<? super Book> order, int k ) {
+        String term = searchTerm.toLowerCase();
+        if ( overlapsLabel( term ) && !inLabel( term ) ) {
+            return super.topBooksMatchSearchTerm( searchTerm, order, k );
+        }
+        TopK<Book> top = new TopK<>( order, k );
+        if ( inLabel( term ) ) {
+            books.forEach( top::offer );
+            return top.toList();
+        }
+        for ( int doc : index.candidates( term ) ) {
+            Book book = books.get( doc );
+            if ( verified( book, term ) ) {
+                top.offer( book );
+            }
+        }
+        return top.toList();
+    }
+
+    /**
+     * Check whether a label contains term, so that every book matches. True
+     * for the empty term.
+     *
+     * @param term lower case search term
+     * @return true when term occurs in a fixed label of the toString text
+     */
+    static boolean inLabel( String term ) {
+        for ( String label : LOWER_LABELS ) {
+            if ( label.contains( term ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check a candidate; candidates of terms up to the gram length are
+     * exact.
+     */
+    private boolean verified( Book book, String term ) {
+        return term.length() <= index.maxGram() || valueContains( book, term );
+    }
+
+    /**
+     * Check if any field value of a book contains a term.
+     *
+     * @param book to check
+     * @param term lower case
+     * @return true if one of the lower case values contains term
+     */
+    static boolean valueContains( Book book, String term ) {
+        for ( String value : book.searchableValues() ) {
+            if ( value.toLowerCase().contains( term ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether an occurrence of term in the toString text could touch
+     * one of its fixed labels. That is the case when term contains a label, a
+     * label contains term, or a label ends in a prefix or starts with a suffix
+     * of term. If not, every occurrence lies within a single field value.
+     *
+     * @param term lower case search term
+     * @return true when the index cannot answer this term
+     */
+    static boolean overlapsLabel( String term ) {
+        for ( String label : LOWER_LABELS ) {
+            if ( term.contains( label ) || label.contains( term ) ) {
+                return true;
+            }
+            int max = Math.min( term.length(), label.length() );
+            for ( int n = 1; n <= max; n++ ) {
+                if ( label.regionMatches( label.length() - n, term, 0, n )
+                        || label.regionMatches( 0, term, term.length() - n, n ) ) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,36 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, used to collect row numbers while
+ * building indexes.
+ */
+final class IntList {
+
+    private int[] values = new int[ 4 ];
+    private int size;
+
+    void add( int value ) {
+        if ( size == values.length ) {
+            values = Arrays.copyOf( values, size * 2 );
+        }
+        values[ size++ ] = value;
+    }
+
+    /**
+     * Add a value unless it equals the last one, which keeps a list that is
+     * filled in ascending order free of duplicates.
+     *
+     * @param value to add
+     */
+    void addIfNotLast( int value ) {
+        if ( size == 0 || values[ size - 1 ] != value ) {
+            add( value );
+        }
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf( values, size );
+    }
+}
@@ -0,0 +1,153 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of strings, to share one instance among the many equal
+ * values of a low cardinality column such as a publisher.
+ *
+ * The pool is a direct mapped cache: a value hashes to exactly one slot. When
+ * the slot holds an equal string, that string is returned, otherwise a new
+ * string is created and takes the slot. There are no chains and no locks;
+ * two threads racing for a slot at worst both create a string, so the pool is
+ * safe to share between the workers of a parallel load. As the number of
+ * slots is fixed, a column with more distinct values than slots just gets
+ * fewer hits, never more memory.
+ *
+ * A hit is looked up from the characters of the field itself, so it creates
+ * no string at all. The pool counts its hits and misses, and estimates the
+ * heap bytes the hits saved.
+ */
+public final class InternPool {
+
+    private final AtomicReferenceArray<String> slots;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+
+    /**
+     * Create a pool.
+     *
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    public InternPool( int capacity ) {
+        if ( capacity < 1 || capacity > 1 << 30 ) {
+            throw new IllegalArgumentException( "capacity " + capacity );
+        }
+        int size = Integer.highestOneBit( capacity * 2 - 1 );
+        slots = new AtomicReferenceArray<>( size );
+        mask = size - 1;
+    }
+
+    /**
+     * Get the pooled string equal to a character sequence.
+     *
+     * @param chars content
+     * @return an equal string, shared when pooled
+     */
+    public String intern( CharSequence chars ) {
+        return intern( chars, 0, chars.length() );
+    }
+
+    /**
+     * Get the pooled string equal to part of a character sequence.
+     *
+     * @param chars source
+     * @param start first character, inclusive
+     * @param end last character, exclusive
+     * @return an equal string, shared when pooled
+     */
+    public String intern( CharSequence chars, int start, int end ) {
+        int hash = 0;
+        for ( int i = start; i < end; i++ ) {
+            hash = 31 * hash + chars.charAt( i );
+        }
+        // spread, as String hashes of similar values differ in the low bits
+        int slot = ( hash ^ ( hash >>> 16 ) ) & mask;
+        // strings are immutable, so release/acquire suffices to publish them
+        String pooled = slots.getAcquire( slot );
+        if ( pooled != null && contentEquals( pooled, chars, start, end ) ) {
+            hits.increment();
+            savedBytes.add( footprint( pooled ) );
+            return pooled;
+        }
+        String created = chars.subSequence( start, end ).toString();
+        slots.setRelease( slot, created );
+        misses.increment();
+        return created;
+    }
+
+    private static boolean contentEquals( String s, CharSequence chars,
+            int start, int end ) {
+        int length = end - start;
+        if ( s.length() != length ) {
+            return false;
+        }
+        for ( int i = 0; i < length; i++ ) {
+            if ( s.charAt( i ) != chars.charAt( start + i ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimated heap size of a string with compact strings and compressed
+     * references: a 24 byte String and a byte array of 16 bytes header plus
+     * one byte per Latin-1 or two bytes per other char, padded to 8 bytes.
+     */
+    static long footprint( String s ) {
+        int bytesPerChar = 1;
+        for ( int i = 0; i < s.length(); i++ ) {
+            if ( s.charAt( i ) > 0xff ) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        return 24 + ( ( 16L + (long) bytesPerChar * s.length() + 7 ) & ~7L );
+    }
+
+    /**
+     * Number of lookups that returned a pooled string.
+     *
+     * @return the hit count
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Number of lookups that created a string.
+     *
+     * @return the miss count
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Heap bytes not allocated thanks to hits, an estimate.
+     *
+     * @return the saved bytes
+     */
+    public long savedBytes() {
+        return savedBytes.sum();
+    }
+
+    /**
+     * Number of slots.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    @Override
+    public String toString() {
+        return "InternPool{capacity=" + capacity() + ", hits=" + hits()
+                + ", misses=" + misses() + ", savedBytes=" + savedBytes() + "}";
+    }
+}
@@ -1,5 +1,6 @@
 package nl.fontys.sebivenlo.library;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.function.Predicate;
 
@@ -54,6 +55,94 @@ public interface LibraryModel {
      */
     List<Book> booksMatchPredicate( Predicate<? super Book> searchPredicate );
 
+    /**
+     * Retrieves one page of the books which match the provided string, in
+     * library order.
+     *
+     * The default takes the page from
+     * {@link #booksMatchPredicate(java.util.function.Predicate, int, int)}
+     * with {@link #bookMatchesSearchTerm(Book, String)}.
+     *
+     * @param searchTerm the search phrase
+     * @param offset number of matches to skip
+     * @param limit maximum number of books to return
+     * @return Unmodifiable list of at most limit books
+     * @throws IllegalArgumentException when offset or limit is negative
+     */
+    default List<Book> booksMatchSearchTerm( String searchTerm, int offset,
+            int limit ) {
+        return booksMatchPredicate( b -> bookMatchesSearchTerm( b, searchTerm ),
+                offset, limit );
+    }
+
+    /**
+     * Retrieves one page of the books which match a predicate, in library
+     * order. The search stops as soon as the page is full.
+     *
+     * @param searchPredicate the search predicate
+     * @param offset number of matches to skip
+     * @param limit maximum number of books to return
+     * @return Unmodifiable list of at most limit books
+     * @throws IllegalArgumentException when offset or limit is negative
+     */
+    default List<Book> booksMatchPredicate( Predicate<? super Book> searchPredicate,
+            int offset, int limit ) {
+        Page<Book> page = new Page<>( offset, limit );
+        for ( Book book : getBooks() ) {
+            if ( page.isFull() ) {
+                break;
+            }
+            if ( searchPredicate.test( book ) ) {
+                page.add( book );
+            }
+        }
+        return page.toList();
+    }
+
+    /**
+     * Retrieves the first k books in a sort order among those which match
+     * the provided string, for instance the newest:
+     * <pre>{@code
+     *   lib.topBooksMatchSearchTerm( "java",
+     *           comparing( Book::getYearOfPublication ).reversed(), 10 );
+     * }</pre>
+     *
+     * @param searchTerm the search phrase
+     * @param order sort order, first is best
+     * @param k maximum number of books to return
+     * @return Unmodifiable list of at most k books in sort order. Books that
+     * are equal in the order are in library order.
+     * @throws IllegalArgumentException when k is negative
+     */
+    default List<Book> topBooksMatchSearchTerm( String searchTerm,
+            Comparator<? super Book> order, int k ) {
+        return topBooksMatchPredicate( b -> bookMatchesSearchTerm( b, searchTerm ),
+                order, k );
+    }
+
+    /**
+     * Retrieves the first k books in a sort order among those which match a
+     * predicate. The matches are ranked in a heap of k books, they are never
+     * collected and sorted as a whole.
+     *
+     * @param searchPredicate the search predicate
+     * @param order sort order, first is best
+     * @param k maximum number of books to return
+     * @return Unmodifiable list of at most k books in sort order. Books that
+     * are equal in the order are in library order.
+     * @throws IllegalArgumentException when k is negative
+     */
+    default List<Book> topBooksMatchPredicate( Predicate<? super Book> searchPredicate,
+            Comparator<? super Book> order, int k ) {
+        TopK<Book> top = new TopK<>( order, k );
+        for ( Book book : getBooks() ) {
+            if ( searchPredicate.test( book ) ) {
+                top.offer( book );
+            }
+        }
+        return top.toList();
+    }
+
     /**
      * Retrieve only the book, which matches the supplied id.
      *
@@ -65,4 +154,62 @@ public interface LibraryModel {
      */
     Book getBookById( long id );
 
+    /**
+     * Version of the book list. A library that can reload or change its books
+     * returns a different number after every change, so that derived data
+     * such as cached search results can tell that it is out of date.
+     *
+     * The default is 0, for a library whose books never change.
+     *
+     * @return the version of the current book list
+     */
+    default long version() {
+        return 0L;
+    }
+
+    /**
+     * Decide whether a book matches a search term. This is the test that
+     * {@link #booksMatchSearchTerm(java.lang.String)} applies to each book.
+     *
+     * The default compares against the lower case {@link Book#toString()}.
+     *
+     * @param book to test
+     * @param searchTerm the search phrase
+     * @return true if the book matches the phrase
+     */
+    default boolean bookMatchesSearchTerm( Book book, String searchTerm ) {
+        return book.toString().toLowerCase().contains( searchTerm.toLowerCase() );
+    }
+
+    /**
+     * Start a search session, to serve a sequence of search terms such as
+     * those typed into a search box.
+     *
+     * @return a new session on this library
+     * @see SearchSession
+     */
+    default SearchSession searchSession() {
+        return new SearchSession( this );
+    }
+
+    /**
+     * Retrieves the books whose author or title resembles a search term, to
+     * find books despite typos.
+     *
+     * The default is a brute force scan that computes the similarity of the
+     * author and title of every book on each call, see
+     * {@link TrigramIndex#scan(java.util.List, java.lang.String, int, double)}.
+     * Libraries of any size should keep a {@link TrigramIndex} instead.
+     *
+     * @param searchTerm the search phrase, possibly misspelled
+     * @param k maximum number of books to return
+     * @param minSimilarity trigram similarity between 0 and 1 a book needs
+     * @return the best matches, most similar first
+     * @see TrigramIndex#topK(java.lang.String, int, double)
+     */
+    default List<TrigramIndex.Match> booksFuzzyMatch( String searchTerm, int k,
+            double minSimilarity ) {
+        return TrigramIndex.scan( getBooks(), searchTerm, k, minSimilarity );
+    }
+
 }
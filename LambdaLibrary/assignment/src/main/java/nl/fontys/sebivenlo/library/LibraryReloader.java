@@ -0,0 +1,330 @@
+package nl.fontys.sebivenlo.library;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Library that follows its csv file: when the file is rewritten, the new
+ * contents are compared with the books in memory by id, and only the added,
+ * edited and removed books are applied.
+ * <p>
+ * The changes are applied to a copy of the current {@link DefaultLibrary}
+ * (see {@link DefaultLibrary#withChanges(java.util.List, long[])}), which then
+ * replaces it with a single volatile write. Readers never wait for a reload;
+ * each call sees either the old or the new library, never a mix. Unchanged
+ * books keep their instances and positions, and every reload that changes
+ * something increases the {@link #version()}.
+ * <p>
+ * A reload costs time in the size of the catalog, not of the edit: the whole
+ * file is parsed again, the book list and id index are copied, and the query
+ * and fuzzy search indexes are dropped, to be built again by the first search
+ * that needs them. That suits a catalog that is edited now and then, not a
+ * file that is rewritten many times a second.
+ * <p>
+ * After {@link #start()}, a daemon thread watches the directory of the file.
+ * As an export may write the file in several steps, the reload waits until
+ * the directory has been quiet for a short while. A file that cannot be
+ * parsed is logged and the current library stays.
+ * <p>
+ * Book ids are expected to be unique in the file.
+ */
+public class LibraryReloader implements LibraryModel, Closeable {
+
+    private static final Logger LOG = Logger.getLogger( LibraryReloader.class
+            .getName() );
+
+    /**
+     * Quiet time after the last change of the directory before reloading.
+     */
+    static final long SETTLE_MILLIS = 200;
+
+    private final Path csv;
+    private volatile DefaultLibrary library;
+    private volatile long version;
+    private WatchService watcher;
+
+    /**
+     * Load the file.
+     *
+     * @param csv the library file to follow
+     * @throws IOException when the file cannot be read
+     */
+    public LibraryReloader( Path csv ) throws IOException {
+        this.csv = csv.toAbsolutePath();
+        this.library = new DefaultLibrary( Book.loadFromPath( this.csv,
+                Runtime.getRuntime().availableProcessors() ) );
+    }
+
+    /**
+     * Start watching the file.
+     *
+     * @return this
+     * @throws IOException when the directory cannot be watched
+     */
+    public synchronized LibraryReloader start() throws IOException {
+        if ( watcher == null ) {
+            watcher = FileSystems.getDefault().newWatchService();
+            csv.getParent().register( watcher,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY );
+            Thread thread = new Thread( this::watch, "library-reloader" );
+            thread.setDaemon( true );
+            thread.start();
+        }
+        return this;
+    }
+
+    /**
+     * Stop watching.
+     *
+     * @throws IOException when closing the watch service fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if ( watcher != null ) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    private void watch() {
+        WatchService service = watcher;
+        try {
+            while ( true ) {
+                WatchKey key = service.take();
+                boolean ours = drain( key );
+                // wait for the writer to finish
+                while ( ( key = service.poll( SETTLE_MILLIS,
+                        TimeUnit.MILLISECONDS ) ) != null ) {
+                    ours |= drain( key );
+                }
+                if ( ours ) {
+                    try {
+                        reload();
+                    } catch ( IOException | RuntimeException ex ) {
+                        LOG.log( Level.WARNING, "cannot reload " + csv, ex );
+                    }
+                }
+            }
+        } catch ( InterruptedException | ClosedWatchServiceException ex ) {
+            // closed, stop watching
+        }
+    }
+
+    private boolean drain( WatchKey key ) {
+        boolean ours = false;
+        for ( WatchEvent<?> event : key.pollEvents() ) {
+            ours |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || csv.getFileName().equals( event.context() );
+        }
+        key.reset();
+        return ours;
+    }
+
+    /**
+     * Compare the file with the books in memory and apply the differences.
+     * The file is always read: size and modification time do not tell a
+     * rewrite of the same size within the time stamp granularity, or a copy
+     * that keeps the time stamp, from no change at all.
+     *
+     * @return the changes applied, empty when there were none
+     * @throws IOException when the file cannot be read
+     */
+    public synchronized Changes reload() throws IOException {
+        List<Book> fresh = Book.loadFromPath( csv,
+                Runtime.getRuntime().availableProcessors() );
+        DefaultLibrary current = library;
+        Changes changes = diff( current, fresh );
+        if ( !changes.isEmpty() ) {
+            List<Book> upserts = new ArrayList<>( changes.inserted );
+            upserts.addAll( changes.updated );
+            long[] deletedIds = new long[ changes.deleted.size() ];
+            for ( int i = 0; i < deletedIds.length; i++ ) {
+                deletedIds[ i ] = changes.deleted.get( i ).getId();
+            }
+            library = current.withChanges( upserts, deletedIds );
+            version++;
+            LOG.log( Level.INFO, "reloaded {0}: {1}", new Object[]{ csv, changes } );
+        }
+        return changes;
+    }
+
+    /**
+     * Find the books that were added, edited or removed.
+     *
+     * @param current library in memory
+     * @param fresh books as they are in the file now
+     * @return the differences, each list in the order of its source
+     */
+    static Changes diff( LibraryModel current, List<Book> fresh ) {
+        List<Book> inserted = new ArrayList<>();
+        List<Book> updated = new ArrayList<>();
+        LongIndexMap freshIds = new LongIndexMap( fresh.size() );
+        for ( int i = 0; i < fresh.size(); i++ ) {
+            Book book = fresh.get( i );
+            if ( !freshIds.putIfAbsent( book.getId(), i ) ) {
+                continue;
+            }
+            Book old = current.getBookById( book.getId() );
+            if ( old == DefaultLibrary.NULL_OBJECT_BOOK ) {
+                inserted.add( book );
+            } else if ( !old.sameContent( book ) ) {
+                updated.add( book );
+            }
+        }
+        List<Book> deleted = new ArrayList<>();
+        for ( Book old : current.getBooks() ) {
+            if ( freshIds.get( old.getId() ) == LongIndexMap.NOT_FOUND ) {
+                deleted.add( old );
+            }
+        }
+        return new Changes( inserted, updated, deleted );
+    }
+
+    /**
+     * The library as it is now.
+     *
+     * @return the current library
+     */
+    public DefaultLibrary current() {
+        return library;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Increases with every reload that changed books.
+     */
+    @Override
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public List<Book> getBooks() {
+        return library.getBooks();
+    }
+
+    @Override
+    public List<Book> booksMatchSearchTerm( String searchTerm ) {
+        return library.booksMatchSearchTerm( searchTerm );
+    }
+
+    @Override
+    public List<String> authorsMatchSearchTerm( String searchTerm ) {
+        return library.authorsMatchSearchTerm( searchTerm );
+    }
+
+    @Override
+    public List<Book> booksMatchPredicate( Predicate<? super Book> searchPredicate ) {
+        return library.booksMatchPredicate( searchPredicate );
+    }
+
+    @Override
+    public List<Book> booksMatchSearchTerm( String searchTerm, int offset,
+            int limit ) {
+        return library.booksMatchSearchTerm( searchTerm, offset, limit );
+    }
+
+    @Override
+    public List<Book> booksMatchPredicate( Predicate<? super Book> searchPredicate,
+            int offset, int limit ) {
+        return library.booksMatchPredicate( searchPredicate, offset, limit );
+    }
+
+    @Override
+    public List<Book> topBooksMatchSearchTerm( String searchTerm,
+            Comparator<? super Book> order, int k ) {
+        return library.topBooksMatchSearchTerm( searchTerm, order, k );
+    }
+
+    @Override
+    public List<Book> topBooksMatchPredicate( Predicate<? super Book> searchPredicate,
+            Comparator<? super Book> order, int k ) {
+        return library.topBooksMatchPredicate( searchPredicate, order, k );
+    }
+
+    @Override
+    public List<TrigramIndex.Match> booksFuzzyMatch( String searchTerm, int k,
+            double minSimilarity ) {
+        return library.booksFuzzyMatch( searchTerm, k, minSimilarity );
+    }
+
+    @Override
+    public Book getBookById( long id ) {
+        return library.getBookById( id );
+    }
+
+    @Override
+    public String toString() {
+        return library.toString();
+    }
+
+    /**
+     * The differences found by a reload.
+     */
+    public static final class Changes {
+
+        private final List<Book> inserted;
+        private final List<Book> updated;
+        private final List<Book> deleted;
+
+        Changes( List<Book> inserted, List<Book> updated, List<Book> deleted ) {
+            this.inserted = Collections.unmodifiableList( inserted );
+            this.updated = Collections.unmodifiableList( updated );
+            this.deleted = Collections.unmodifiableList( deleted );
+        }
+
+        /**
+         * Books with an id that was not in the library.
+         *
+         * @return the new books
+         */
+        public List<Book> getInserted() {
+            return inserted;
+        }
+
+        /**
+         * Books with a known id and different content.
+         *
+         * @return the edited books, as they are now
+         */
+        public List<Book> getUpdated() {
+            return updated;
+        }
+
+        /**
+         * Books whose id is no longer in the file.
+         *
+         * @return the removed books, as they were
+         */
+        public List<Book> getDeleted() {
+            return deleted;
+        }
+
+        public boolean isEmpty() {
+            return inserted.isEmpty() && updated.isEmpty() && deleted.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return inserted.size() + " inserted, " + updated.size()
+                    + " updated, " + deleted.size() + " deleted";
+        }
+    }
+}
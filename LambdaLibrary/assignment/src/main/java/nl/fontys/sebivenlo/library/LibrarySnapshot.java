@@ -0,0 +1,330 @@
+package nl.fontys.sebivenlo.library;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Binary cache of a parsed library csv file.
+ *
+ * After a csv file has been parsed, the columns of the resulting
+ * {@link ColumnarLibrary}, including its id index, are written next to it,
+ * in a file named like the csv file with {@code .snapshot} appended. The
+ * snapshot records the size and modification time of the csv file it was
+ * made from. On a later start the snapshot is memory mapped and its columns
+ * are copied out in bulk, which takes a fraction of the time of reading and
+ * tokenizing the text. When the csv file changed, or the snapshot is missing,
+ * of another format version or larger than 2 GB, the csv file is parsed and
+ * a new snapshot written.
+ *
+ * Failing to write a snapshot is logged and otherwise ignored.
+ */
+public final class LibrarySnapshot {
+
+    private static final int MAGIC = 0x4c42534e; // "LBSN"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 * 6;
+
+    private LibrarySnapshot() {
+    }
+
+    /**
+     * Open a library csv file, from its snapshot when that is up to date.
+     *
+     * @param csv the source file
+     * @return the library
+     * @throws IOException when neither the snapshot nor the csv can be read
+     */
+    public static ColumnarLibrary open( Path csv ) throws IOException {
+        long sourceSize = Files.size( csv );
+        long sourceTime = Files.getLastModifiedTime( csv ).toMillis();
+        ColumnarLibrary cached = readIfCurrent( csv, sourceSize, sourceTime );
+        if ( cached != null ) {
+            return cached;
+        }
+        ColumnarLibrary library = ColumnarLibrary.loadFromFile( csv.toString() );
+        store( library, csv, sourceSize, sourceTime );
+        return library;
+    }
+
+    /**
+     * Read the snapshot of a csv file if it is up to date with that file.
+     *
+     * @param csv the source file
+     * @return the library, or null when there is no usable snapshot
+     * @throws IOException when the csv file cannot be inspected
+     */
+    public static ColumnarLibrary readIfCurrent( Path csv ) throws IOException {
+        return readIfCurrent( csv, Files.size( csv ),
+                Files.getLastModifiedTime( csv ).toMillis() );
+    }
+
+    private static ColumnarLibrary readIfCurrent( Path csv, long sourceSize,
+            long sourceTime ) {
+        Path snapshot = snapshotPath( csv );
+        if ( Files.isRegularFile( snapshot ) ) {
+            try {
+                return read( snapshot, sourceSize, sourceTime );
+            } catch ( IOException | RuntimeException ex ) {
+                Logger.getLogger( LibrarySnapshot.class.getName() )
+                        .log( Level.WARNING, "unreadable snapshot " + snapshot, ex );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Write the snapshot of a library parsed by the caller. Size and time
+     * should be taken before parsing started, so that a csv file that changes
+     * while it is read does not get a snapshot that looks current.
+     *
+     * @param library parsed from csv
+     * @param csv the source file
+     * @param sourceSize size of csv before it was parsed
+     * @param sourceTime modification time of csv in milliseconds before it was
+     * parsed
+     */
+    public static void store( ColumnarLibrary library, Path csv, long sourceSize,
+            long sourceTime ) {
+        Path snapshot = snapshotPath( csv );
+        try {
+            write( library, snapshot, sourceSize, sourceTime );
+        } catch ( IOException ex ) {
+            Logger.getLogger( LibrarySnapshot.class.getName() )
+                    .log( Level.WARNING, "cannot write snapshot " + snapshot, ex );
+        }
+    }
+
+    /**
+     * Where the snapshot of a csv file lives.
+     *
+     * @param csv source file
+     * @return the snapshot file path
+     */
+    public static Path snapshotPath( Path csv ) {
+        return csv.resolveSibling( csv.getFileName() + ".snapshot" );
+    }
+
+    /**
+     * Write the columns of a library. Writes to a temporary file first and
+     * then moves it in place, so a reader never sees half a snapshot. The
+     * temporary file is removed when writing or moving fails.
+     *
+     * @param lib to write
+     * @param snapshot target file
+     * @param sourceSize size of the csv file the library was read from
+     * @param sourceTime modification time of that file in milliseconds
+     * @throws IOException when writing fails
+     */
+    static void write( ColumnarLibrary lib, Path snapshot, long sourceSize,
+            long sourceTime ) throws IOException {
+        Path tmp = snapshot.resolveSibling( snapshot.getFileName() + ".tmp" );
+        long[] indexKeys = lib.idIndex.keys();
+        int[] indexValues = lib.idIndex.values();
+        try {
+            writeColumns( lib, tmp, sourceSize, sourceTime, indexKeys,
+                    indexValues );
+            Files.move( tmp, snapshot, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE );
+        } finally {
+            Files.deleteIfExists( tmp );
+        }
+    }
+
+    private static void writeColumns( ColumnarLibrary lib, Path tmp,
+            long sourceSize, long sourceTime, long[] indexKeys,
+            int[] indexValues ) throws IOException {
+        try ( DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream( Files.newOutputStream( tmp ), 1 << 16 ) ) ) {
+            out.writeInt( MAGIC );
+            out.writeInt( VERSION );
+            out.writeLong( sourceSize );
+            out.writeLong( sourceTime );
+            out.writeInt( lib.size );
+            out.writeInt( lib.authorDictionary.length );
+            out.writeInt( lib.publisherDictionary.length );
+            out.writeInt( lib.text.length );
+            out.writeInt( indexKeys.length );
+            out.writeInt( lib.idIndex.size() );
+            for ( long id : lib.ids ) {
+                out.writeLong( id );
+            }
+            for ( long key : indexKeys ) {
+                out.writeLong( key );
+            }
+            for ( short year : lib.years ) {
+                out.writeShort( year );
+            }
+            for ( int[] column : new int[][]{ lib.authors, lib.publishers,
+                lib.textOffsets, indexValues } ) {
+                for ( int value : column ) {
+                    out.writeInt( value );
+                }
+            }
+            out.write( lib.languages );
+            out.write( lib.text );
+            for ( String[] dictionary : new String[][]{ lib.authorDictionary,
+                lib.publisherDictionary } ) {
+                for ( String value : dictionary ) {
+                    byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+                    out.writeInt( bytes.length );
+                    out.write( bytes );
+                }
+            }
+        }
+    }
+
+    /**
+     * Map a snapshot and copy its columns out.
+     *
+     * @return the library, or null when the snapshot does not belong to the
+     * given source or is of another version
+     * @throws IOException when the file cannot be read, its counts do not fit
+     * its length, or its dictionary codes, text offsets or id index are out of
+     * range
+     */
+    static ColumnarLibrary read( Path snapshot, long sourceSize, long sourceTime )
+            throws IOException {
+        MappedByteBuffer buf;
+        try ( FileChannel channel = FileChannel.open( snapshot,
+                StandardOpenOption.READ ) ) {
+            long length = channel.size();
+            if ( length < HEADER_BYTES || length > Integer.MAX_VALUE ) {
+                return null;
+            }
+            buf = channel.map( FileChannel.MapMode.READ_ONLY, 0, length );
+        }
+        if ( buf.getInt() != MAGIC || buf.getInt() != VERSION
+                || buf.getLong() != sourceSize || buf.getLong() != sourceTime ) {
+            return null;
+        }
+        int size = buf.getInt();
+        int authorCount = buf.getInt();
+        int publisherCount = buf.getInt();
+        int textLength = buf.getInt();
+        int indexCapacity = buf.getInt();
+        int indexSize = buf.getInt();
+        // check the counts before allocating, a corrupt header must not
+        // cause an OutOfMemoryError
+        if ( size < 0 || authorCount < 0 || publisherCount < 0
+                || textLength < 0 || indexCapacity < 0 || indexSize < 0
+                || indexSize > indexCapacity ) {
+            throw corrupt( snapshot );
+        }
+        long needed = size * ( Long.BYTES + Short.BYTES + 4L * Integer.BYTES
+                + Byte.BYTES ) + Integer.BYTES
+                + indexCapacity * (long) ( Long.BYTES + Integer.BYTES )
+                + textLength
+                + ( authorCount + (long) publisherCount ) * Integer.BYTES;
+        if ( needed > buf.remaining() ) {
+            throw corrupt( snapshot );
+        }
+        String[] authorDictionary = new String[ authorCount ];
+        String[] publisherDictionary = new String[ publisherCount ];
+        byte[] text = new byte[ textLength ];
+
+        long[] ids = new long[ size ];
+        long[] indexKeys = new long[ indexCapacity ];
+        short[] years = new short[ size ];
+        int[] authors = new int[ size ];
+        int[] publishers = new int[ size ];
+        int[] textOffsets = new int[ 2 * size + 1 ];
+        int[] indexValues = new int[ indexCapacity ];
+        byte[] languages = new byte[ size ];
+
+        readLongs( buf, ids );
+        readLongs( buf, indexKeys );
+        buf.asShortBuffer().get( years );
+        skip( buf, years.length * Short.BYTES );
+        for ( int[] column : new int[][]{ authors, publishers, textOffsets,
+            indexValues } ) {
+            buf.asIntBuffer().get( column );
+            skip( buf, column.length * Integer.BYTES );
+        }
+        buf.get( languages );
+        buf.get( text );
+        for ( String[] dictionary : new String[][]{ authorDictionary,
+            publisherDictionary } ) {
+            for ( int i = 0; i < dictionary.length; i++ ) {
+                int length = buf.getInt();
+                if ( length < 0 || length > buf.remaining() ) {
+                    throw corrupt( snapshot );
+                }
+                byte[] bytes = new byte[ length ];
+                buf.get( bytes );
+                dictionary[ i ] = new String( bytes, StandardCharsets.UTF_8 );
+            }
+        }
+        checkCodes( snapshot, authors, authorCount );
+        checkCodes( snapshot, publishers, publisherCount );
+        for ( byte language : languages ) {
+            if ( language < 0 || language >= Book.Language.values().length ) {
+                throw corrupt( snapshot );
+            }
+        }
+        if ( textOffsets[ 0 ] != 0 ) {
+            throw corrupt( snapshot );
+        }
+        for ( int i = 1; i < textOffsets.length; i++ ) {
+            if ( textOffsets[ i ] < textOffsets[ i - 1 ]
+                    || textOffsets[ i ] > textLength ) {
+                throw corrupt( snapshot );
+            }
+        }
+        // a full table would make lookups of absent ids loop forever
+        if ( Integer.bitCount( indexCapacity ) != 1 || indexSize >= indexCapacity ) {
+            throw corrupt( snapshot );
+        }
+        int entries = 0;
+        for ( int value : indexValues ) {
+            if ( value < LongIndexMap.NOT_FOUND || value >= size ) {
+                throw corrupt( snapshot );
+            }
+            if ( value != LongIndexMap.NOT_FOUND ) {
+                entries++;
+            }
+        }
+        if ( entries != indexSize ) {
+            throw corrupt( snapshot );
+        }
+        return new ColumnarLibrary( ids, years, languages, authors,
+                authorDictionary, publishers, publisherDictionary, textOffsets,
+                text, new LongIndexMap( indexKeys, indexValues, indexSize ) );
+    }
+
+    /**
+     * Check that every dictionary code of a column is below the dictionary
+     * size.
+     */
+    private static void checkCodes( Path snapshot, int[] codes, int dictionarySize )
+            throws IOException {
+        for ( int code : codes ) {
+            if ( code < 0 || code >= dictionarySize ) {
+                throw corrupt( snapshot );
+            }
+        }
+    }
+
+    private static IOException corrupt( Path snapshot ) {
+        return new IOException( "corrupt snapshot " + snapshot );
+    }
+
+    private static void readLongs( ByteBuffer buf, long[] target ) {
+        buf.asLongBuffer().get( target );
+        skip( buf, target.length * Long.BYTES );
+    }
+
+    private static void skip( ByteBuffer buf, int bytes ) {
+        buf.position( buf.position() + bytes );
+    }
+}
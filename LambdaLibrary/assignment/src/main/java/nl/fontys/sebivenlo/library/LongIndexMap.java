@@ -0,0 +1,223 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from primitive long keys to non negative int
+ * values, typically positions in a list. No boxing, no entry objects.
+ *
+ * Keys and values live in two parallel arrays whose capacity is a power of
+ * two, kept at most half full, and collisions are resolved by linear probing.
+ * A slot is free when its value is {@code -1}, so every long is a valid key.
+ * With n entries the map takes about 12 bytes per slot, or 24 to 48 bytes
+ * per entry. A {@code HashMap<Long,Book>} needs a 32 byte node and a 16 byte
+ * Long per entry plus 4 to 8 bytes of table per slot, 53 to 59 bytes per
+ * entry with compressed references, and gives the garbage collector two
+ * objects per book to trace.
+ *
+ * Not thread safe for writes; concurrent reads of a map that is no longer
+ * modified are fine.
+ */
+final class LongIndexMap {
+
+    /**
+     * Value returned for absent keys.
+     */
+    static final int NOT_FOUND = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * Create a map that can take expectedSize entries without growing.
+     *
+     * @param expectedSize number of entries expected
+     */
+    LongIndexMap( int expectedSize ) {
+        int capacity = Integer.highestOneBit( Math.max( 4, expectedSize ) * 2 - 1 ) << 1;
+        allocate( capacity );
+    }
+
+    /**
+     * Recreate a map from the arrays of another one, see {@link #keys()} and
+     * {@link #values()}. The arrays are used, not copied.
+     *
+     * @param keys key table
+     * @param values value table of the same power of two length
+     * @param size number of entries
+     */
+    LongIndexMap( long[] keys, int[] values, int size ) {
+        if ( keys.length != values.length || Integer.bitCount( keys.length ) != 1 ) {
+            throw new IllegalArgumentException( "tables of length "
+                    + keys.length + " and " + values.length );
+        }
+        this.keys = keys;
+        this.values = values;
+        this.size = size;
+        this.mask = keys.length - 1;
+    }
+
+    private void allocate( int capacity ) {
+        keys = new long[ capacity ];
+        values = new int[ capacity ];
+        Arrays.fill( values, NOT_FOUND );
+        mask = capacity - 1;
+    }
+
+    /**
+     * Look up a key.
+     *
+     * @param key to find
+     * @return the value, or {@link #NOT_FOUND}
+     */
+    int get( long key ) {
+        for ( int slot = slot( key );; slot = ( slot + 1 ) & mask ) {
+            int value = values[ slot ];
+            if ( value == NOT_FOUND || keys[ slot ] == key ) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Add a key unless it is already present.
+     *
+     * @param key to add
+     * @param value non negative value
+     * @return true if added, false if the key was present, which leaves the
+     * old value in place
+     */
+    boolean putIfAbsent( long key, int value ) {
+        return put( key, value, false );
+    }
+
+    /**
+     * Add or replace a key.
+     *
+     * @param key to add
+     * @param value non negative value
+     */
+    void put( long key, int value ) {
+        put( key, value, true );
+    }
+
+    private boolean put( long key, int value, boolean replace ) {
+        if ( value < 0 ) {
+            throw new IllegalArgumentException( "negative value " + value );
+        }
+        if ( 2 * ( size + 1 ) > keys.length ) {
+            grow();
+        }
+        int slot = slot( key );
+        while ( values[ slot ] != NOT_FOUND ) {
+            if ( keys[ slot ] == key ) {
+                if ( replace ) {
+                    values[ slot ] = value;
+                }
+                return false;
+            }
+            slot = ( slot + 1 ) & mask;
+        }
+        keys[ slot ] = key;
+        values[ slot ] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Remove a key. Shifts back later entries of the probe sequence, so no
+     * tombstones are needed.
+     *
+     * @param key to remove
+     * @return the removed value or {@link #NOT_FOUND}
+     */
+    int remove( long key ) {
+        int slot = slot( key );
+        while ( values[ slot ] != NOT_FOUND && keys[ slot ] != key ) {
+            slot = ( slot + 1 ) & mask;
+        }
+        int removed = values[ slot ];
+        if ( removed == NOT_FOUND ) {
+            return NOT_FOUND;
+        }
+        size--;
+        int gap = slot;
+        for ( int next = ( gap + 1 ) & mask; values[ next ] != NOT_FOUND;
+                next = ( next + 1 ) & mask ) {
+            int home = slot( keys[ next ] );
+            // move next into the gap if its home is not in (gap, next]
+            if ( ( ( next - home ) & mask ) >= ( ( next - gap ) & mask ) ) {
+                keys[ gap ] = keys[ next ];
+                values[ gap ] = values[ next ];
+                gap = next;
+            }
+        }
+        values[ gap ] = NOT_FOUND;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Independent copy, at the cost of two array copies.
+     *
+     * @return a map with the same entries
+     */
+    LongIndexMap copy() {
+        return new LongIndexMap( keys.clone(), values.clone(), size );
+    }
+
+    /**
+     * The key table, for storing the map. Not a copy.
+     *
+     * @return the keys by slot
+     */
+    long[] keys() {
+        return keys;
+    }
+
+    /**
+     * The value table, for storing the map. Not a copy.
+     *
+     * @return the values by slot, {@link #NOT_FOUND} in free slots
+     */
+    int[] values() {
+        return values;
+    }
+
+    /**
+     * Bytes taken by the arrays of this map, excluding object headers.
+     *
+     * @return the footprint estimate
+     */
+    long footprint() {
+        return (long) keys.length * ( Long.BYTES + Integer.BYTES );
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate( oldKeys.length * 2 );
+        size = 0;
+        for ( int i = 0; i < oldKeys.length; i++ ) {
+            if ( oldValues[ i ] != NOT_FOUND ) {
+                put( oldKeys[ i ], oldValues[ i ] );
+            }
+        }
+    }
+
+    private int slot( long key ) {
+        // murmur3 finalizer, spreads sequential ids over the table
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+}
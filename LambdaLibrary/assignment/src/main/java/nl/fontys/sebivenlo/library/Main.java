@@ -1,12 +1,13 @@
 package nl.fontys.sebivenlo.library;
 
-import java.net.URISyntaxException;
+import java.io.IOException;
+import java.nio.file.Paths;
 
 public class Main {
 
-    public static void main(String[] args) throws URISyntaxException {
+    public static void main(String[] args) throws IOException {
 
-        DefaultLibrary lib = new DefaultLibrary(Book.loadFromFile("library.csv"));
+        LibraryModel lib = LibrarySnapshot.open(Paths.get("library.csv"));
 
         lib.booksMatchSearchTerm("martin").forEach(System.out::println);
     }
@@ -0,0 +1,105 @@
+package nl.fontys.sebivenlo.library;
+
+/**
+ * Call count, latency and result size distribution of one operation of a
+ * {@link TimedLibrary}.
+ */
+public final class OperationStats implements OperationStatsMBean {
+
+    private final String operation;
+    private final Histogram latencies = new Histogram();
+    private final Histogram resultSizes = new Histogram();
+
+    OperationStats( String operation ) {
+        this.operation = operation;
+    }
+
+    void record( long nanos, int resultSize ) {
+        latencies.record( nanos );
+        resultSizes.record( resultSize );
+    }
+
+    /**
+     * Name of the operation, the name of the library method.
+     *
+     * @return the name
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * The latencies, in nanoseconds.
+     *
+     * @return the live histogram
+     */
+    public Histogram latencies() {
+        return latencies;
+    }
+
+    /**
+     * The numbers of books returned.
+     *
+     * @return the live histogram
+     */
+    public Histogram resultSizes() {
+        return resultSizes;
+    }
+
+    @Override
+    public long getCount() {
+        return latencies.count();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latencies.mean() / 1e3;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latencies.valueAtPercentile( 50 ) / 1e3;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return latencies.valueAtPercentile( 90 ) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latencies.valueAtPercentile( 99 ) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latencies.max() / 1e3;
+    }
+
+    @Override
+    public double getMeanResultSize() {
+        return resultSizes.mean();
+    }
+
+    @Override
+    public long getP99ResultSize() {
+        return resultSizes.valueAtPercentile( 99 );
+    }
+
+    @Override
+    public long getMaxResultSize() {
+        return resultSizes.max();
+    }
+
+    @Override
+    public void reset() {
+        latencies.reset();
+        resultSizes.reset();
+    }
+
+    @Override
+    public String toString() {
+        return operation + "{latencies=" + latencies + ", resultSizes="
+                + resultSizes + "}";
+    }
+}
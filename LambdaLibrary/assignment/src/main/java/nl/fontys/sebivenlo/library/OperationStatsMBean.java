@@ -0,0 +1,31 @@
+package nl.fontys.sebivenlo.library;
+
+/**
+ * Management interface of the statistics of one timed library operation.
+ * Latencies are in microseconds.
+ */
+public interface OperationStatsMBean {
+
+    long getCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getMaxMicros();
+
+    double getMeanResultSize();
+
+    long getP99ResultSize();
+
+    long getMaxResultSize();
+
+    /**
+     * Forget the values recorded so far.
+     */
+    void reset();
+}
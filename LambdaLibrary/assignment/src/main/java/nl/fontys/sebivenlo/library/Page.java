@@ -0,0 +1,65 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects one page of matches, found in library order: skips the first
+ * offset matches and keeps the next limit ones. Searches stop as soon as
+ * {@link #add(java.lang.Object)} says the page is full.
+ */
+final class Page<T> {
+
+    private final int limit;
+    private int toSkip;
+    private final List<T> items;
+
+    /**
+     * Start an empty page.
+     *
+     * @param offset number of matches to skip, not negative
+     * @param limit maximum page size, not negative
+     */
+    Page( int offset, int limit ) {
+        check( offset, limit );
+        this.toSkip = offset;
+        this.limit = limit;
+        this.items = new ArrayList<>( Math.min( limit, 64 ) );
+    }
+
+    static void check( int offset, int limit ) {
+        if ( offset < 0 || limit < 0 ) {
+            throw new IllegalArgumentException( "offset " + offset + ", limit "
+                    + limit );
+        }
+    }
+
+    /**
+     * Whether the page takes no more items.
+     *
+     * @return true when full
+     */
+    boolean isFull() {
+        return items.size() >= limit;
+    }
+
+    /**
+     * Offer the next match.
+     *
+     * @param match next one in library order
+     * @return true when more matches are wanted
+     */
+    boolean add( T match ) {
+        if ( toSkip > 0 ) {
+            toSkip--;
+        } else if ( !isFull() ) {
+            items.add( match );
+        }
+        return !isFull();
+    }
+
+    List<T> toList() {
+        return Collections.unmodifiableList( items );
+    }
+}
@@ -0,0 +1,292 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Book predicate that a library can look into, to answer it from indexes
+ * instead of testing every book.
+ *
+ * A query is a conjunction of terms, built from the static factories and
+ * {@link #and(java.util.function.Predicate)}:
+ * <pre>{@code
+ *   Query q = language( DUTCH ).and( yearBetween( 1990, 2000 ) )
+ *           .and( authorEquals( "Robert C. Martin" ) );
+ *   library.booksMatchPredicate( q );
+ * }</pre>
+ * Equality on language, author and publisher and year ranges can be answered
+ * from an index. Any other predicate can be added with
+ * {@link #matching(java.util.function.Predicate)} or {@code and}; it is only
+ * tested on the books the indexed terms leave. A library that does not know
+ * about queries simply tests them like any other predicate.
+ */
+public final class Query implements Predicate<Book> {
+
+    private final List<Term> terms;
+
+    private Query( List<Term> terms ) {
+        this.terms = Collections.unmodifiableList( terms );
+    }
+
+    private static Query of( Term term ) {
+        return new Query( List.of( term ) );
+    }
+
+    /**
+     * Books in a language.
+     *
+     * @param language to match
+     * @return the query
+     */
+    public static Query language( Book.Language language ) {
+        return of( new LanguageTerm( language ) );
+    }
+
+    /**
+     * Books by exactly this author, case sensitive.
+     *
+     * @param author to match
+     * @return the query
+     */
+    public static Query authorEquals( String author ) {
+        return of( new AuthorTerm( author ) );
+    }
+
+    /**
+     * Books of exactly this publisher, case sensitive.
+     *
+     * @param publisher to match
+     * @return the query
+     */
+    public static Query publisherEquals( String publisher ) {
+        return of( new PublisherTerm( publisher ) );
+    }
+
+    /**
+     * Books published in a range of years.
+     *
+     * @param from first year, inclusive
+     * @param to last year, inclusive
+     * @return the query
+     */
+    public static Query yearBetween( int from, int to ) {
+        return of( new YearTerm( from, to ) );
+    }
+
+    /**
+     * Any predicate, to be combined with indexed terms.
+     *
+     * @param predicate opaque test
+     * @return the query
+     */
+    public static Query matching( Predicate<? super Book> predicate ) {
+        return of( new OpaqueTerm( predicate ) );
+    }
+
+    /**
+     * Conjunction with another predicate. The terms of another query are
+     * merged into this one, other predicates become an opaque term.
+     *
+     * @param other predicate
+     * @return the combined query
+     */
+    @Override
+    public Query and( Predicate<? super Book> other ) {
+        List<Term> combined = new ArrayList<>( terms );
+        if ( other instanceof Query ) {
+            combined.addAll( ( (Query) other ).terms );
+        } else {
+            combined.add( new OpaqueTerm( other ) );
+        }
+        return new Query( combined );
+    }
+
+    @Override
+    public boolean test( Book book ) {
+        for ( Term term : terms ) {
+            if ( !term.test( book ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    List<Term> terms() {
+        return terms;
+    }
+
+    @Override
+    public String toString() {
+        return terms.stream().map( Object::toString )
+                .collect( Collectors.joining( " and " ) );
+    }
+
+    /**
+     * Part of a query.
+     */
+    abstract static class Term implements Predicate<Book> {
+    }
+
+    /**
+     * Term that an index can answer. It can tell how many rows the index
+     * would produce and produce them.
+     */
+    abstract static class IndexedTerm extends Term {
+
+        /**
+         * Number of rows the index has for this term.
+         *
+         * @return the count
+         */
+        abstract int estimate( QueryIndex index );
+
+        /**
+         * The rows of the index that satisfy this term, ascending.
+         *
+         * @return the rows
+         */
+        abstract int[] rows( QueryIndex index );
+    }
+
+    private static final class LanguageTerm extends IndexedTerm {
+
+        final Book.Language language;
+
+        LanguageTerm( Book.Language language ) {
+            this.language = Objects.requireNonNull( language );
+        }
+
+        @Override
+        public boolean test( Book b ) {
+            return b.getLanguage() == language;
+        }
+
+        @Override
+        int estimate( QueryIndex index ) {
+            return index.language( language ).length;
+        }
+
+        @Override
+        int[] rows( QueryIndex index ) {
+            return index.language( language );
+        }
+
+        @Override
+        public String toString() {
+            return "language == " + language;
+        }
+    }
+
+    private static final class AuthorTerm extends IndexedTerm {
+
+        final String author;
+
+        AuthorTerm( String author ) {
+            this.author = author;
+        }
+
+        @Override
+        public boolean test( Book b ) {
+            return Objects.equals( b.getAuthor(), author );
+        }
+
+        @Override
+        int estimate( QueryIndex index ) {
+            return index.author( author ).length;
+        }
+
+        @Override
+        int[] rows( QueryIndex index ) {
+            return index.author( author );
+        }
+
+        @Override
+        public String toString() {
+            return "author == '" + author + "'";
+        }
+    }
+
+    private static final class PublisherTerm extends IndexedTerm {
+
+        final String publisher;
+
+        PublisherTerm( String publisher ) {
+            this.publisher = publisher;
+        }
+
+        @Override
+        public boolean test( Book b ) {
+            return Objects.equals( b.getPublisher(), publisher );
+        }
+
+        @Override
+        int estimate( QueryIndex index ) {
+            return index.publisher( publisher ).length;
+        }
+
+        @Override
+        int[] rows( QueryIndex index ) {
+            return index.publisher( publisher );
+        }
+
+        @Override
+        public String toString() {
+            return "publisher == '" + publisher + "'";
+        }
+    }
+
+    private static final class YearTerm extends IndexedTerm {
+
+        final int from;
+        final int to;
+
+        YearTerm( int from, int to ) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean test( Book b ) {
+            int year = b.getYearOfPublication();
+            return from <= year && year <= to;
+        }
+
+        @Override
+        int estimate( QueryIndex index ) {
+            return index.yearCount( from, to );
+        }
+
+        @Override
+        int[] rows( QueryIndex index ) {
+            return index.years( from, to );
+        }
+
+        @Override
+        public String toString() {
+            return "year in [" + from + ", " + to + "]";
+        }
+    }
+
+    private static final class OpaqueTerm extends Term {
+
+        final Predicate<? super Book> predicate;
+
+        OpaqueTerm( Predicate<? super Book> predicate ) {
+            this.predicate = Objects.requireNonNull( predicate );
+        }
+
+        @Override
+        public boolean test( Book b ) {
+            return predicate.test( b );
+        }
+
+        @Override
+        public String toString() {
+            return "predicate";
+        }
+    }
+}
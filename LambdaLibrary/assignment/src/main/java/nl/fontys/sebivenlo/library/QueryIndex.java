@@ -0,0 +1,187 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+
+/**
+ * Indexes for the indexable terms of a {@link Query}, over the rows (list
+ * positions) of a library.
+ *
+ * Language, author and publisher map each value to the ascending rows that
+ * have it. Years are kept as all rows sorted by year, next to the sorted
+ * years themselves, so a year range is found by two binary searches.
+ */
+final class QueryIndex {
+
+    private static final int[] NO_ROWS = new int[ 0 ];
+
+    private final int size;
+    private final Map<Book.Language, int[]> byLanguage
+            = new EnumMap<>( Book.Language.class );
+    private final Map<String, int[]> byAuthor;
+    private final Map<String, int[]> byPublisher;
+    private final int[] rowsByYear;
+    private final int[] sortedYears;
+
+    /**
+     * Build the indexes from row accessors.
+     *
+     * @param size number of rows
+     * @param language of a row
+     * @param author of a row
+     * @param publisher of a row
+     * @param year of a row
+     */
+    QueryIndex( int size, IntFunction<Book.Language> language,
+            IntFunction<String> author, IntFunction<String> publisher,
+            IntUnaryOperator year ) {
+        this.size = size;
+        Map<Book.Language, IntList> languages = new EnumMap<>( Book.Language.class );
+        Map<String, IntList> authors = new HashMap<>();
+        Map<String, IntList> publishers = new HashMap<>();
+        long[] yearAndRow = new long[ size ];
+        for ( int r = 0; r < size; r++ ) {
+            languages.computeIfAbsent( language.apply( r ), k -> new IntList() )
+                    .add( r );
+            authors.computeIfAbsent( author.apply( r ), k -> new IntList() ).add( r );
+            publishers.computeIfAbsent( publisher.apply( r ), k -> new IntList() )
+                    .add( r );
+            // sorting year in the high and row in the low half keeps ties in row order
+            yearAndRow[ r ] = ( (long) year.applyAsInt( r ) << 32 ) | r;
+        }
+        languages.forEach( ( k, v ) -> byLanguage.put( k, v.toArray() ) );
+        byAuthor = freeze( authors );
+        byPublisher = freeze( publishers );
+        Arrays.sort( yearAndRow );
+        rowsByYear = new int[ size ];
+        sortedYears = new int[ size ];
+        for ( int i = 0; i < size; i++ ) {
+            rowsByYear[ i ] = (int) yearAndRow[ i ];
+            sortedYears[ i ] = (int) ( yearAndRow[ i ] >> 32 );
+        }
+    }
+
+    /**
+     * Index the books of a list.
+     *
+     * @param books to index
+     * @return the index
+     */
+    static QueryIndex of( List<Book> books ) {
+        return new QueryIndex( books.size(), r -> books.get( r ).getLanguage(),
+                r -> books.get( r ).getAuthor(), r -> books.get( r ).getPublisher(),
+                r -> books.get( r ).getYearOfPublication() );
+    }
+
+    int size() {
+        return size;
+    }
+
+    int[] language( Book.Language language ) {
+        return byLanguage.getOrDefault( language, NO_ROWS );
+    }
+
+    int[] author( String author ) {
+        return byAuthor.getOrDefault( author, NO_ROWS );
+    }
+
+    int[] publisher( String publisher ) {
+        return byPublisher.getOrDefault( publisher, NO_ROWS );
+    }
+
+    int yearCount( int from, int to ) {
+        return Math.max( 0, lowerBound( to + 1L ) - lowerBound( from ) );
+    }
+
+    int[] years( int from, int to ) {
+        int lo = lowerBound( from );
+        int hi = Math.max( lo, lowerBound( to + 1L ) );
+        int[] result = Arrays.copyOfRange( rowsByYear, lo, hi );
+        Arrays.sort( result );
+        return result;
+    }
+
+    /**
+     * First position in sortedYears with a year not smaller than year.
+     */
+    private int lowerBound( long year ) {
+        int lo = 0;
+        int hi = size;
+        while ( lo < hi ) {
+            int mid = ( lo + hi ) >>> 1;
+            if ( sortedYears[ mid ] < year ) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Choose how to evaluate a query: the indexable term with the fewest rows
+     * drives, all other terms are tested on its rows.
+     *
+     * @param query to plan
+     * @return the plan, or null when no term can use the index and the query
+     * must be evaluated by a scan
+     */
+    Plan plan( Query query ) {
+        List<Query.Term> terms = query.terms();
+        int best = -1;
+        int bestEstimate = Integer.MAX_VALUE;
+        for ( int i = 0; i < terms.size(); i++ ) {
+            if ( !( terms.get( i ) instanceof Query.IndexedTerm ) ) {
+                continue;
+            }
+            int estimate = ( (Query.IndexedTerm) terms.get( i ) ).estimate( this );
+            if ( best < 0 || estimate < bestEstimate ) {
+                best = i;
+                bestEstimate = estimate;
+            }
+        }
+        if ( best < 0 ) {
+            return null;
+        }
+        List<Query.Term> residual = new ArrayList<>( terms );
+        Query.IndexedTerm driver = (Query.IndexedTerm) residual.remove( best );
+        return new Plan( driver.rows( this ), residual );
+    }
+
+    private static Map<String, int[]> freeze( Map<String, IntList> lists ) {
+        Map<String, int[]> result = new HashMap<>( lists.size() * 4 / 3 + 1 );
+        lists.forEach( ( k, v ) -> result.put( k, v.toArray() ) );
+        return result;
+    }
+
+    /**
+     * Candidate rows in ascending order and the terms still to test on them.
+     */
+    static final class Plan implements Predicate<Book> {
+
+        final int[] rows;
+        private final List<Query.Term> residual;
+
+        Plan( int[] rows, List<Query.Term> residual ) {
+            this.rows = rows;
+            this.residual = residual;
+        }
+
+        @Override
+        public boolean test( Book book ) {
+            for ( Query.Term term : residual ) {
+                if ( !term.test( book ) ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
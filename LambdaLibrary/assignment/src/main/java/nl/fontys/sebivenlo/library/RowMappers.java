@@ -0,0 +1,351 @@
+package nl.fontys.sebivenlo.library;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Row mappers made from a constructor, to use with
+ * {@link CSVObjectStream#streamRows(Function, java.util.function.Predicate)}
+ * instead of a hand written method like {@link Book#fromRow(CSVRow)}.
+ * <p>
+ * The constructor parameters are filled from the columns of a row, each
+ * with the {@link CSVRow} getter for its type: {@code long} and
+ * {@code Long} with {@link CSVRow#getLong(int)}, {@code int} and
+ * {@code Integer} with {@link CSVRow#getInt(int)}, enums with
+ * {@link CSVRow#getEnum(int, Class)} and {@code String} with
+ * {@link CSVRow#getString(int)}. Numbers and enums are thus parsed from the
+ * line without a String per field.
+ * <p>
+ * The first request for a mapper composes the getters and the constructor
+ * into a single method handle, and defines a small class for it that keeps
+ * the handle in a {@code static final} field and calls it from its
+ * {@code apply}. The JIT treats such a field as a constant and inlines the
+ * handle, getters and constructor into the caller, like a hand written
+ * mapper; the rowMapper and fromRow benchmarks of LoadBenchmark compare the
+ * two. Mappers are cached per class and column spec in a
+ * {@link ClassValue}. A mapper class lives as long as the class loader of
+ * RowMappers, and keeps the class it creates reachable.
+ *
+ * <pre>{@code
+ *   Function<CSVRow, Book> mapper = RowMappers.of( Book.class, long.class,
+ *           String.class, String.class, String.class, String.class,
+ *           Book.Language.class, int.class );
+ * }</pre>
+ */
+public final class RowMappers {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodHandle UNCHECK;
+    private static final AtomicInteger MAPPER_CLASSES = new AtomicInteger();
+    private static final Map<Class<?>, MethodHandle> PENDING
+            = new ConcurrentHashMap<>();
+    private static final ClassValue<Map<List<Object>, Function<CSVRow, ?>>> CACHE
+            = new ClassValue<>() {
+        @Override
+        protected Map<List<Object>, Function<CSVRow, ?>> computeValue(
+                Class<?> type ) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    static {
+        try {
+            UNCHECK = LOOKUP.findStatic( RowMappers.class, "uncheck", MethodType
+                    .methodType( Object.class, Throwable.class, CSVRow.class ) );
+        } catch ( NoSuchMethodException | IllegalAccessException ex ) {
+            throw new ExceptionInInitializerError( ex );
+        }
+    }
+
+    private RowMappers() {
+    }
+
+    /**
+     * Mapper that passes the first columns of a row to a constructor.
+     *
+     * @param <T> type to create
+     * @param type class with a public constructor taking the column types
+     * @param columnTypes parameter types of the constructor, one per column
+     * @return the mapper
+     * @throws IllegalArgumentException when there is no such constructor or
+     * a type has no getter
+     */
+    public static <T> Function<CSVRow, T> of( Class<T> type,
+            Class<?>... columnTypes ) {
+        int[] columns = new int[ columnTypes.length ];
+        for ( int i = 0; i < columns.length; i++ ) {
+            columns[ i ] = i;
+        }
+        return of( type, columns, columnTypes );
+    }
+
+    /**
+     * Mapper that passes chosen columns of a row to a constructor.
+     *
+     * @param <T> type to create
+     * @param type class with a public constructor taking the column types
+     * @param columns field index per constructor parameter
+     * @param columnTypes parameter types of the constructor
+     * @return the mapper
+     * @throws IllegalArgumentException when there is no such constructor, a
+     * type has no getter, or the numbers of columns and types differ
+     */
+    @SuppressWarnings( "unchecked" )
+    public static <T> Function<CSVRow, T> of( Class<T> type, int[] columns,
+            Class<?>... columnTypes ) {
+        if ( columns.length != columnTypes.length ) {
+            throw new IllegalArgumentException( columns.length + " columns for "
+                    + columnTypes.length + " types" );
+        }
+        List<Object> key = new ArrayList<>( 2 * columns.length );
+        for ( int i = 0; i < columns.length; i++ ) {
+            key.add( columns[ i ] );
+            key.add( columnTypes[ i ] );
+        }
+        return (Function<CSVRow, T>) CACHE.get( type ).computeIfAbsent( key,
+                k -> spin( compose( type, columns, columnTypes ) ) );
+    }
+
+    /**
+     * Build {@code row -> new T( get( row, c0 ), get( row, c1 ), ... )}.
+     */
+    private static MethodHandle compose( Class<?> type, int[] columns,
+            Class<?>[] columnTypes ) {
+        MethodHandle constructor;
+        try {
+            constructor = LOOKUP.findConstructor( type, MethodType.methodType(
+                    void.class, columnTypes ) );
+        } catch ( NoSuchMethodException | IllegalAccessException ex ) {
+            throw new IllegalArgumentException( "no public constructor "
+                    + MethodType.methodType( void.class, columnTypes )
+                    + " in " + type.getName(), ex );
+        }
+        MethodHandle[] getters = new MethodHandle[ columns.length ];
+        for ( int i = 0; i < columns.length; i++ ) {
+            getters[ i ] = getter( columns[ i ], columnTypes[ i ] );
+        }
+        // one row argument per parameter, then all taken from the same row
+        MethodHandle spread = MethodHandles.filterArguments( constructor, 0,
+                getters );
+        MethodHandle mapper = MethodHandles.permuteArguments( spread,
+                MethodType.methodType( type, CSVRow.class ),
+                new int[ columns.length ] ).asType( MethodType.methodType(
+                        Object.class, CSVRow.class ) );
+        if ( throwsChecked( type, columnTypes ) ) {
+            mapper = MethodHandles.catchException( mapper, Throwable.class,
+                    UNCHECK );
+        }
+        return mapper;
+    }
+
+    /**
+     * Handle {@code (CSVRow) -> columnType} reading one column.
+     */
+    private static MethodHandle getter( int column, Class<?> columnType ) {
+        try {
+            MethodHandle get;
+            if ( columnType == long.class || columnType == Long.class ) {
+                get = LOOKUP.findVirtual( CSVRow.class, "getLong", MethodType
+                        .methodType( long.class, int.class ) );
+            } else if ( columnType == int.class || columnType == Integer.class ) {
+                get = LOOKUP.findVirtual( CSVRow.class, "getInt", MethodType
+                        .methodType( int.class, int.class ) );
+            } else if ( columnType == String.class ) {
+                get = LOOKUP.findVirtual( CSVRow.class, "getString", MethodType
+                        .methodType( String.class, int.class ) );
+            } else if ( columnType.isEnum() ) {
+                // the enum class as last argument, the column is added below
+                get = MethodHandles.insertArguments( LOOKUP.findVirtual(
+                        CSVRow.class, "getEnum", MethodType.methodType(
+                                Enum.class, int.class, Class.class ) ), 2,
+                        columnType );
+            } else {
+                throw new IllegalArgumentException( "no getter for "
+                        + columnType.getName() );
+            }
+            return MethodHandles.insertArguments( get, 1, column ).asType(
+                    MethodType.methodType( columnType, CSVRow.class ) );
+        } catch ( NoSuchMethodException | IllegalAccessException ex ) {
+            throw new IllegalStateException( ex );
+        }
+    }
+
+    private static boolean throwsChecked( Class<?> type,
+            Class<?>[] columnTypes ) {
+        try {
+            for ( Class<?> thrown : type.getDeclaredConstructor( columnTypes )
+                    .getExceptionTypes() ) {
+                if ( !RuntimeException.class.isAssignableFrom( thrown )
+                        && !Error.class.isAssignableFrom( thrown ) ) {
+                    return true;
+                }
+            }
+            return false;
+        } catch ( NoSuchMethodException ex ) {
+            throw new IllegalStateException( ex );
+        }
+    }
+
+    /**
+     * Handler of a constructor that declares checked exceptions.
+     */
+    private static Object uncheck( Throwable ex, CSVRow row ) {
+        if ( ex instanceof RuntimeException ) {
+            throw (RuntimeException) ex;
+        } else if ( ex instanceof Error ) {
+            throw (Error) ex;
+        }
+        throw new IllegalStateException( ex );
+    }
+
+    /**
+     * Define a class like
+     * <pre>{@code
+     *   final class RowMappers$MapperN implements Function {
+     *       private static final MethodHandle HANDLE = RowMappers.takeHandle( RowMappers$MapperN.class );
+     *       public Object apply( Object row ) {
+     *           return HANDLE.invokeExact( (CSVRow) row );
+     *       }
+     *   }
+     * }</pre>
+     * and return an instance. The class is written byte by byte; it has no
+     * branches, so it needs no stack map frames.
+     */
+    @SuppressWarnings( "unchecked" )
+    private static <T> Function<CSVRow, T> spin( MethodHandle handle ) {
+        String name = RowMappers.class.getName().replace( '.', '/' )
+                + "$Mapper" + MAPPER_CLASSES.incrementAndGet();
+        try {
+            Class<?> mapper = LOOKUP.defineClass( mapperClass( name ) );
+            PENDING.put( mapper, handle );
+            // creating the instance initializes the class, which takes the handle
+            return (Function<CSVRow, T>) mapper.getDeclaredConstructor()
+                    .newInstance();
+        } catch ( ReflectiveOperationException ex ) {
+            throw new IllegalStateException( ex );
+        }
+    }
+
+    /**
+     * Hand the handle of a mapper class to its static initializer.
+     *
+     * @param mapper the class being initialized
+     * @return its handle
+     */
+    static MethodHandle takeHandle( Class<?> mapper ) {
+        return PENDING.remove( mapper );
+    }
+
+    private static byte[] mapperClass( String name ) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream( 512 );
+        try ( DataOutputStream out = new DataOutputStream( bytes ) ) {
+            out.writeInt( 0xCAFEBABE );
+            out.writeShort( 0 );
+            out.writeShort( 55 ); // Java 11
+            // constant pool
+            out.writeShort( 33 );
+            utf8( out, name );                                      // 1
+            ref( out, 7, 1 );                                       // 2 this
+            utf8( out, "java/lang/Object" );                        // 3
+            ref( out, 7, 3 );                                       // 4
+            utf8( out, "java/util/function/Function" );             // 5
+            ref( out, 7, 5 );                                       // 6
+            utf8( out, "HANDLE" );                                  // 7
+            utf8( out, "Ljava/lang/invoke/MethodHandle;" );         // 8
+            utf8( out, "<init>" );                                  // 9
+            utf8( out, "()V" );                                     // 10
+            ref( out, 12, 9, 10 );                                  // 11
+            ref( out, 10, 4, 11 );                                  // 12 Object.<init>
+            utf8( out, "apply" );                                   // 13
+            utf8( out, "(Ljava/lang/Object;)Ljava/lang/Object;" );  // 14
+            utf8( out, "Code" );                                    // 15
+            ref( out, 12, 7, 8 );                                   // 16
+            ref( out, 9, 2, 16 );                                   // 17 HANDLE
+            utf8( out, "nl/fontys/sebivenlo/library/CSVRow" );      // 18
+            ref( out, 7, 18 );                                      // 19
+            utf8( out, "java/lang/invoke/MethodHandle" );           // 20
+            ref( out, 7, 20 );                                      // 21
+            utf8( out, "invokeExact" );                             // 22
+            utf8( out, "(Lnl/fontys/sebivenlo/library/CSVRow;)Ljava/lang/Object;" ); // 23
+            ref( out, 12, 22, 23 );                                 // 24
+            ref( out, 10, 21, 24 );                                 // 25 invokeExact
+            utf8( out, "<clinit>" );                                // 26
+            utf8( out, RowMappers.class.getName().replace( '.', '/' ) ); // 27
+            ref( out, 7, 27 );                                      // 28
+            utf8( out, "takeHandle" );                              // 29
+            utf8( out, "(Ljava/lang/Class;)Ljava/lang/invoke/MethodHandle;" ); // 30
+            ref( out, 12, 29, 30 );                                 // 31
+            ref( out, 10, 28, 31 );                                 // 32 takeHandle
+            // final synthetic, this, super, one interface
+            out.writeShort( 0x1030 );
+            out.writeShort( 2 );
+            out.writeShort( 4 );
+            out.writeShort( 1 );
+            out.writeShort( 6 );
+            // private static final MethodHandle HANDLE
+            out.writeShort( 1 );
+            out.writeShort( 0x001A );
+            out.writeShort( 7 );
+            out.writeShort( 8 );
+            out.writeShort( 0 );
+            out.writeShort( 3 );
+            // <init>: aload_0, invokespecial Object.<init>, return
+            method( out, 0x0000, 9, 10, 1, 1, new byte[]{ 0x2a, (byte) 0xb7,
+                0, 12, (byte) 0xb1 } );
+            // apply: getstatic HANDLE, aload_1, checkcast CSVRow,
+            // invokevirtual invokeExact, areturn
+            method( out, 0x0001, 13, 14, 2, 2, new byte[]{ (byte) 0xb2, 0, 17,
+                0x2b, (byte) 0xc0, 0, 19, (byte) 0xb6, 0, 25, (byte) 0xb0 } );
+            // <clinit>: ldc this, invokestatic takeHandle, putstatic HANDLE,
+            // return
+            method( out, 0x0008, 26, 10, 1, 0, new byte[]{ 0x12, 2,
+                (byte) 0xb8, 0, 32, (byte) 0xb3, 0, 17, (byte) 0xb1 } );
+            out.writeShort( 0 );
+        } catch ( IOException ex ) {
+            throw new UncheckedIOException( ex );
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void utf8( DataOutputStream out, String value )
+            throws IOException {
+        out.writeByte( 1 );
+        out.writeUTF( value );
+    }
+
+    private static void ref( DataOutputStream out, int tag, int... indexes )
+            throws IOException {
+        out.writeByte( tag );
+        for ( int index : indexes ) {
+            out.writeShort( index );
+        }
+    }
+
+    private static void method( DataOutputStream out, int access, int name,
+            int descriptor, int maxStack, int maxLocals, byte[] code )
+            throws IOException {
+        out.writeShort( access );
+        out.writeShort( name );
+        out.writeShort( descriptor );
+        out.writeShort( 1 );
+        out.writeShort( 15 );
+        out.writeInt( 12 + code.length );
+        out.writeShort( maxStack );
+        out.writeShort( maxLocals );
+        out.writeInt( code.length );
+        out.write( code );
+        out.writeShort( 0 );
+        out.writeShort( 0 );
+    }
+}
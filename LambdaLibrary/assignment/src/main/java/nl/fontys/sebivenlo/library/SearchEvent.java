@@ -0,0 +1,38 @@
+package nl.fontys.sebivenlo.library;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of a call timed by a {@link TimedLibrary}.
+ */
+@Name( "nl.fontys.sebivenlo.library.Search" )
+@Label( "Library Search" )
+@Category( "Library" )
+@Description( "A search of a timed library" )
+final class SearchEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(
+            SearchEvent.class );
+
+    @Label( "Operation" )
+    String operation;
+
+    @Label( "Argument" )
+    String argument;
+
+    @Label( "Result Size" )
+    int resultSize;
+
+    /**
+     * Whether a recording wants these events, so an event is only created
+     * when it will be committed.
+     */
+    static boolean wanted() {
+        return TYPE.isEnabled();
+    }
+}
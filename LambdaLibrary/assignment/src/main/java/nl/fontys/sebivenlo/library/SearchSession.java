@@ -0,0 +1,84 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A sequence of searches on one library, as produced by a type-ahead search
+ * box.
+ *
+ * The session remembers the previous term and its result. When the next term
+ * contains the previous one, as happens when a character is typed, every
+ * match of the new term is also a match of the previous term. The session
+ * then only tests the previous result instead of searching the whole library,
+ * so the cost of a key stroke is proportional to the number of hits, not to
+ * the size of the catalogue. After the empty term, which matches all books,
+ * the next term is a full search, so that the library can use its indexes.
+ * The session starts over when the {@link LibraryModel#version() version}
+ * of the library changes.
+ *
+ * A session is not thread safe, use one per search box.
+ */
+public class SearchSession {
+
+    private final LibraryModel library;
+    private String lastTerm;
+    private List<Book> lastResult;
+    private long lastVersion;
+
+    /**
+     * Create a session on a library.
+     *
+     * @param library to search
+     */
+    public SearchSession( LibraryModel library ) {
+        this.library = library;
+    }
+
+    /**
+     * Search books matching a term, with the same outcome as
+     * {@link LibraryModel#booksMatchSearchTerm(java.lang.String)}, in library
+     * order. The empty term matches all books.
+     *
+     * @param searchTerm the search phrase
+     * @return Unmodifiable list of books that match the search phrase
+     */
+    public List<Book> search( String searchTerm ) {
+        String term = searchTerm.toLowerCase();
+        long version = library.version();
+        if ( version != lastVersion ) {
+            reset();
+            lastVersion = version;
+        }
+        if ( lastTerm != null && !lastTerm.isEmpty() && term.contains( lastTerm ) ) {
+            if ( !term.equals( lastTerm ) ) {
+                lastResult = narrow( lastResult, searchTerm );
+            }
+        } else if ( term.isEmpty() ) {
+            lastResult = library.getBooks();
+        } else {
+            lastResult = library.booksMatchSearchTerm( searchTerm );
+        }
+        lastTerm = term;
+        return lastResult;
+    }
+
+    /**
+     * Forget the previous search. The next search is a full search.
+     */
+    public void reset() {
+        lastTerm = null;
+        lastResult = null;
+    }
+
+    private List<Book> narrow( List<Book> previous, String searchTerm ) {
+        List<Book> result = new ArrayList<>();
+        for ( Book book : previous ) {
+            if ( library.bookMatchesSearchTerm( book, searchTerm ) ) {
+                result.add( book );
+            }
+        }
+        return Collections.unmodifiableList( result );
+    }
+}
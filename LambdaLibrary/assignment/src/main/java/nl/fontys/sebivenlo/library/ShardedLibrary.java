@@ -0,0 +1,394 @@
+package nl.fontys.sebivenlo.library;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Library over several csv files, such as the exports of the branches of a
+ * library, each loaded into its own shard.
+ * <p>
+ * The files are parsed concurrently, each into a library made by a shard
+ * factory, {@link DefaultLibrary} by default. A search is handed to all
+ * shards at the same time on an executor and their results are concatenated
+ * in shard order, which gives the books in the order of the concatenated
+ * files. Ids are looked up in shard order too, so the first shard holding an
+ * id wins.
+ * <p>
+ * A single shard can be reloaded from its file with {@link #reloadShard(int)}
+ * while the other shards keep serving. The shards are kept in an array that
+ * is replaced, not modified, so a search always sees one consistent set of
+ * shards. Every reload increases the {@link #version()}.
+ */
+public class ShardedLibrary implements LibraryModel {
+
+    private final List<Path> sources;
+    private final Function<List<Book>, ? extends LibraryModel> shardFactory;
+    private final Executor executor;
+    private final AtomicLong reloads = new AtomicLong();
+    private volatile LibraryModel[] shards;
+
+    /**
+     * Load the shards.
+     *
+     * @param sources csv files, one per shard
+     * @param shardFactory turns the books of one file into a library
+     * @param executor runs the loads and the searches of the shards
+     * @throws IOException when a file cannot be read
+     */
+    public ShardedLibrary( List<Path> sources,
+            Function<List<Book>, ? extends LibraryModel> shardFactory,
+            Executor executor ) throws IOException {
+        this.sources = List.copyOf( sources );
+        this.shardFactory = shardFactory;
+        this.executor = executor;
+        // files are parsed side by side, so each gets a share of the cores
+        int parallelism = Math.max( 1, Runtime.getRuntime().availableProcessors()
+                / Math.max( 1, this.sources.size() ) );
+        List<CompletableFuture<LibraryModel>> loads = new ArrayList<>();
+        for ( Path source : this.sources ) {
+            loads.add( CompletableFuture.supplyAsync( () -> {
+                try {
+                    return loadShard( source, parallelism );
+                } catch ( IOException ex ) {
+                    throw new UncheckedIOException( ex );
+                }
+            }, executor ) );
+        }
+        LibraryModel[] loaded = new LibraryModel[ loads.size() ];
+        try {
+            for ( int i = 0; i < loaded.length; i++ ) {
+                loaded[ i ] = join( loads.get( i ) );
+            }
+        } catch ( UncheckedIOException ex ) {
+            throw ex.getCause();
+        }
+        this.shards = loaded;
+    }
+
+    /**
+     * Load csv files into {@link DefaultLibrary} shards, searched on the
+     * common fork join pool.
+     *
+     * @param sources csv files, one per shard
+     * @return the library
+     * @throws IOException when a file cannot be read
+     */
+    public static ShardedLibrary load( List<Path> sources ) throws IOException {
+        return new ShardedLibrary( sources, DefaultLibrary::new,
+                ForkJoinPool.commonPool() );
+    }
+
+    private LibraryModel loadShard( Path source, int parallelism )
+            throws IOException {
+        return shardFactory.apply( Book.loadFromPath( source, parallelism ) );
+    }
+
+    /**
+     * Reread the file of one shard and replace the shard. Searches running
+     * meanwhile use the old shard. Reloads are one at a time.
+     *
+     * @param shard number of the shard, the position of its file
+     * @throws IOException when the file cannot be read; the old shard stays
+     */
+    public synchronized void reloadShard( int shard ) throws IOException {
+        LibraryModel reloaded = loadShard( sources.get( shard ),
+                Runtime.getRuntime().availableProcessors() );
+        LibraryModel[] next = shards.clone();
+        next[ shard ] = reloaded;
+        shards = next;
+        reloads.incrementAndGet();
+    }
+
+    /**
+     * Number of shards.
+     *
+     * @return the shard count
+     */
+    public int shardCount() {
+        return sources.size();
+    }
+
+    /**
+     * The current library of a shard.
+     *
+     * @param shard number of the shard
+     * @return its library
+     */
+    public LibraryModel shard( int shard ) {
+        return shards[ shard ];
+    }
+
+    /**
+     * Run a search on all shards at the same time. The caller searches the
+     * first shard itself while the executor does the others.
+     *
+     * @return the results in shard order
+     */
+    private <R> List<R> fanOut( Function<? super LibraryModel, ? extends R> search ) {
+        LibraryModel[] current = shards;
+        List<CompletableFuture<? extends R>> others = new ArrayList<>();
+        for ( int i = 1; i < current.length; i++ ) {
+            LibraryModel shard = current[ i ];
+            others.add( CompletableFuture.supplyAsync( () -> search.apply( shard ),
+                    executor ) );
+        }
+        List<R> results = new ArrayList<>( current.length );
+        if ( current.length > 0 ) {
+            results.add( search.apply( current[ 0 ] ) );
+        }
+        for ( CompletableFuture<? extends R> other : others ) {
+            results.add( join( other ) );
+        }
+        return results;
+    }
+
+    private static <R> R join( CompletableFuture<R> future ) {
+        try {
+            return future.join();
+        } catch ( CompletionException ex ) {
+            if ( ex.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if ( ex.getCause() instanceof Error ) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private static <T> List<T> concat( List<? extends List<? extends T>> parts ) {
+        int size = 0;
+        for ( List<? extends T> part : parts ) {
+            size += part.size();
+        }
+        List<T> result = new ArrayList<>( size );
+        for ( List<? extends T> part : parts ) {
+            result.addAll( part );
+        }
+        return Collections.unmodifiableList( result );
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The view spans the shards as they are at the time of the call.
+     */
+    @Override
+    public List<Book> getBooks() {
+        LibraryModel[] current = shards;
+        List<List<Book>> parts = new ArrayList<>( current.length );
+        for ( LibraryModel shard : current ) {
+            parts.add( shard.getBooks() );
+        }
+        return new Concatenation( parts );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Book> booksMatchSearchTerm( String searchTerm ) {
+        return concat( fanOut( s -> s.booksMatchSearchTerm( searchTerm ) ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> authorsMatchSearchTerm( String searchTerm ) {
+        LinkedHashSet<String> authors = new LinkedHashSet<>();
+        fanOut( s -> s.authorsMatchSearchTerm( searchTerm ) ).forEach(
+                authors::addAll );
+        return List.copyOf( authors );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Book> booksMatchPredicate( Predicate<? super Book> searchPredicate ) {
+        return concat( fanOut( s -> s.booksMatchPredicate( searchPredicate ) ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each shard is asked for the first offset + limit matches.
+     */
+    @Override
+    public List<Book> booksMatchSearchTerm( String searchTerm, int offset,
+            int limit ) {
+        Page.check( offset, limit );
+        int head = (int) Math.min( Integer.MAX_VALUE, (long) offset + limit );
+        return page( fanOut( s -> s.booksMatchSearchTerm( searchTerm, 0, head ) ),
+                offset, limit );
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each shard is asked for the first offset + limit matches.
+     */
+    @Override
+    public List<Book> booksMatchPredicate( Predicate<? super Book> searchPredicate,
+            int offset, int limit ) {
+        Page.check( offset, limit );
+        int head = (int) Math.min( Integer.MAX_VALUE, (long) offset + limit );
+        return page( fanOut( s -> s.booksMatchPredicate( searchPredicate, 0, head ) ),
+                offset, limit );
+    }
+
+    private static List<Book> page( List<List<Book>> heads, int offset, int limit ) {
+        Page<Book> page = new Page<>( offset, limit );
+        for ( List<Book> head : heads ) {
+            for ( Book book : head ) {
+                if ( !page.add( book ) ) {
+                    return page.toList();
+                }
+            }
+        }
+        return page.toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The top k of the shards are merged into the overall top k.
+     */
+    @Override
+    public List<Book> topBooksMatchSearchTerm( String searchTerm,
+            Comparator<? super Book> order, int k ) {
+        return top( fanOut( s -> s.topBooksMatchSearchTerm( searchTerm, order, k ) ),
+                order, k );
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The top k of the shards are merged into the overall top k.
+     */
+    @Override
+    public List<Book> topBooksMatchPredicate( Predicate<? super Book> searchPredicate,
+            Comparator<? super Book> order, int k ) {
+        return top( fanOut( s -> s.topBooksMatchPredicate( searchPredicate, order,
+                k ) ), order, k );
+    }
+
+    private static List<Book> top( List<List<Book>> tops,
+            Comparator<? super Book> order, int k ) {
+        TopK<Book> top = new TopK<>( order, k );
+        tops.forEach( list -> list.forEach( top::offer ) );
+        return top.toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The best matches of the shards are merged, most similar first and in
+     * shard order among equals.
+     */
+    @Override
+    public List<TrigramIndex.Match> booksFuzzyMatch( String searchTerm, int k,
+            double minSimilarity ) {
+        TopK<TrigramIndex.Match> top = new TopK<>( Comparator.comparingDouble(
+                TrigramIndex.Match::getSimilarity ).reversed(), Math.max( 0, k ) );
+        fanOut( s -> s.booksFuzzyMatch( searchTerm, k, minSimilarity ) )
+                .forEach( list -> list.forEach( top::offer ) );
+        return top.toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Book getBookById( long id ) {
+        for ( LibraryModel shard : shards ) {
+            Book book = shard.getBookById( id );
+            if ( book != DefaultLibrary.NULL_OBJECT_BOOK ) {
+                return book;
+            }
+        }
+        return DefaultLibrary.NULL_OBJECT_BOOK;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Changes with every reload of a shard and with every change of a shard
+     * that has versions of its own.
+     */
+    @Override
+    public long version() {
+        long version = reloads.get();
+        for ( LibraryModel shard : shards ) {
+            version += shard.version();
+        }
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for ( LibraryModel shard : shards ) {
+            sb.append( shard );
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Read only list over the book lists of the shards.
+     */
+    private static final class Concatenation extends AbstractList<Book>
+            implements RandomAccess {
+
+        private final List<List<Book>> parts;
+        private final int[] starts;
+
+        Concatenation( List<List<Book>> parts ) {
+            this.parts = parts;
+            this.starts = new int[ parts.size() + 1 ];
+            for ( int i = 0; i < parts.size(); i++ ) {
+                starts[ i + 1 ] = starts[ i ] + parts.get( i ).size();
+            }
+        }
+
+        @Override
+        public Book get( int index ) {
+            if ( index < 0 || index >= size() ) {
+                throw new IndexOutOfBoundsException( index );
+            }
+            // last part that starts at or before index
+            int lo = 0;
+            int hi = parts.size() - 1;
+            while ( lo < hi ) {
+                int mid = ( lo + hi + 1 ) >>> 1;
+                if ( starts[ mid ] <= index ) {
+                    lo = mid;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return parts.get( lo ).get( index - starts[ lo ] );
+        }
+
+        @Override
+        public int size() {
+            return starts[ parts.size() ];
+        }
+    }
+}
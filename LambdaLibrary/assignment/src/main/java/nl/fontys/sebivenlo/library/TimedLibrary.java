@@ -0,0 +1,273 @@
+package nl.fontys.sebivenlo.library;
+
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Library decorator that measures its searches.
+ * <p>
+ * For {@link #booksMatchSearchTerm(java.lang.String)},
+ * {@link #booksMatchPredicate(java.util.function.Predicate)} and
+ * {@link #getBookById(long)} it counts the calls and records the latencies
+ * and result sizes in {@link Histogram}s, one {@link OperationStats} per
+ * operation. A call records two clock reads and a few counter increments and
+ * allocates nothing. Other operations are passed on as is.
+ * <p>
+ * The statistics are available as MBeans after {@link #register(String)},
+ * and each call is a {@link SearchEvent} for the flight recorder, which is
+ * only created while a recording has the event enabled.
+ * <p>
+ * Timing can be switched off, also through JMX, which leaves one volatile
+ * read per call.
+ */
+public class TimedLibrary implements LibraryModel, TimedLibraryMBean {
+
+    /**
+     * JMX domain of the MBeans.
+     */
+    public static final String DOMAIN = "nl.fontys.sebivenlo.library";
+
+    private final LibraryModel library;
+    private final OperationStats searchTerm = new OperationStats(
+            "booksMatchSearchTerm" );
+    private final OperationStats predicate = new OperationStats(
+            "booksMatchPredicate" );
+    private final OperationStats byId = new OperationStats( "getBookById" );
+    private volatile boolean enabled = true;
+    private String registeredName;
+
+    /**
+     * Wrap a library.
+     *
+     * @param library to measure
+     */
+    public TimedLibrary( LibraryModel library ) {
+        this.library = library;
+    }
+
+    /**
+     * Statistics of the timed operations.
+     *
+     * @return search term, predicate and id lookups, in that order
+     */
+    public List<OperationStats> stats() {
+        return List.of( searchTerm, predicate, byId );
+    }
+
+    /**
+     * Register this library and its operations with the platform MBean
+     * server, as {@code nl.fontys.sebivenlo.library:type=TimedLibrary,name=}
+     * name, with an operation key for the operations.
+     *
+     * @param name to tell libraries apart, a valid object name value
+     * @return this
+     * @throws JMException when a name is taken or invalid
+     */
+    public synchronized TimedLibrary register( String name ) throws JMException {
+        if ( registeredName != null ) {
+            throw new IllegalStateException( "registered as " + registeredName );
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean( this, objectName( name, null ) );
+        registeredName = name;
+        for ( OperationStats stats : stats() ) {
+            server.registerMBean( stats, objectName( name, stats ) );
+        }
+        return this;
+    }
+
+    /**
+     * Remove the MBeans of {@link #register(String)}, if any.
+     *
+     * @throws JMException when the server refuses
+     */
+    public synchronized void unregister() throws JMException {
+        if ( registeredName == null ) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for ( OperationStats stats : stats() ) {
+            ObjectName statsName = objectName( registeredName, stats );
+            if ( server.isRegistered( statsName ) ) {
+                server.unregisterMBean( statsName );
+            }
+        }
+        server.unregisterMBean( objectName( registeredName, null ) );
+        registeredName = null;
+    }
+
+    static ObjectName objectName( String name, OperationStats stats )
+            throws JMException {
+        return new ObjectName( DOMAIN + ":type=TimedLibrary,name=" + name
+                + ( stats == null ? "" : ",operation=" + stats.getOperation() ) );
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled( boolean enabled ) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void reset() {
+        stats().forEach( OperationStats::reset );
+    }
+
+    private static SearchEvent begin() {
+        if ( !SearchEvent.wanted() ) {
+            return null;
+        }
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        return event;
+    }
+
+    private static void commit( SearchEvent event, OperationStats stats,
+            Object argument, int resultSize ) {
+        event.end();
+        event.operation = stats.getOperation();
+        event.argument = String.valueOf( argument );
+        event.resultSize = resultSize;
+        event.commit();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Book> getBooks() {
+        return library.getBooks();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Book> booksMatchSearchTerm( String searchTerm ) {
+        if ( !enabled ) {
+            return library.booksMatchSearchTerm( searchTerm );
+        }
+        SearchEvent event = begin();
+        long start = System.nanoTime();
+        List<Book> result = library.booksMatchSearchTerm( searchTerm );
+        this.searchTerm.record( System.nanoTime() - start, result.size() );
+        if ( event != null ) {
+            commit( event, this.searchTerm, searchTerm, result.size() );
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> authorsMatchSearchTerm( String searchTerm ) {
+        return library.authorsMatchSearchTerm( searchTerm );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Book> booksMatchPredicate( Predicate<? super Book> searchPredicate ) {
+        if ( !enabled ) {
+            return library.booksMatchPredicate( searchPredicate );
+        }
+        SearchEvent event = begin();
+        long start = System.nanoTime();
+        List<Book> result = library.booksMatchPredicate( searchPredicate );
+        predicate.record( System.nanoTime() - start, result.size() );
+        if ( event != null ) {
+            commit( event, predicate, searchPredicate, result.size() );
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Book> booksMatchSearchTerm( String searchTerm, int offset,
+            int limit ) {
+        return library.booksMatchSearchTerm( searchTerm, offset, limit );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Book> booksMatchPredicate( Predicate<? super Book> searchPredicate,
+            int offset, int limit ) {
+        return library.booksMatchPredicate( searchPredicate, offset, limit );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Book> topBooksMatchSearchTerm( String searchTerm,
+            Comparator<? super Book> order, int k ) {
+        return library.topBooksMatchSearchTerm( searchTerm, order, k );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Book> topBooksMatchPredicate( Predicate<? super Book> searchPredicate,
+            Comparator<? super Book> order, int k ) {
+        return library.topBooksMatchPredicate( searchPredicate, order, k );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<TrigramIndex.Match> booksFuzzyMatch( String searchTerm, int k,
+            double minSimilarity ) {
+        return library.booksFuzzyMatch( searchTerm, k, minSimilarity );
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The result size is recorded as 1 for a book found and 0 otherwise.
+     */
+    @Override
+    public Book getBookById( long id ) {
+        if ( !enabled ) {
+            return library.getBookById( id );
+        }
+        SearchEvent event = begin();
+        long start = System.nanoTime();
+        Book result = library.getBookById( id );
+        int found = result == DefaultLibrary.NULL_OBJECT_BOOK ? 0 : 1;
+        byId.record( System.nanoTime() - start, found );
+        if ( event != null ) {
+            commit( event, byId, id, found );
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long version() {
+        return library.version();
+    }
+
+    @Override
+    public String toString() {
+        return library.toString();
+    }
+}
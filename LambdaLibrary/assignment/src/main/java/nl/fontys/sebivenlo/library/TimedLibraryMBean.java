@@ -0,0 +1,26 @@
+package nl.fontys.sebivenlo.library;
+
+/**
+ * Management interface of a {@link TimedLibrary}.
+ */
+public interface TimedLibraryMBean {
+
+    /**
+     * Whether calls are timed.
+     *
+     * @return the state
+     */
+    boolean isEnabled();
+
+    /**
+     * Switch timing on or off.
+     *
+     * @param enabled the new state
+     */
+    void setEnabled( boolean enabled );
+
+    /**
+     * Reset the statistics of all operations.
+     */
+    void reset();
+}
@@ -0,0 +1,87 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the k first items in a sort order out of a sequence of any length,
+ * in a heap of at most k items whose root is the worst item kept. An item
+ * that does not beat the root is dropped with a single comparison, so
+ * finding the top k of n items takes O(n log k) time and O(k) space, instead
+ * of sorting all n.
+ *
+ * Items that are equal in the sort order keep the order in which they were
+ * offered.
+ */
+final class TopK<T> {
+
+    private final int k;
+    private final Comparator<? super T> order;
+    private final Comparator<Ranked<T>> best;
+    private final PriorityQueue<Ranked<T>> heap;
+    private int offered;
+
+    /**
+     * Start empty.
+     *
+     * @param order of the result, first is best
+     * @param k number of items to keep, not negative
+     */
+    TopK( Comparator<? super T> order, int k ) {
+        if ( k < 0 ) {
+            throw new IllegalArgumentException( "k " + k );
+        }
+        this.k = k;
+        this.order = order;
+        this.best = ( a, b ) -> {
+            int c = order.compare( a.item, b.item );
+            return c != 0 ? c : Integer.compare( a.seq, b.seq );
+        };
+        this.heap = new PriorityQueue<>( Math.min( k, 1024 ) + 1, best.reversed() );
+    }
+
+    /**
+     * Consider the next item.
+     *
+     * @param item to consider
+     */
+    void offer( T item ) {
+        int seq = offered++;
+        if ( heap.size() < k ) {
+            heap.add( new Ranked<>( item, seq ) );
+        } else if ( k > 0 && order.compare( item, heap.peek().item ) < 0 ) {
+            // ties lose against the root, which was offered earlier
+            heap.poll();
+            heap.add( new Ranked<>( item, seq ) );
+        }
+    }
+
+    /**
+     * The kept items, best first.
+     *
+     * @return unmodifiable list of at most k items
+     */
+    List<T> toList() {
+        List<Ranked<T>> ranked = new ArrayList<>( heap );
+        ranked.sort( best );
+        List<T> result = new ArrayList<>( ranked.size() );
+        for ( Ranked<T> r : ranked ) {
+            result.add( r.item );
+        }
+        return Collections.unmodifiableList( result );
+    }
+
+    private static final class Ranked<T> {
+
+        final T item;
+        final int seq;
+
+        Ranked( T item, int seq ) {
+            this.item = item;
+            this.seq = seq;
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Index for typo tolerant search on authors and titles.
+ *
+ * Each distinct value, compared in lower case, is cut into trigrams after
+ * padding it with two spaces in front and one at the end, so that the start
+ * and end of a word weigh in ("  m", " ma", "mar", ..., "in "). The
+ * similarity of a query and a value is the Dice coefficient of their trigram
+ * sets, {@code 2 * common / (queryGrams + valueGrams)}, which is 1 for equal
+ * values and degrades gently with every typo.
+ *
+ * Lookups count common grams per value from the posting lists of the query
+ * grams. A value can only reach a similarity threshold t when it shares at
+ * least {@code t * q / (2 - t)} of the q query grams, so only the rarest
+ * grams are needed to find the candidates; the frequent ones are merely
+ * looked up, by binary search, for the candidates that can still make it.
+ * Values are numbered by length in grams, so values too short or too long to
+ * reach t are skipped by a binary search in each posting list. With a
+ * reasonable threshold that keeps a query away from most of the long posting
+ * lists of common grams such as " th".
+ *
+ * The index keeps one int per distinct gram of every distinct value, plus a
+ * few bytes per value, and is read only once built.
+ */
+public final class TrigramIndex {
+
+    private static final int[] NO_POSTINGS = new int[ 0 ];
+
+    private final IntFunction<Book> books;
+    // values are numbered by ascending gram count, so that the values of a
+    // plausible length form one range of every posting list
+    private final String[] values;
+    private final int[] gramCounts;
+    private final int[] firstSeen;
+    private final int[] byFirstSeen;
+    private final int[][] valueRows;
+    private final LongIndexMap gramIds;
+    private final int[][] postings;
+    private final ThreadLocal<int[]> counts;
+
+    /**
+     * Index text columns of rows.
+     *
+     * @param size number of rows
+     * @param book gets the book of a row
+     * @param fields text of a row to index, such as author and title
+     */
+    TrigramIndex( int size, IntFunction<Book> book,
+            List<IntFunction<String>> fields ) {
+        this.books = book;
+        Map<String, Integer> valueIds = new HashMap<>();
+        List<String> valueList = new ArrayList<>();
+        List<IntList> rowLists = new ArrayList<>();
+        for ( int r = 0; r < size; r++ ) {
+            for ( IntFunction<String> field : fields ) {
+                String value = field.apply( r );
+                if ( value == null || value.isEmpty() ) {
+                    continue;
+                }
+                Integer id = valueIds.putIfAbsent( normalize( value ),
+                        valueList.size() );
+                if ( id == null ) {
+                    id = valueList.size();
+                    valueList.add( value );
+                    rowLists.add( new IntList() );
+                }
+                rowLists.get( id ).addIfNotLast( r );
+            }
+        }
+        int valueCount = valueList.size();
+        int[] seenCounts = new int[ valueCount ];
+        int maxCount = 0;
+        for ( int d = 0; d < valueCount; d++ ) {
+            seenCounts[ d ] = grams( valueList.get( d ) ).length;
+            maxCount = Math.max( maxCount, seenCounts[ d ] );
+        }
+        // stable counting sort of the values by gram count
+        int[] start = new int[ maxCount + 2 ];
+        for ( int c : seenCounts ) {
+            start[ c + 1 ]++;
+        }
+        for ( int c = 1; c < start.length; c++ ) {
+            start[ c ] += start[ c - 1 ];
+        }
+        values = new String[ valueCount ];
+        gramCounts = new int[ valueCount ];
+        firstSeen = new int[ valueCount ];
+        byFirstSeen = new int[ valueCount ];
+        valueRows = new int[ valueCount ][];
+        for ( int d = 0; d < valueCount; d++ ) {
+            int v = start[ seenCounts[ d ] ]++;
+            values[ v ] = valueList.get( d );
+            gramCounts[ v ] = seenCounts[ d ];
+            firstSeen[ v ] = d;
+            byFirstSeen[ d ] = v;
+            valueRows[ v ] = rowLists.get( d ).toArray();
+        }
+        gramIds = new LongIndexMap( valueCount );
+        List<IntList> postingLists = new ArrayList<>();
+        for ( int v = 0; v < valueCount; v++ ) {
+            for ( long gram : grams( values[ v ] ) ) {
+                int g = gramIds.get( gram );
+                if ( g == LongIndexMap.NOT_FOUND ) {
+                    g = postingLists.size();
+                    gramIds.put( gram, g );
+                    postingLists.add( new IntList() );
+                }
+                postingLists.get( g ).add( v );
+            }
+        }
+        postings = new int[ postingLists.size() ][];
+        for ( int g = 0; g < postings.length; g++ ) {
+            postings[ g ] = postingLists.get( g ).toArray();
+        }
+        counts = ThreadLocal.withInitial( () -> new int[ valueCount ] );
+    }
+
+    /**
+     * Index the authors and titles of a list of books.
+     *
+     * @param books to index
+     * @return the index
+     */
+    public static TrigramIndex of( List<Book> books ) {
+        return new TrigramIndex( books.size(), books::get, List.of(
+                r -> books.get( r ).getAuthor(), r -> books.get( r ).getTitle() ) );
+    }
+
+    /**
+     * Number of distinct values indexed.
+     *
+     * @return the value count
+     */
+    public int valueCount() {
+        return values.length;
+    }
+
+    /**
+     * Find the books whose author or title is most similar to a query.
+     *
+     * @param query to look for, typos and all
+     * @param k maximum number of books to return
+     * @param minSimilarity threshold between 0 and 1 a value must reach
+     * @return at most k matches, most similar first. A book matching with
+     * both author and title is listed once, with the better similarity. Among
+     * equally similar values, the one that occurs first in the library comes
+     * first.
+     */
+    public List<Match> topK( String query, int k, double minSimilarity ) {
+        long[] queryGrams = grams( query );
+        int q = queryGrams.length;
+        if ( k <= 0 || q == 0 ) {
+            return List.of();
+        }
+        int[][] lists = new int[ q ][];
+        for ( int i = 0; i < q; i++ ) {
+            int g = gramIds.get( queryGrams[ i ] );
+            lists[ i ] = g == LongIndexMap.NOT_FOUND ? NO_POSTINGS : postings[ g ];
+        }
+        Arrays.sort( lists, ( a, b ) -> Integer.compare( a.length, b.length ) );
+
+        // a value sharing c grams scores 2c / (q + g) with c <= min(q, g), so
+        // reaching t requires c >= t * q / (2 - t) and g <= q * (2 - t) / t
+        double t = Math.max( 0, Math.min( 1, minSimilarity ) );
+        int minCommon = Math.max( 1, (int) Math.ceil( t * q / ( 2 - t ) - 1e-9 ) );
+        int maxGrams = t == 0 ? Integer.MAX_VALUE
+                : (int) Math.min( Integer.MAX_VALUE, Math.floor( q * ( 2 - t ) / t + 1e-9 ) );
+        int fromValue = lowerBound( gramCounts, 0, gramCounts.length, minCommon );
+        int toValue = lowerBound( gramCounts, 0, gramCounts.length,
+                maxGrams == Integer.MAX_VALUE ? maxGrams : maxGrams + 1 );
+        int generating = q - minCommon + 1;
+
+        int[] count = counts.get();
+        IntList touchedList = new IntList();
+        for ( int i = 0; i < generating; i++ ) {
+            int[] list = lists[ i ];
+            int end = lowerBound( list, 0, list.length, toValue );
+            for ( int p = lowerBound( list, 0, end, fromValue ); p < end; p++ ) {
+                int v = list[ p ];
+                if ( count[ v ]++ == 0 ) {
+                    touchedList.add( v );
+                }
+            }
+        }
+        int[] touched = touchedList.toArray();
+        int candidates = touched.length;
+        for ( int i = generating; i < q && candidates > 0; i++ ) {
+            // drop candidates that cannot reach t even if they share all the
+            // grams still to come, then look those grams up for the rest
+            int remaining = q - i;
+            int kept = 0;
+            for ( int c = 0; c < candidates; c++ ) {
+                int v = touched[ c ];
+                if ( count[ v ] + remaining >= minCommon( t, q, gramCounts[ v ] ) ) {
+                    touched[ kept++ ] = v;
+                } else {
+                    count[ v ] = 0;
+                }
+            }
+            candidates = kept;
+            int[] list = lists[ i ];
+            for ( int c = 0; c < candidates; c++ ) {
+                int v = touched[ c ];
+                if ( Arrays.binarySearch( list, v ) >= 0 ) {
+                    count[ v ]++;
+                }
+            }
+        }
+
+        long[] ranked = new long[ candidates ];
+        int n = 0;
+        for ( int c = 0; c < candidates; c++ ) {
+            int v = touched[ c ];
+            double similarity = 2.0 * count[ v ] / ( q + gramCounts[ v ] );
+            count[ v ] = 0;
+            if ( similarity >= t ) {
+                // positive float bits order like the floats; the complement of
+                // the first sighting puts earlier values first among equals in
+                // a descending sort
+                ranked[ n++ ] = (long) Float.floatToIntBits( (float) similarity ) << 32
+                        | ( Integer.MAX_VALUE - firstSeen[ v ] );
+            }
+        }
+        Arrays.sort( ranked, 0, n );
+
+        List<Match> result = new ArrayList<>( Math.min( k, n ) );
+        Set<Integer> seen = new HashSet<>();
+        for ( int i = n - 1; i >= 0 && result.size() < k; i-- ) {
+            int v = byFirstSeen[ Integer.MAX_VALUE - (int) ranked[ i ] ];
+            float similarity = Float.intBitsToFloat( (int) ( ranked[ i ] >>> 32 ) );
+            for ( int row : valueRows[ v ] ) {
+                if ( result.size() < k && seen.add( row ) ) {
+                    result.add( new Match( books.apply( row ), values[ v ],
+                            similarity ) );
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find the books whose author or title is most similar to a query without
+     * an index, by computing the similarity of every author and title. Takes
+     * time linear in the number of books on every call, and no memory beyond
+     * the result.
+     *
+     * @param books to search
+     * @param query to look for, typos and all
+     * @param k maximum number of books to return
+     * @param minSimilarity threshold between 0 and 1 a value must reach
+     * @return at most k matches, most similar first, each book with its better
+     * similarity of author and title. Among equally similar books, the first
+     * in the list comes first.
+     */
+    public static List<Match> scan( List<Book> books, String query, int k,
+            double minSimilarity ) {
+        long[] queryGrams = grams( query );
+        if ( k <= 0 || queryGrams.length == 0 ) {
+            return List.of();
+        }
+        double t = Math.max( 0, Math.min( 1, minSimilarity ) );
+        TopK<Match> top = new TopK<>( Comparator.comparingDouble(
+                Match::getSimilarity ).reversed(), k );
+        for ( Book book : books ) {
+            double author = dice( queryGrams, book.getAuthor() );
+            double title = dice( queryGrams, book.getTitle() );
+            double best = Math.max( author, title );
+            if ( best > 0 && best >= t ) {
+                // rounded like the index does
+                top.offer( new Match( book, author >= title ? book.getAuthor()
+                        : book.getTitle(), (float) best ) );
+            }
+        }
+        return top.toList();
+    }
+
+    /**
+     * Dice coefficient of the sorted distinct query grams and the grams of a
+     * value, 0 for a missing value.
+     */
+    private static double dice( long[] queryGrams, String value ) {
+        if ( value == null || value.isEmpty() ) {
+            return 0;
+        }
+        long[] valueGrams = grams( value );
+        int common = 0;
+        for ( int i = 0, j = 0; i < queryGrams.length && j < valueGrams.length; ) {
+            if ( queryGrams[ i ] < valueGrams[ j ] ) {
+                i++;
+            } else if ( queryGrams[ i ] > valueGrams[ j ] ) {
+                j++;
+            } else {
+                common++;
+                i++;
+                j++;
+            }
+        }
+        return 2.0 * common / ( queryGrams.length + valueGrams.length );
+    }
+
+    /**
+     * First position in a sorted range holding a value not smaller than key.
+     */
+    private static int lowerBound( int[] sorted, int from, int to, int key ) {
+        int lo = from;
+        int hi = to;
+        while ( lo < hi ) {
+            int mid = ( lo + hi ) >>> 1;
+            if ( sorted[ mid ] < key ) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Common grams a value of g grams needs with a query of q grams to reach
+     * similarity t.
+     */
+    private static int minCommon( double t, int q, int g ) {
+        return (int) Math.ceil( t * ( q + g ) / 2 - 1e-9 );
+    }
+
+    private static String normalize( String value ) {
+        return value.toLowerCase();
+    }
+
+    /**
+     * The distinct padded trigrams of a text, each packed as three 16 bit
+     * chars into a long.
+     */
+    static long[] grams( String text ) {
+        String padded = "  " + normalize( text ) + " ";
+        int n = padded.length() - 2;
+        long[] grams = new long[ n ];
+        for ( int i = 0; i < n; i++ ) {
+            grams[ i ] = (long) padded.charAt( i ) << 32
+                    | (long) padded.charAt( i + 1 ) << 16 | padded.charAt( i + 2 );
+        }
+        Arrays.sort( grams );
+        int distinct = 0;
+        for ( int i = 0; i < n; i++ ) {
+            if ( distinct == 0 || grams[ distinct - 1 ] != grams[ i ] ) {
+                grams[ distinct++ ] = grams[ i ];
+            }
+        }
+        return Arrays.copyOf( grams, distinct );
+    }
+
+    /**
+     * A book found by a fuzzy search, with the value it was found by.
+     */
+    public static final class Match {
+
+        private final Book book;
+        private final String matched;
+        private final double similarity;
+
+        Match( Book book, String matched, double similarity ) {
+            this.book = book;
+            this.matched = matched;
+            this.similarity = similarity;
+        }
+
+        public Book getBook() {
+            return book;
+        }
+
+        /**
+         * The author or title that resembles the query.
+         *
+         * @return the value as first seen in the library
+         */
+        public String getMatched() {
+            return matched;
+        }
+
+        /**
+         * Dice coefficient of the trigrams of query and matched value.
+         *
+         * @return similarity between 0 and 1
+         */
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        @Override
+        public String toString() {
+            return String.format( "%.3f %s #%d", similarity, matched, book.getId() );
+        }
+    }
+}
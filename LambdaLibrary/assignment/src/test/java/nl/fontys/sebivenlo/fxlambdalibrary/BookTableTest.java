@@ -0,0 +1,37 @@
+package nl.fontys.sebivenlo.fxlambdalibrary;
+
+import java.util.List;
+import javafx.scene.control.TableColumn;
+import nl.fontys.sebivenlo.library.Book;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The columns must show the book fields, read through the getters.
+ */
+public class BookTableTest {
+
+    Book book = new Book( 3, "Design Patterns", "Erich Gamma", "978-0201633610",
+            "Addison Wesley", Book.Language.ENGLISH, 1994 );
+
+    static <T> Object value( TableColumn<Book, T> column, Book book ) {
+        return column.getCellValueFactory().call(
+                new TableColumn.CellDataFeatures<>( null, column, book ) )
+                .getValue();
+    }
+
+    @Test
+    void columnsShowBookFields() {
+        List<TableColumn<Book, ?>> columns = BookTable.columns();
+
+        assertThat( columns ).extracting( TableColumn::getText ).containsExactly(
+                "id", "title", "author", "isbn", "publisher", "language",
+                "yearOfPublication" );
+        assertThat( columns ).extracting( c -> value( c, book ) )
+                .containsExactly( 3L, "Design Patterns", "Erich Gamma",
+                        "978-0201633610", "Addison Wesley",
+                        Book.Language.ENGLISH, 1994 );
+    }
+}
@@ -0,0 +1,119 @@
+package nl.fontys.sebivenlo.fxlambdalibrary;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import nl.fontys.sebivenlo.library.Book;
+import nl.fontys.sebivenlo.library.LibraryModel;
+import nl.fontys.sebivenlo.library.LibrarySnapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The loader must hand over all books in batches, in file order, with rising
+ * progress, from the csv file and from its snapshot alike.
+ */
+public class LibraryLoaderTest implements LibraryLoader.Listener {
+
+    @TempDir
+    Path dir;
+
+    Path csv;
+    List<List<Book>> batches = new ArrayList<>();
+    List<Double> progress = new ArrayList<>();
+    LibraryModel library;
+    Throwable failure;
+    Error onLoad;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        csv = dir.resolve( "library.csv" );
+        Files.copy( Paths.get( "library.csv" ), csv );
+    }
+
+    @Override
+    public void loaded( List<Book> books, double fraction ) {
+        if ( onLoad != null ) {
+            throw onLoad;
+        }
+        batches.add( books );
+        progress.add( fraction );
+    }
+
+    @Override
+    public void done( LibraryModel complete ) {
+        library = complete;
+    }
+
+    @Override
+    public void failed( Throwable cause ) {
+        failure = cause;
+    }
+
+    private List<Book> load() {
+        // running the listener calls inline stands in for Platform.runLater
+        new LibraryLoader( csv, Runnable::run, this, 3 ).run();
+        List<Book> all = new ArrayList<>();
+        batches.forEach( all::addAll );
+        return all;
+    }
+
+    @Test
+    void csvIsPublishedInBatches() {
+        List<Book> all = load();
+
+        assertThat( failure ).isNull();
+        assertThat( library ).isNotNull();
+        assertThat( all ).containsExactlyElementsOf( library.getBooks() );
+        assertThat( batches ).allSatisfy( b -> assertThat( b ).hasSizeLessThanOrEqualTo( 3 ) );
+        assertThat( progress ).isSorted().last().isEqualTo( 1.0 );
+        assertThat( LibrarySnapshot.snapshotPath( csv ) ).isRegularFile();
+    }
+
+    @Test
+    void csvProgressFollowsPublishedBooks() throws IOException {
+        double bookShare = 1.0 / Files.readAllLines( csv ).size();
+
+        load();
+
+        // three books per batch, whatever the parser has read ahead
+        assertThat( progress.get( 0 ) ).isBetween( bookShare, 4 * bookShare );
+    }
+
+    @Test
+    void snapshotIsPublishedInBatches() throws IOException {
+        List<Book> expected = LibrarySnapshot.open( csv ).getBooks();
+
+        List<Book> all = load();
+
+        assertThat( failure ).isNull();
+        assertThat( all ).containsExactlyElementsOf( expected );
+        assertThat( library.getBooks() ).containsExactlyElementsOf( expected );
+    }
+
+    @Test
+    void missingFileFails() {
+        csv = dir.resolve( "missing.csv" );
+
+        assertThat( load() ).isEmpty();
+        assertThat( failure ).isInstanceOf( IOException.class );
+        assertThat( library ).isNull();
+    }
+
+    @Test
+    void errorIsReportedAndThrownOn() {
+        onLoad = new OutOfMemoryError( "test" );
+
+        assertThatThrownBy( this::load ).isSameAs( onLoad );
+        assertThat( failure ).isSameAs( onLoad );
+        assertThat( library ).isNull();
+    }
+}
@@ -0,0 +1,88 @@
+package nl.fontys.sebivenlo.fxlambdalibrary;
+
+import java.util.ArrayList;
+import java.util.List;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import nl.fontys.sebivenlo.library.Book;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * The diff must produce the new content, and leave untouched what stays.
+ */
+public class ListDiffTest {
+
+    @ParameterizedTest
+    @CsvSource( value = {
+        "abcdef,ace,3",
+        "ace,abcdef,3",
+        "abc,abc,0",
+        "abc,'',3",
+        "'',abc,3",
+        "abcd,bxd,3",
+        "abc,cba,4"
+    } )
+    void updateGivesNewContent( String before, String after, int changed ) {
+        ObservableList<String> target = FXCollections.observableArrayList(
+                chars( before ) );
+        List<String> touched = new ArrayList<>();
+        target.addListener( (ListChangeListener<String>) c -> {
+            while ( c.next() ) {
+                touched.addAll( c.getRemoved() );
+                touched.addAll( c.getAddedSubList() );
+            }
+        } );
+
+        ListDiff.update( target, chars( after ) );
+
+        assertThat( target ).containsExactlyElementsOf( chars( after ) );
+        assertThat( touched ).hasSizeLessThanOrEqualTo( changed );
+    }
+
+    @Test
+    void equalButEditedElementIsReplaced() {
+        Book old = new Book( 1, "Old title", "A", "1", "P",
+                Book.Language.DUTCH, 2000 );
+        Book edited = new Book( 1, "New title", "A", "1", "P",
+                Book.Language.DUTCH, 2000 );
+        ObservableList<Book> target = FXCollections.observableArrayList( old );
+
+        ListDiff.update( target, List.of( edited ), Book::sameContent );
+
+        assertThat( target.get( 0 ) ).isSameAs( edited );
+    }
+
+    @Test
+    void manySegmentsAreOneChange() {
+        List<String> odd = new ArrayList<>();
+        List<String> all = new ArrayList<>();
+        for ( int i = 0; i < 1000; i++ ) {
+            all.add( "" + i );
+            if ( i % 2 == 1 ) {
+                odd.add( all.get( i ) );
+            }
+        }
+        ObservableList<String> target = FXCollections.observableArrayList( odd );
+        int[] changes = { 0 };
+        target.addListener( (ListChangeListener<String>) c -> changes[ 0 ]++ );
+
+        ListDiff.update( target, all );
+
+        assertThat( target ).containsExactlyElementsOf( all );
+        assertThat( changes[ 0 ] ).isEqualTo( 1 );
+    }
+
+    private static List<String> chars( String s ) {
+        List<String> result = new ArrayList<>();
+        for ( char c : s.toCharArray() ) {
+            result.add( String.valueOf( c ) );
+        }
+        return result;
+    }
+}
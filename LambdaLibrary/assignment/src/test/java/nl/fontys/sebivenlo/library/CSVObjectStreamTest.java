@@ -0,0 +1,239 @@
+package nl.fontys.sebivenlo.library;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Parallel reading must produce what sequential reading produces.
+ */
+public class CSVObjectStreamTest {
+
+    @TempDir
+    Path dir;
+
+    Path csv;
+
+    static final Predicate<String[]> ROW_FILTER = as -> as.length >= 7
+            && as[ 0 ].matches( "^\\d+$" );
+
+    @BeforeEach
+    void setUp() throws IOException {
+        StringBuilder sb = new StringBuilder( "id;title;author;isbn;publisher;language;year\n" );
+        for ( int i = 1; i <= 1000; i++ ) {
+            sb.append( i ).append( ";Tïtle " ).append( i ).append( ";Author " )
+                    .append( i % 17 ).append( ";978-" ).append( i )
+                    .append( ";Publisher;" ).append( Book.Language.values()[ i % 3 ] )
+                    .append( ';' ).append( 1900 + i % 120 )
+                    .append( i % 5 == 0 ? "\r\n" : "\n" );
+        }
+        csv = dir.resolve( "books.csv" );
+        Files.write( csv, sb.toString().getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    @ParameterizedTest
+    @ValueSource( ints = { 1, 7, 100, 4096, 1 << 20 } )
+    void parallelOrderedSameAsSequential( int chunkSize ) throws IOException {
+        List<Book> expected = new CSVObjectStream<Book>( csv )
+                .asList( Book::fromStrings, ROW_FILTER );
+
+        List<Book> actual = new CSVObjectStream<Book>( csv )
+                .parallel( 4, chunkSize )
+                .asList( Book::fromStrings, ROW_FILTER );
+
+        assertThat( actual ).hasSize( 1000 );
+        assertThat( actual ).usingElementComparator( CSVObjectStreamTest::compareFields )
+                .containsExactlyElementsOf( expected );
+    }
+
+    @Test
+    void parallelUnorderedHasSameElements() throws IOException {
+        List<Book> expected = new CSVObjectStream<Book>( csv )
+                .asList( Book::fromStrings, ROW_FILTER );
+
+        List<Book> actual = new CSVObjectStream<Book>( csv )
+                .parallel( 4, 512 ).ordered( false )
+                .asList( Book::fromStrings, ROW_FILTER );
+
+        assertThat( actual ).containsExactlyInAnyOrderElementsOf( expected );
+    }
+
+    @Test
+    void parallelReadsOnlyAWindowAhead() throws Exception {
+        AtomicInteger parsed = new AtomicInteger();
+        try ( Stream<Book> books = new CSVObjectStream<Book>( csv, ";", line -> {
+            parsed.incrementAndGet();
+            return true;
+        } ).parallel( 2, 512 ).streamRows( Book::fromRow, Book::isBookRow ) ) {
+            Iterator<Book> it = books.iterator();
+            assertThat( it.next().getId() ).isEqualTo( 1L );
+            Thread.sleep( 200 );
+
+            // about 12 lines per range, 2 threads with 2 ranges each ahead
+            assertThat( parsed.get() ).isLessThan( 200 );
+            int count = 1;
+            while ( it.hasNext() ) {
+                it.next();
+                count++;
+            }
+            assertThat( count ).isEqualTo( 1000 );
+        }
+    }
+
+    @Test
+    void rangesEndOnLineEnds() throws IOException {
+        byte[] content = Files.readAllBytes( csv );
+        List<long[]> ranges = new CSVObjectStream<Book>( csv ).parallel( 2, 300 )
+                .lineAlignedRanges();
+
+        long expectedStart = 0;
+        for ( long[] range : ranges ) {
+            assertThat( range[ 0 ] ).isEqualTo( expectedStart );
+            assertThat( content[ (int) range[ 1 ] - 1 ] ).isEqualTo( (byte) '\n' );
+            expectedStart = range[ 1 ];
+        }
+        assertThat( expectedStart ).isEqualTo( content.length );
+    }
+
+    Path gzip() throws IOException {
+        Path gz = dir.resolve( "books.csv.gz" );
+        try ( OutputStream out = new GZIPOutputStream( Files.newOutputStream( gz ) ) ) {
+            Files.copy( csv, out );
+        }
+        return gz;
+    }
+
+    @Test
+    void gzipReadsLikePlain() throws IOException {
+        List<Book> expected = new CSVObjectStream<Book>( csv )
+                .rowsAsList( Book::fromRow, Book::isBookRow );
+
+        List<Book> actual = new CSVObjectStream<Book>( gzip() )
+                .rowsAsList( Book::fromRow, Book::isBookRow );
+        List<Book> parallel = new CSVObjectStream<Book>( gzip() )
+                .parallel( 4, 512 )
+                .asList( Book::fromStrings, ROW_FILTER );
+
+        assertThat( actual ).usingElementComparator( CSVObjectStreamTest::compareFields )
+                .containsExactlyElementsOf( expected );
+        assertThat( parallel ).usingElementComparator( CSVObjectStreamTest::compareFields )
+                .containsExactlyElementsOf( expected );
+    }
+
+    @Test
+    void gzipStreamCanBeLeftEarly() throws IOException {
+        try ( Stream<Book> books = new CSVObjectStream<Book>( gzip() )
+                .streamRows( Book::fromRow, Book::isBookRow ) ) {
+            assertThat( books.findFirst() ).get().extracting( Book::getId )
+                    .isEqualTo( 1L );
+        }
+    }
+
+    @Test
+    void truncatedGzipFails() throws IOException {
+        byte[] bytes = Files.readAllBytes( gzip() );
+        Path broken = dir.resolve( "broken.csv.gz" );
+        Files.write( broken, Arrays.copyOf( bytes, bytes.length / 2 ) );
+
+        assertThatThrownBy( () -> new CSVObjectStream<Book>( broken )
+                .rowsAsList( Book::fromRow, Book::isBookRow ) )
+                .isInstanceOf( UncheckedIOException.class )
+                .hasCauseInstanceOf( EOFException.class );
+    }
+
+    @Test
+    void inflaterExceptionReachesReader() throws IOException {
+        IllegalStateException broken = new IllegalStateException( "broken" );
+        InputStream source = new InputStream() {
+            @Override
+            public int read() {
+                throw broken;
+            }
+        };
+
+        // before, the inflater died without queueing the end, and this hung
+        try ( InputStream in = new DecompressingInputStream( source ) ) {
+            assertThatThrownBy( in::readAllBytes )
+                    .isInstanceOf( IOException.class ).hasCause( broken );
+        }
+    }
+
+    @Test
+    void quotesAreSplitLikeBefore() throws IOException {
+        List<String> lines = List.of( "1;\"Title; part two\";x",
+                "2;\"say \"\"hi\"\"\" more;y", "3;\"unclosed;z" );
+        Path quoted = dir.resolve( "quoted.csv" );
+        Files.write( quoted, lines );
+
+        List<String[]> actual = new CSVObjectStream<String[]>( quoted )
+                .asList( as -> as, as -> true );
+
+        assertThat( actual ).hasSize( 3 );
+        for ( int i = 0; i < lines.size(); i++ ) {
+            assertThat( actual.get( i ) )
+                    .containsExactly( lines.get( i ).split( ";" ) );
+        }
+        assertThat( new CSVObjectStream<Integer>( quoted )
+                .rowsAsList( CSVRow::fieldCount, r -> true ) )
+                .containsExactly( 4, 3, 3 );
+        assertThat( new CSVObjectStream<Integer>( quoted ).quoted( true )
+                .rowsAsList( CSVRow::fieldCount, r -> true ) )
+                .containsExactly( 3, 3, 2 );
+    }
+
+    @Test
+    void rowWithoutYearIsSkippedLikeBefore() throws IOException {
+        Path trailing = dir.resolve( "trailing.csv" );
+        Files.write( trailing, List.of( "id;title;author;isbn;publisher;language;year",
+                "1;t;a;i;p;ENGLISH;", "2;t;a;i;p;DUTCH;;", "3;t;a;i;p;GERMAN;2001" ) );
+
+        List<Book> expected = new CSVObjectStream<Book>( trailing )
+                .asList( Book::fromStrings, ROW_FILTER );
+
+        assertThat( Book.loadFromPath( trailing, 1 ) ).extracting( Book::getId )
+                .containsExactly( 3L )
+                .containsExactlyElementsOf( expected.stream()
+                        .map( Book::getId ).collect( Collectors.toList() ) );
+    }
+
+    @Test
+    void rowsMayBeStreamedInParallelByCaller() throws IOException {
+        List<Book> expected = new CSVObjectStream<Book>( csv )
+                .rowsAsList( Book::fromRow, Book::isBookRow );
+
+        List<Book> actual;
+        try ( Stream<Book> books = new CSVObjectStream<Book>( csv )
+                .streamRows( Book::fromRow, Book::isBookRow ) ) {
+            actual = books.parallel().collect( Collectors.toList() );
+        }
+
+        assertThat( actual ).usingElementComparator( CSVObjectStreamTest::compareFields )
+                .containsExactlyElementsOf( expected );
+    }
+
+    static int compareFields( Book a, Book b ) {
+        return a.toString().compareTo( b.toString() );
+    }
+}
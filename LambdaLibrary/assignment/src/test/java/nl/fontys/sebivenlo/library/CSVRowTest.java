@@ -0,0 +1,114 @@
+package nl.fontys.sebivenlo.library;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tokenizer tests.
+ */
+public class CSVRowTest {
+
+    private final CSVRow row = new CSVRow( ";" );
+
+    @ParameterizedTest
+    @ValueSource( strings = { "", ";", "a", "a;b", "a;;b", "a;b;", "a;b;;",
+        ";a", "1;Head First;Eric Freeman;978-0596007126;O'Reilly;ENGLISH;2004" } )
+    void toStringArrayLikeSplit( String line ) {
+        assertThat( row.reset( line ).toStringArray() )
+                .containsExactly( line.split( ";" ) );
+    }
+
+    @Test
+    void fieldsAreViews() {
+        row.reset( "abc;de" );
+
+        assertThat( row.fieldCount() ).isEqualTo( 2 );
+        assertThat( row.field( 0 ).toString() ).isEqualTo( "abc" );
+        assertThat( row.field( 1 ).length() ).isEqualTo( 2 );
+        assertThat( row.field( 1 ).charAt( 1 ) ).isEqualTo( 'e' );
+        assertThat( row.field( 0 ) ).isSameAs( row.field( 0 ) );
+    }
+
+    @Test
+    void quotesArePlainByDefault() {
+        String line = "\"a;b\";c";
+
+        assertThat( row.reset( line ).toStringArray() )
+                .containsExactly( line.split( ";" ) );
+    }
+
+    @Test
+    void quotedFieldMayContainSeparatorAndQuotes() {
+        row.quoted( true ).reset( "\"a;b\";\"say \"\"hi\"\"\";c" );
+
+        assertThat( row.toStringArray() )
+                .containsExactly( "a;b", "say \"hi\"", "c" );
+        assertThat( row.field( 1 ).toString() ).isEqualTo( "say \"hi\"" );
+    }
+
+    @Test
+    void multiCharacterSeparatorIsLiteral() {
+        CSVRow r = new CSVRow( "||" );
+
+        assertThat( r.reset( "a||b|c||" ).toStringArray() )
+                .containsExactly( "a", "b|c" );
+    }
+
+    @Test
+    void primitives() {
+        row.reset( "42;-7;9223372036854775807;-9223372036854775808;+3;DUTCH" );
+
+        assertThat( row.getInt( 0 ) ).isEqualTo( 42 );
+        assertThat( row.getLong( 1 ) ).isEqualTo( -7L );
+        assertThat( row.getLong( 2 ) ).isEqualTo( Long.MAX_VALUE );
+        assertThat( row.getLong( 3 ) ).isEqualTo( Long.MIN_VALUE );
+        assertThat( row.getInt( 4 ) ).isEqualTo( 3 );
+        assertThat( row.getEnum( 5, Book.Language.class ) )
+                .isEqualTo( Book.Language.DUTCH );
+        assertThat( row.isDigits( 0 ) ).isTrue();
+        assertThat( row.isDigits( 1 ) ).isFalse();
+    }
+
+    @ParameterizedTest
+    @ValueSource( strings = { "", "-", "12a", "9223372036854775808", "1 " } )
+    void badNumbersThrowLikeParseLong( String field ) {
+        row.reset( field );
+
+        assertThatThrownBy( () -> row.getLong( 0 ) )
+                .isInstanceOf( NumberFormatException.class );
+        assertThatThrownBy( () -> Long.parseLong( field ) )
+                .isInstanceOf( NumberFormatException.class );
+    }
+
+    @Test
+    void intOverflowThrows() {
+        row.reset( "2147483648" );
+
+        assertThatThrownBy( () -> row.getInt( 0 ) )
+                .isInstanceOf( NumberFormatException.class );
+    }
+
+    @Test
+    void unknownEnumThrows() {
+        row.reset( "KLINGON" );
+
+        assertThatThrownBy( () -> row.getEnum( 0, Book.Language.class ) )
+                .isInstanceOf( IllegalArgumentException.class )
+                .hasMessageContaining( "KLINGON" );
+    }
+
+    @Test
+    void fromRowSameAsFromStrings() {
+        String line = "14;Practical Unit Testing with JUnit and Mockito;"
+                + "Tomasz Kaczanowski;8393489393;Kaczanowisk;ENGLISH;2013";
+
+        Book expected = Book.fromStrings( line.split( ";" ) );
+        Book actual = Book.fromRow( row.reset( line ) );
+
+        assertThat( actual.toString() ).isEqualTo( expected.toString() );
+    }
+}
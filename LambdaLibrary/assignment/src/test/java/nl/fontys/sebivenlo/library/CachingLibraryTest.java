@@ -0,0 +1,131 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The cache must give the results of the wrapped library, ask it once per
+ * term, evict the least recently used term and forget everything when the
+ * books change.
+ */
+public class CachingLibraryTest {
+
+    static List<Book> books;
+
+    /**
+     * Counts the searches that reach it and can pretend to reload.
+     */
+    static class CountingLibrary extends DefaultLibrary {
+
+        int searches;
+        long version;
+
+        CountingLibrary( List<Book> books ) {
+            super( books );
+        }
+
+        @Override
+        public List<Book> booksMatchSearchTerm( String searchTerm ) {
+            searches++;
+            return super.booksMatchSearchTerm( searchTerm );
+        }
+
+        @Override
+        public long version() {
+            return version;
+        }
+    }
+
+    CountingLibrary library;
+    CachingLibrary cache;
+
+    @BeforeAll
+    static void load() throws Exception {
+        books = Book.loadFromFile( "library.csv" );
+    }
+
+    @BeforeEach
+    void setUp() {
+        library = new CountingLibrary( books );
+        cache = new CachingLibrary( library, 2 );
+    }
+
+    @Test
+    void sameResultsAsLibrary() {
+        DefaultLibrary plain = new DefaultLibrary( books );
+        for ( String term : new String[]{ "java", "JAVA", "martin", "xyz", "" } ) {
+            assertThat( cache.booksMatchSearchTerm( term ) ).as( term )
+                    .containsExactlyElementsOf( plain.booksMatchSearchTerm( term ) );
+            assertThat( cache.authorsMatchSearchTerm( term ) ).as( term )
+                    .containsExactlyElementsOf( plain.authorsMatchSearchTerm( term ) );
+        }
+    }
+
+    @Test
+    void repeatedTermIsAHit() {
+        cache.booksMatchSearchTerm( "java" );
+        cache.booksMatchSearchTerm( "Java" );
+        cache.booksMatchSearchTerm( "JAVA" );
+
+        assertThat( library.searches ).isEqualTo( 1 );
+        assertThat( cache.missCount() ).isEqualTo( 1 );
+        assertThat( cache.hitCount() ).isEqualTo( 2 );
+    }
+
+    @Test
+    void authorsReuseBooksOfTerm() {
+        cache.booksMatchSearchTerm( "martin" );
+        cache.authorsMatchSearchTerm( "martin" );
+        cache.authorsMatchSearchTerm( "martin" );
+
+        assertThat( library.searches ).isEqualTo( 1 );
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvicted() {
+        cache.booksMatchSearchTerm( "a" );
+        cache.booksMatchSearchTerm( "b" );
+        cache.booksMatchSearchTerm( "a" ); // b is now the eldest
+        cache.booksMatchSearchTerm( "c" );
+
+        assertThat( cache.evictionCount() ).isEqualTo( 1 );
+        assertThat( cache.size() ).isEqualTo( 2 );
+        cache.booksMatchSearchTerm( "a" );
+        assertThat( library.searches ).isEqualTo( 3 );
+        cache.booksMatchSearchTerm( "b" );
+        assertThat( library.searches ).isEqualTo( 4 );
+    }
+
+    @Test
+    void newVersionEmptiesCache() {
+        cache.booksMatchSearchTerm( "java" );
+        library.version++;
+        cache.booksMatchSearchTerm( "java" );
+
+        assertThat( library.searches ).isEqualTo( 2 );
+        assertThat( cache.evictionCount() ).isZero();
+        assertThat( cache.version() ).isEqualTo( 1 );
+    }
+
+    @Test
+    void invalidateEmptiesCache() {
+        cache.booksMatchSearchTerm( "java" );
+        cache.invalidate();
+        cache.booksMatchSearchTerm( "java" );
+
+        assertThat( library.searches ).isEqualTo( 2 );
+        assertThat( cache.size() ).isEqualTo( 1 );
+    }
+
+    @Test
+    void capacityMustBePositive() {
+        assertThatThrownBy( () -> new CachingLibrary( library, 0 ) )
+                .isInstanceOf( IllegalArgumentException.class );
+    }
+}
@@ -0,0 +1,75 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * The columnar library must answer like the default library.
+ */
+public class ColumnarLibraryTest {
+
+    private List<Book> books;
+    private LibraryModel reference;
+    private ColumnarLibrary sut;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        books = Book.loadFromFile( "library.csv" );
+        reference = new DefaultLibrary( books );
+        sut = new ColumnarLibrary( books );
+    }
+
+    @Test
+    void booksAreMaterializedWithAllFields() {
+        assertThat( sut.getBooks() ).hasSize( books.size() );
+        for ( int i = 0; i < books.size(); i++ ) {
+            assertThat( sut.getBooks().get( i ).toString() )
+                    .isEqualTo( books.get( i ).toString() );
+        }
+    }
+
+    @Test
+    void loadFromFileSameAsFromList() throws Exception {
+        assertThat( ColumnarLibrary.loadFromFile( "library.csv" ).toString() )
+                .isEqualTo( sut.toString() );
+    }
+
+    @ParameterizedTest
+    @ValueSource( strings = { "", "e", "eric", "MARTIN", "2004", "978-0",
+        "english", "mitp", "für", "title", "=eric", "nothing" } )
+    void searchTermSameAsDefault( String term ) {
+        assertThat( sut.booksMatchSearchTerm( term ) )
+                .containsExactlyElementsOf( reference.booksMatchSearchTerm( term ) );
+        assertThat( sut.authorsMatchSearchTerm( term ) )
+                .containsExactlyElementsOf( reference.authorsMatchSearchTerm( term ) );
+    }
+
+    @Test
+    void rowScanSameAsPredicate() {
+        List<Book> expected = books.stream()
+                .filter( b -> b.getLanguage() == Book.Language.GERMAN
+                && b.getYearOfPublication() > 2009 )
+                .collect( Collectors.toList() );
+
+        assertThat( sut.booksMatchRows( r -> sut.language( r ) == Book.Language.GERMAN
+                && sut.year( r ) > 2009 ) )
+                .containsExactlyElementsOf( expected );
+        assertThat( sut.booksMatchPredicate( b -> b.getLanguage() == Book.Language.GERMAN
+                && b.getYearOfPublication() > 2009 ) )
+                .containsExactlyElementsOf( expected );
+    }
+
+    @ParameterizedTest
+    @ValueSource( longs = { 1, 9, 14, 15, 0 } )
+    void getBookById( long id ) {
+        assertThat( sut.getBookById( id ).toString() )
+                .isEqualTo( reference.getBookById( id ).toString() );
+    }
+}
@@ -0,0 +1,80 @@
+package nl.fontys.sebivenlo.library;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Values must land in a bucket that contains them, and percentiles must be
+ * within the bucket precision.
+ */
+public class HistogramTest {
+
+    @ParameterizedTest
+    @ValueSource( longs = { 0, 1, 31, 32, 33, 63, 64, 65, 1000, 123_456_789,
+        Long.MAX_VALUE / 3, Long.MAX_VALUE } )
+    void bucketContainsValue( long value ) {
+        int bucket = Histogram.bucket( value );
+
+        assertThat( bucket ).isBetween( 0, Histogram.BUCKETS - 1 );
+        assertThat( Histogram.lowest( bucket ) ).isLessThanOrEqualTo( value );
+        assertThat( Histogram.highest( bucket ) ).isGreaterThanOrEqualTo( value );
+    }
+
+    @Test
+    void bucketsAreContiguous() {
+        for ( int b = 1; b < Histogram.BUCKETS; b++ ) {
+            assertThat( Histogram.lowest( b ) ).isEqualTo( Histogram.highest( b - 1 ) + 1 );
+        }
+    }
+
+    @Test
+    void percentilesWithinPrecision() {
+        Histogram sut = new Histogram();
+        for ( long v = 1; v <= 100_000; v++ ) {
+            sut.record( v );
+        }
+
+        assertThat( sut.count() ).isEqualTo( 100_000 );
+        assertThat( sut.mean() ).isEqualTo( 50_000.5, within( 1e-9 ) );
+        assertThat( sut.max() ).isEqualTo( 100_000 );
+        assertThat( (double) sut.valueAtPercentile( 50 ) ).isCloseTo( 50_000,
+                within( 50_000.0 / Histogram.SUB_BUCKETS ) );
+        assertThat( (double) sut.valueAtPercentile( 99 ) ).isCloseTo( 99_000,
+                within( 99_000.0 / Histogram.SUB_BUCKETS ) );
+        assertThat( sut.valueAtPercentile( 100 ) ).isEqualTo( 100_000 );
+    }
+
+    @Test
+    void mergeAddsCounts() {
+        Histogram a = new Histogram();
+        Histogram b = new Histogram();
+        a.record( 10 );
+        b.record( 20 );
+        b.record( 5000 );
+
+        Histogram merged = a.copy().merge( b );
+
+        assertThat( merged.count() ).isEqualTo( 3 );
+        assertThat( merged.max() ).isEqualTo( 5000 );
+        assertThat( merged.valueAtPercentile( 50 ) ).isEqualTo( 20 );
+        assertThat( a.count() ).isEqualTo( 1 );
+    }
+
+    @Test
+    void resetEmpties() {
+        Histogram sut = new Histogram();
+        sut.record( 42 );
+        sut.record( -1 );
+
+        assertThat( sut.valueAtPercentile( 0 ) ).isZero();
+        sut.reset();
+
+        assertThat( sut.count() ).isZero();
+        assertThat( sut.max() ).isZero();
+        assertThat( sut.valueAtPercentile( 99 ) ).isZero();
+    }
+}
@@ -0,0 +1,70 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * The indexed library must find exactly what the default library finds.
+ */
+public class IndexedLibraryTest {
+
+    private LibraryModel reference;
+    private LibraryModel sut;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        List<Book> books = Book.loadFromFile( "library.csv" );
+        reference = new DefaultLibrary( books );
+        sut = new IndexedLibrary( books );
+    }
+
+    @ParameterizedTest
+    @ValueSource( strings = { "", "e", "Er", "eric", "Eric Freeman", "martin",
+        "MARTIN FOWLER", "2004", "978-0", "english", "german", "Kaczanowisk",
+        "title", "=eric", "head first", "book{", "1\n", "b", "Nothing like it",
+        "é", "für", "t", "ti", "le", "au", "or", "is", "an", "la" } )
+    void searchTermSameAsDefault( String term ) {
+        assertThat( sut.booksMatchSearchTerm( term ) )
+                .as( "search for '%s'", term )
+                .containsExactlyElementsOf( reference.booksMatchSearchTerm( term ) );
+    }
+
+    @ParameterizedTest
+    @ValueSource( strings = { "", "Eric", "robert", "o" } )
+    void authorsSameAsDefault( String term ) {
+        assertThat( sut.authorsMatchSearchTerm( term ) )
+                .as( "authors for '%s'", term )
+                .containsExactlyElementsOf( reference.authorsMatchSearchTerm( term ) );
+    }
+
+    @ParameterizedTest
+    @ValueSource( strings = { "title", "=eric", "bob", "book", "\n, " } )
+    void labelTermsAreNotIndexed( String term ) {
+        assertThat( IndexedLibrary.overlapsLabel( term ) ).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource( strings = { "", "t", "ti", "le", "au", "title", "book", "\n}" } )
+    void termsInLabelsMatchAll( String term ) {
+        assertThat( IndexedLibrary.inLabel( term ) ).isTrue();
+        assertThat( sut.booksMatchSearchTerm( term ) )
+                .containsExactlyElementsOf( reference.getBooks() );
+    }
+
+    @ParameterizedTest
+    @ValueSource( strings = { "=eric", "bob", "martin" } )
+    void termsNotInLabels( String term ) {
+        assertThat( IndexedLibrary.inLabel( term ) ).isFalse();
+    }
+
+    @ParameterizedTest
+    @ValueSource( strings = { "martin", "eric freeman", "2004", "english" } )
+    void valueTermsAreIndexed( String term ) {
+        assertThat( IndexedLibrary.overlapsLabel( term ) ).isFalse();
+    }
+}
@@ -0,0 +1,98 @@
+package nl.fontys.sebivenlo.library;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pooled strings must equal fresh ones, be shared when repeated and stay
+ * within the pool size whatever the number of distinct values.
+ */
+public class InternPoolTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void repeatedValueIsShared() {
+        InternPool sut = new InternPool( 16 );
+
+        String first = sut.intern( new StringBuilder( "Addison-Wesley" ) );
+        String second = sut.intern( "xxAddison-Wesleyxx", 2, 16 );
+
+        assertThat( second ).isEqualTo( "Addison-Wesley" ).isSameAs( first );
+        assertThat( sut.hits() ).isEqualTo( 1 );
+        assertThat( sut.misses() ).isEqualTo( 1 );
+        // 24 for the String, 16 + 14 padded to 32 for the bytes
+        assertThat( sut.savedBytes() ).isEqualTo( 56 );
+    }
+
+    @Test
+    void capacityIsPowerOfTwo() {
+        assertThat( new InternPool( 1 ).capacity() ).isEqualTo( 1 );
+        assertThat( new InternPool( 1000 ).capacity() ).isEqualTo( 1024 );
+        assertThat( new InternPool( 1024 ).capacity() ).isEqualTo( 1024 );
+    }
+
+    @Test
+    void footprintCountsWideChars() {
+        assertThat( InternPool.footprint( "" ) ).isEqualTo( 40 );
+        assertThat( InternPool.footprint( "abcdefghi" ) ).isEqualTo( 24 + 32 );
+        assertThat( InternPool.footprint( "€" ) ).isEqualTo( 24 + 24 );
+    }
+
+    @Test
+    void highCardinalityStaysCorrect() {
+        InternPool sut = new InternPool( 8 );
+
+        for ( int i = 0; i < 10_000; i++ ) {
+            String value = "isbn-" + i;
+            assertThat( sut.intern( value ) ).isEqualTo( value );
+        }
+
+        // each value is new, so nothing is saved and only 8 are kept
+        assertThat( sut.hits() ).isZero();
+        assertThat( sut.misses() ).isEqualTo( 10_000 );
+        assertThat( sut.capacity() ).isEqualTo( 8 );
+    }
+
+    @Test
+    void parallelLoadSharesPublishers() throws IOException {
+        StringBuilder sb = new StringBuilder( "id;title;author;isbn;publisher;language;year\n" );
+        for ( int i = 1; i <= 2000; i++ ) {
+            sb.append( i ).append( ";Title " ).append( i ).append( ";Author " )
+                    .append( i % 13 ).append( ";978-" ).append( i )
+                    .append( ";Publisher " ).append( i % 3 ).append( ";ENGLISH;2000\n" );
+        }
+        Path csv = dir.resolve( "books.csv" );
+        Files.write( csv, sb.toString().getBytes( StandardCharsets.UTF_8 ) );
+        List<Book> expected = new CSVObjectStream<Book>( csv )
+                .rowsAsList( Book::fromRow, Book::isBookRow );
+        InternPool publishers = new InternPool( 64 );
+
+        List<Book> actual = new CSVObjectStream<Book>( csv ).parallel( 4, 1000 )
+                .interning( 4, publishers )
+                .rowsAsList( Book::fromRow, Book::isBookRow );
+
+        assertThat( actual ).extracting( Book::toString )
+                .containsExactlyElementsOf( expected.stream()
+                        .map( Book::toString )::iterator );
+        Set<String> instances = Collections.newSetFromMap( new IdentityHashMap<>() );
+        actual.forEach( b -> instances.add( b.getPublisher() ) );
+        assertThat( instances ).hasSizeLessThanOrEqualTo( 3 * 4 );
+        // racing workers may each create a value once
+        assertThat( publishers.misses() ).isBetween( 3L, 3L * 4 );
+        assertThat( publishers.hits() + publishers.misses() ).isEqualTo( 2000 );
+        assertThat( publishers.savedBytes() ).isPositive();
+    }
+}
@@ -0,0 +1,150 @@
+package nl.fontys.sebivenlo.library;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A reload must apply exactly the differences of the file, keep the books
+ * that did not change and be picked up by the watcher.
+ */
+public class LibraryReloaderTest {
+
+    @TempDir
+    Path dir;
+
+    Path csv;
+    List<String> lines;
+    LibraryReloader sut;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        csv = dir.resolve( "library.csv" );
+        Files.copy( Paths.get( "library.csv" ), csv );
+        lines = new ArrayList<>( Files.readAllLines( csv ) );
+        sut = new LibraryReloader( csv );
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        sut.close();
+    }
+
+    /**
+     * Rewrite the file: book 3 edited, book 5 removed, book 15 added.
+     */
+    void rewrite() throws IOException {
+        lines.replaceAll( l -> l.startsWith( "3;" )
+                ? l.replace( "Erich Gamma", "Erich Gamma et al." ) : l );
+        lines.removeIf( l -> l.startsWith( "5;" ) );
+        lines.add( "15;New Book;New Author;1;New Publisher;DUTCH;2020" );
+        // written aside and moved in, as an export would
+        Path tmp = dir.resolve( "library.csv.tmp" );
+        Files.write( tmp, lines );
+        Files.move( tmp, csv, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE );
+    }
+
+    @Test
+    void reloadAppliesDifferences() throws IOException {
+        Book unchanged = sut.getBookById( 14 );
+        rewrite();
+
+        LibraryReloader.Changes changes = sut.reload();
+
+        assertThat( changes.getInserted() ).extracting( Book::getId )
+                .containsExactly( 15L );
+        assertThat( changes.getUpdated() ).extracting( Book::getId )
+                .containsExactly( 3L );
+        assertThat( changes.getDeleted() ).extracting( Book::getId )
+                .containsExactly( 5L );
+        assertThat( sut.version() ).isEqualTo( 1 );
+        assertThat( sut.getBookById( 3 ).getAuthor() )
+                .isEqualTo( "Erich Gamma et al." );
+        assertThat( sut.getBookById( 5 ) ).isSameAs( DefaultLibrary.NULL_OBJECT_BOOK );
+        assertThat( sut.getBookById( 14 ) ).isSameAs( unchanged );
+        assertThat( sut.getBookById( 15 ).getTitle() ).isEqualTo( "New Book" );
+    }
+
+    @Test
+    void reloadedLibraryEqualsFreshLoad() throws IOException {
+        rewrite();
+        sut.reload();
+
+        // unchanged books keep their place, new books go last
+        List<Book> expected = new ArrayList<>( Book.loadFromPath( csv, 1 ) );
+        assertThat( sut.getBooks() ).extracting( Book::toString )
+                .containsExactlyElementsOf( expected.stream()
+                        .map( Book::toString )::iterator );
+        for ( Book b : expected ) {
+            assertThat( sut.getBookById( b.getId() ).sameContent( b ) ).isTrue();
+        }
+        assertThat( sut.booksMatchSearchTerm( "new author" ) ).hasSize( 1 );
+        assertThat( sut.booksMatchPredicate( Query.language( Book.Language.DUTCH ) ) )
+                .extracting( Book::getId ).containsExactly( 15L );
+    }
+
+    @Test
+    void sameSizeAndTimeIsStillReread() throws IOException {
+        FileTime time = Files.getLastModifiedTime( csv );
+        lines.replaceAll( l -> l.startsWith( "14;" ) ? l.replace( "2013", "2014" ) : l );
+        long size = Files.size( csv );
+        Files.write( csv, lines );
+        Files.setLastModifiedTime( csv, time );
+        assertThat( Files.size( csv ) ).isEqualTo( size );
+
+        LibraryReloader.Changes changes = sut.reload();
+
+        assertThat( changes.getUpdated() ).extracting( Book::getId )
+                .containsExactly( 14L );
+        assertThat( sut.getBookById( 14 ).getYearOfPublication() ).isEqualTo( 2014 );
+    }
+
+    @Test
+    void unchangedFileChangesNothing() throws IOException {
+        DefaultLibrary before = sut.current();
+
+        assertThat( sut.reload().isEmpty() ).isTrue();
+        assertThat( sut.current() ).isSameAs( before );
+        assertThat( sut.version() ).isZero();
+    }
+
+    @Test
+    void oldLibraryStaysIntact() throws IOException {
+        DefaultLibrary before = sut.current();
+        String text = before.toString();
+        rewrite();
+
+        sut.reload();
+
+        assertThat( before.toString() ).isEqualTo( text );
+        assertThat( before.getBookById( 5 ).getId() ).isEqualTo( 5 );
+        assertThat( sut.current() ).isNotSameAs( before );
+    }
+
+    @Test
+    void watcherReloads() throws Exception {
+        sut.start();
+        rewrite();
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while ( sut.version() == 0 && System.currentTimeMillis() < deadline ) {
+            Thread.sleep( 50 );
+        }
+
+        assertThat( sut.version() ).isEqualTo( 1 );
+        assertThat( sut.getBookById( 15 ).getTitle() ).isEqualTo( "New Book" );
+    }
+}
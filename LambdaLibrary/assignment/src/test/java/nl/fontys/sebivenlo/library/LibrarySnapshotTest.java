@@ -0,0 +1,126 @@
+package nl.fontys.sebivenlo.library;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Snapshot round trip and invalidation.
+ */
+public class LibrarySnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    Path csv;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        csv = dir.resolve( "library.csv" );
+        Files.copy( Paths.get( "library.csv" ), csv );
+    }
+
+    @Test
+    void firstOpenWritesSnapshot() throws IOException {
+        LibrarySnapshot.open( csv );
+
+        assertThat( LibrarySnapshot.snapshotPath( csv ) ).isRegularFile();
+    }
+
+    @Test
+    void snapshotGivesSameLibrary() throws IOException {
+        ColumnarLibrary parsed = LibrarySnapshot.open( csv );
+        ColumnarLibrary cached = LibrarySnapshot.read( LibrarySnapshot
+                .snapshotPath( csv ), Files.size( csv ), Files
+                .getLastModifiedTime( csv ).toMillis() );
+
+        assertThat( cached ).isNotNull();
+        assertThat( cached.toString() ).isEqualTo( parsed.toString() );
+        assertThat( cached.getBookById( 14 ).getTitle() )
+                .isEqualTo( "Practical Unit Testing with JUnit and Mockito" );
+        assertThat( cached.booksMatchSearchTerm( "martin" ) )
+                .containsExactlyElementsOf( parsed.booksMatchSearchTerm( "martin" ) );
+    }
+
+    @Test
+    void changedSourceIsReparsed() throws IOException {
+        LibrarySnapshot.open( csv );
+        Files.write( csv, "15;New Book;New Author;1;New Publisher;DUTCH;2020\n"
+                .getBytes(), StandardOpenOption.APPEND );
+        Files.setLastModifiedTime( csv, FileTime.fromMillis( System
+                .currentTimeMillis() + 10_000 ) );
+
+        assertThat( LibrarySnapshot.read( LibrarySnapshot.snapshotPath( csv ),
+                Files.size( csv ), Files.getLastModifiedTime( csv ).toMillis() ) )
+                .isNull();
+        assertThat( LibrarySnapshot.open( csv ).getBookById( 15 ).getTitle() )
+                .isEqualTo( "New Book" );
+    }
+
+    @Test
+    void corruptSnapshotIsIgnored() throws IOException {
+        LibrarySnapshot.open( csv );
+        Path snapshot = LibrarySnapshot.snapshotPath( csv );
+        byte[] bytes = Files.readAllBytes( snapshot );
+        Files.write( snapshot, java.util.Arrays.copyOf( bytes, bytes.length / 2 ) );
+
+        assertThat( LibrarySnapshot.open( csv ).size() ).isEqualTo( 14 );
+    }
+
+    @Test
+    void hugeCountIsRejectedBeforeAllocating() throws IOException {
+        LibrarySnapshot.open( csv );
+        Path snapshot = LibrarySnapshot.snapshotPath( csv );
+        byte[] bytes = Files.readAllBytes( snapshot );
+        // the book count follows magic, version, source size and time
+        ByteBuffer.wrap( bytes ).putInt( 24, Integer.MAX_VALUE );
+        Files.write( snapshot, bytes );
+
+        assertThatThrownBy( () -> LibrarySnapshot.read( snapshot,
+                Files.size( csv ), Files.getLastModifiedTime( csv ).toMillis() ) )
+                .isInstanceOf( IOException.class );
+        assertThat( LibrarySnapshot.readIfCurrent( csv ) ).isNull();
+    }
+
+    @Test
+    void badCodeIsRejectedAtOpen() throws IOException {
+        LibrarySnapshot.open( csv );
+        Path snapshot = LibrarySnapshot.snapshotPath( csv );
+        byte[] bytes = Files.readAllBytes( snapshot );
+        ByteBuffer buf = ByteBuffer.wrap( bytes );
+        int size = buf.getInt( 24 );
+        int indexCapacity = buf.getInt( 40 );
+        // header, ids, index keys and years come before the author codes
+        int authors = 48 + size * Long.BYTES + indexCapacity * Long.BYTES
+                + size * Short.BYTES;
+        buf.putInt( authors, 1_000 );
+        Files.write( snapshot, bytes );
+
+        assertThatThrownBy( () -> LibrarySnapshot.read( snapshot,
+                Files.size( csv ), Files.getLastModifiedTime( csv ).toMillis() ) )
+                .isInstanceOf( IOException.class );
+    }
+
+    @Test
+    void failedMoveLeavesNoTemporaryFile() throws IOException {
+        Path snapshot = LibrarySnapshot.snapshotPath( csv );
+        // a non empty directory cannot be replaced by a file
+        Files.createDirectories( snapshot.resolve( "occupied" ) );
+
+        LibrarySnapshot.open( csv );
+
+        assertThat( snapshot.resolveSibling( snapshot.getFileName() + ".tmp" ) )
+                .doesNotExist();
+    }
+}
@@ -0,0 +1,87 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compare the map against a HashMap under random puts and removes.
+ */
+public class LongIndexMapTest {
+
+    @Test
+    void behavesLikeHashMap() {
+        Random random = new Random( 42 );
+        LongIndexMap sut = new LongIndexMap( 4 );
+        Map<Long, Integer> oracle = new HashMap<>();
+        for ( int i = 0; i < 20_000; i++ ) {
+            // small key range gives many collisions and removals of present keys
+            long key = random.nextInt( 3000 ) - 1000;
+            if ( random.nextInt( 3 ) == 0 ) {
+                Integer expected = oracle.remove( key );
+                assertThat( sut.remove( key ) )
+                        .isEqualTo( expected == null ? LongIndexMap.NOT_FOUND : expected );
+            } else {
+                oracle.put( key, i );
+                sut.put( key, i );
+            }
+        }
+        assertThat( sut.size() ).isEqualTo( oracle.size() );
+        for ( long key = -1000; key < 2000; key++ ) {
+            Integer expected = oracle.get( key );
+            assertThat( sut.get( key ) ).as( "key %d", key )
+                    .isEqualTo( expected == null ? LongIndexMap.NOT_FOUND : expected );
+        }
+    }
+
+    @Test
+    void extremeKeys() {
+        LongIndexMap sut = new LongIndexMap( 2 );
+        sut.put( Long.MIN_VALUE, 1 );
+        sut.put( Long.MAX_VALUE, 2 );
+        sut.put( 0L, 3 );
+
+        assertThat( sut.get( Long.MIN_VALUE ) ).isEqualTo( 1 );
+        assertThat( sut.get( Long.MAX_VALUE ) ).isEqualTo( 2 );
+        assertThat( sut.get( 0L ) ).isEqualTo( 3 );
+        assertThat( sut.get( -1L ) ).isEqualTo( LongIndexMap.NOT_FOUND );
+    }
+
+    @Test
+    void copyIsIndependent() {
+        LongIndexMap sut = new LongIndexMap( 2 );
+        sut.put( 1L, 10 );
+        LongIndexMap copy = sut.copy();
+        copy.put( 2L, 20 );
+        copy.remove( 1L );
+
+        assertThat( sut.get( 1L ) ).isEqualTo( 10 );
+        assertThat( sut.get( 2L ) ).isEqualTo( LongIndexMap.NOT_FOUND );
+        assertThat( copy.get( 2L ) ).isEqualTo( 20 );
+        assertThat( copy.size() ).isEqualTo( 1 );
+    }
+
+    @Test
+    void putIfAbsentKeepsFirst() {
+        LongIndexMap sut = new LongIndexMap( 2 );
+
+        assertThat( sut.putIfAbsent( 7L, 1 ) ).isTrue();
+        assertThat( sut.putIfAbsent( 7L, 2 ) ).isFalse();
+        assertThat( sut.get( 7L ) ).isEqualTo( 1 );
+    }
+
+    @Test
+    void libraryFindsFirstOfDuplicateIds() {
+        Book first = new Book( 5, "first", "", "", "", Book.Language.DUTCH, 2000 );
+        Book second = new Book( 5, "second", "", "", "", Book.Language.DUTCH, 2001 );
+        LibraryModel library = new DefaultLibrary( List.of( first, second ) );
+
+        assertThat( library.getBookById( 5 ).getTitle() ).isEqualTo( "first" );
+        assertThat( library.getBookById( 6 ) ).isSameAs( DefaultLibrary.NULL_OBJECT_BOOK );
+    }
+}
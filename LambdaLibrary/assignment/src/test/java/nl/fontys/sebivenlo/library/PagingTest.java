@@ -0,0 +1,122 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Comparator.comparing;
+import static nl.fontys.sebivenlo.library.Query.language;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Pages and top k lists must be the slices of the full, sorted results, for
+ * every library.
+ */
+public class PagingTest {
+
+    static List<Book> books;
+
+    static final Comparator<Book> NEWEST_FIRST
+            = comparing( Book::getYearOfPublication ).reversed();
+
+    @BeforeAll
+    static void load() throws Exception {
+        books = Book.loadFromFile( "library.csv" );
+    }
+
+    static Stream<Arguments> libraries() {
+        return Stream.<Function<List<Book>, LibraryModel>>of( DefaultLibrary::new,
+                IndexedLibrary::new, ColumnarLibrary::new,
+                b -> new CachingLibrary( new DefaultLibrary( b ), 4 ) )
+                .flatMap( lib -> Stream.of( "e", "java", "martin", "title", "xyz" )
+                .map( term -> Arguments.of( lib.apply( books ), term ) ) );
+    }
+
+    @ParameterizedTest
+    @MethodSource( "libraries" )
+    void pagesAreSlicesOfResult( LibraryModel lib, String term ) {
+        List<Book> all = lib.booksMatchSearchTerm( term );
+        for ( int offset : new int[]{ 0, 1, 3, 20 } ) {
+            for ( int limit : new int[]{ 0, 1, 2, 100 } ) {
+                assertThat( lib.booksMatchSearchTerm( term, offset, limit ) )
+                        .as( term + " " + offset + " " + limit )
+                        .containsExactlyElementsOf( slice( all, offset, limit ) );
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource( "libraries" )
+    void topKIsHeadOfSortedResult( LibraryModel lib, String term ) {
+        List<Book> all = lib.booksMatchSearchTerm( term );
+        for ( int k : new int[]{ 0, 1, 3, 100 } ) {
+            assertThat( lib.topBooksMatchSearchTerm( term, NEWEST_FIRST, k ) )
+                    .as( term + " " + k )
+                    .containsExactlyElementsOf( all.stream().sorted( NEWEST_FIRST )
+                            .limit( k ).collect( Collectors.toList() ) );
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource( "libraries" )
+    void queryPagesAndTopK( LibraryModel lib, String term ) {
+        Query query = language( Book.Language.ENGLISH ).and(
+                b -> b.getTitle().toLowerCase().contains( term ) );
+        List<Book> all = lib.booksMatchPredicate( query );
+
+        assertThat( lib.booksMatchPredicate( query, 1, 2 ) )
+                .containsExactlyElementsOf( slice( all, 1, 2 ) );
+        assertThat( lib.topBooksMatchPredicate( query, NEWEST_FIRST, 3 ) )
+                .containsExactlyElementsOf( all.stream().sorted( NEWEST_FIRST )
+                        .limit( 3 ).collect( Collectors.toList() ) );
+    }
+
+    @Test
+    void pageStopsEarly() {
+        AtomicInteger tested = new AtomicInteger();
+        List<Book> page = new DefaultLibrary( books ).booksMatchPredicate( b -> {
+            tested.incrementAndGet();
+            return true;
+        }, 2, 3 );
+
+        assertThat( page ).containsExactlyElementsOf( books.subList( 2, 5 ) );
+        assertThat( tested ).hasValue( 5 );
+    }
+
+    @Test
+    void negativePageIsRejected() {
+        LibraryModel lib = new DefaultLibrary( books );
+        assertThatThrownBy( () -> lib.booksMatchSearchTerm( "e", -1, 10 ) )
+                .isInstanceOf( IllegalArgumentException.class );
+        assertThatThrownBy( () -> lib.booksMatchSearchTerm( "e", 0, -1 ) )
+                .isInstanceOf( IllegalArgumentException.class );
+        assertThatThrownBy( () -> lib.topBooksMatchSearchTerm( "e",
+                NEWEST_FIRST, -1 ) )
+                .isInstanceOf( IllegalArgumentException.class );
+    }
+
+    @Test
+    void topKKeepsOfferOrderOfTies() {
+        TopK<String> top = new TopK<>( comparing( String::length ), 3 );
+        for ( String s : new String[]{ "ccc", "a", "bb", "b", "dd", "c", "e" } ) {
+            top.offer( s );
+        }
+
+        assertThat( top.toList() ).containsExactly( "a", "b", "c" );
+    }
+
+    static <T> List<T> slice( List<T> all, int offset, int limit ) {
+        return all.stream().skip( offset ).limit( limit )
+                .collect( Collectors.toList() );
+    }
+}
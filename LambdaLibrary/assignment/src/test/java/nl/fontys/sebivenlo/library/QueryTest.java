@@ -0,0 +1,92 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static nl.fontys.sebivenlo.library.Book.Language.ENGLISH;
+import static nl.fontys.sebivenlo.library.Book.Language.GERMAN;
+import static nl.fontys.sebivenlo.library.Query.authorEquals;
+import static nl.fontys.sebivenlo.library.Query.language;
+import static nl.fontys.sebivenlo.library.Query.matching;
+import static nl.fontys.sebivenlo.library.Query.publisherEquals;
+import static nl.fontys.sebivenlo.library.Query.yearBetween;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Indexed query evaluation must give what a plain filter gives.
+ */
+public class QueryTest {
+
+    static List<Book> books;
+
+    @BeforeAll
+    static void load() throws Exception {
+        books = Book.loadFromFile( "library.csv" );
+    }
+
+    static Stream<Arguments> queries() {
+        return Stream.of(
+                Arguments.of( language( GERMAN ) ),
+                Arguments.of( language( ENGLISH ).and( yearBetween( 2000, 2010 ) ) ),
+                Arguments.of( yearBetween( 1990, 2000 ) ),
+                Arguments.of( yearBetween( 2010, 2000 ) ),
+                Arguments.of( authorEquals( "Martin Fowler" ) ),
+                Arguments.of( authorEquals( "Nobody" ).and( language( ENGLISH ) ) ),
+                Arguments.of( publisherEquals( "Addison Wesley" )
+                        .and( yearBetween( 2000, 2100 ) )
+                        .and( b -> b.getTitle().contains( "Java" ) ) ),
+                Arguments.of( matching( b -> b.getId() % 2 == 0 ) ),
+                Arguments.of( matching( b -> b.getId() > 3 ).and( language( GERMAN ) ) )
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource( "queries" )
+    void defaultLibrarySameAsFilter( Query query ) {
+        assertThat( new DefaultLibrary( books ).booksMatchPredicate( query ) )
+                .as( query.toString() )
+                .containsExactlyElementsOf( filtered( query ) );
+    }
+
+    @ParameterizedTest
+    @MethodSource( "queries" )
+    void columnarLibrarySameAsFilter( Query query ) {
+        assertThat( new ColumnarLibrary( books ).booksMatchPredicate( query ) )
+                .as( query.toString() )
+                .containsExactlyElementsOf( filtered( query ) );
+    }
+
+    @Test
+    void planDrivesOnMostSelectiveTerm() {
+        QueryIndex index = QueryIndex.of( books );
+
+        QueryIndex.Plan plan = index.plan( language( ENGLISH )
+                .and( authorEquals( "Robert C. Martin" ) ) );
+
+        assertThat( plan.rows ).containsExactly( 8, 9 );
+        plan = index.plan( language( ENGLISH ).and( yearBetween( 2013, 2013 ) ) );
+        assertThat( plan.rows ).containsExactly( 7, 13 );
+    }
+
+    @Test
+    void opaqueOnlyQueryIsNotPlanned() {
+        assertThat( QueryIndex.of( books ).plan( matching( b -> true ) ) ).isNull();
+    }
+
+    @Test
+    void readableToString() {
+        assertThat( language( GERMAN ).and( yearBetween( 1, 2 ) ) )
+                .hasToString( "language == GERMAN and year in [1, 2]" );
+    }
+
+    private static List<Book> filtered( Query query ) {
+        return books.stream().filter( query ).collect( Collectors.toList() );
+    }
+}
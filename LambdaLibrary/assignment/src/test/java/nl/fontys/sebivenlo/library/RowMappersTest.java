@@ -0,0 +1,119 @@
+package nl.fontys.sebivenlo.library;
+
+import java.nio.file.Paths;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * A generated mapper must create what a hand written one creates, and fail
+ * early on a constructor it cannot fill.
+ */
+public class RowMappersTest {
+
+    static final String LINE = "3;Design Patterns;Erich Gamma;978-0201633610;"
+            + "Addison Wesley;ENGLISH;1994";
+
+    /**
+     * Entity with boxed and reordered columns.
+     */
+    public static class Edition {
+
+        final Integer year;
+        final Long id;
+        final Book.Language language;
+
+        public Edition( Integer year, Long id, Book.Language language ) {
+            this.year = year;
+            this.id = id;
+            this.language = language;
+        }
+    }
+
+    /**
+     * Entity whose constructor declares a checked exception.
+     */
+    public static class Checked {
+
+        public Checked( String title ) throws Exception {
+            throw new Exception( title );
+        }
+    }
+
+    static final Function<CSVRow, Book> BOOKS = RowMappers.of( Book.class,
+            long.class, String.class, String.class, String.class, String.class,
+            Book.Language.class, int.class );
+
+    @Test
+    void mapsLikeFromRow() {
+        CSVRow row = new CSVRow( ";" ).reset( LINE );
+
+        assertThat( BOOKS.apply( row ).toString() )
+                .isEqualTo( Book.fromRow( row ).toString() );
+    }
+
+    @Test
+    void mappersAreCached() {
+        assertThat( RowMappers.of( Book.class, long.class, String.class,
+                String.class, String.class, String.class, Book.Language.class,
+                int.class ) ).isSameAs( BOOKS );
+    }
+
+    @Test
+    void chosenColumnsAndBoxedTypes() {
+        Function<CSVRow, Edition> sut = RowMappers.of( Edition.class,
+                new int[]{ 6, 0, 5 }, Integer.class, Long.class,
+                Book.Language.class );
+
+        Edition edition = sut.apply( new CSVRow( ";" ).reset( LINE ) );
+
+        assertThat( edition.year ).isEqualTo( 1994 );
+        assertThat( edition.id ).isEqualTo( 3L );
+        assertThat( edition.language ).isEqualTo( Book.Language.ENGLISH );
+    }
+
+    @Test
+    void badFieldFailsLikeGetter() {
+        CSVRow row = new CSVRow( ";" ).reset( "x;t;a;i;p;ENGLISH;1994" );
+
+        assertThatThrownBy( () -> BOOKS.apply( row ) )
+                .isInstanceOf( NumberFormatException.class );
+    }
+
+    @Test
+    void checkedExceptionIsWrapped() {
+        Function<CSVRow, Checked> sut = RowMappers.of( Checked.class,
+                new int[]{ 1 }, String.class );
+
+        assertThatThrownBy( () -> sut.apply( new CSVRow( ";" ).reset( LINE ) ) )
+                .isInstanceOf( IllegalStateException.class )
+                .hasRootCauseMessage( "Design Patterns" );
+    }
+
+    @Test
+    void unknownConstructorOrTypeRejected() {
+        assertThatThrownBy( () -> RowMappers.of( Book.class, long.class ) )
+                .isInstanceOf( IllegalArgumentException.class )
+                .hasMessageContaining( "constructor" );
+        assertThatThrownBy( () -> RowMappers.of( StringBuilder.class,
+                CharSequence.class ) )
+                .isInstanceOf( IllegalArgumentException.class )
+                .hasMessageContaining( "getter" );
+        assertThatThrownBy( () -> RowMappers.of( Edition.class, new int[]{ 0 },
+                Integer.class, Long.class ) )
+                .isInstanceOf( IllegalArgumentException.class );
+    }
+
+    @Test
+    void parallelStreamWithMapper() throws Exception {
+        assertThat( new CSVObjectStream<Book>( Paths.get( "library.csv" ) )
+                .parallel( 2, 64 )
+                .rowsAsList( BOOKS, Book::isBookRow ) )
+                .extracting( Book::toString )
+                .containsExactlyElementsOf( Book.loadFromFile( "library.csv" )
+                        .stream().map( Book::toString )::iterator );
+    }
+}
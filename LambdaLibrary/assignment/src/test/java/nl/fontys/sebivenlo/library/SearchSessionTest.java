@@ -0,0 +1,92 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A session must give the same answers as a fresh search, while narrowing
+ * searches avoid the library.
+ */
+public class SearchSessionTest {
+
+    private int fullSearches;
+    private long version;
+    private LibraryModel library;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        List<Book> books = Book.loadFromFile( "library.csv" );
+        library = new DefaultLibrary( books ) {
+            @Override
+            public List<Book> booksMatchSearchTerm( String searchTerm ) {
+                fullSearches++;
+                return super.booksMatchSearchTerm( searchTerm );
+            }
+
+            @Override
+            public long version() {
+                return version;
+            }
+        };
+    }
+
+    @Test
+    void typingAndDeletingGivesSameResultsAsFullSearch() {
+        SearchSession session = library.searchSession();
+        String[] typed = { "", "M", "Ma", "Mar", "Mart", "Martin", "Mart",
+            "Rob", "Robert C", "" };
+        SoftAssertions.assertSoftly( softly -> {
+            for ( String term : typed ) {
+                softly.assertThat( session.search( term ) )
+                        .as( "session search for '%s'", term )
+                        .containsExactlyElementsOf( new DefaultLibrary(
+                                library.getBooks() ).booksMatchSearchTerm( term ) );
+            }
+        } );
+    }
+
+    @Test
+    void narrowingDoesNotSearchLibrary() {
+        SearchSession session = library.searchSession();
+        session.search( "r" );
+        session.search( "ro" );
+        session.search( "rob" );
+        session.search( "ROBERT" );
+
+        assertThat( fullSearches ).isEqualTo( 1 );
+    }
+
+    @Test
+    void resetForcesFullSearch() {
+        SearchSession session = library.searchSession();
+        session.search( "r" );
+        session.reset();
+        session.search( "ro" );
+
+        assertThat( fullSearches ).isEqualTo( 2 );
+    }
+
+    @Test
+    void afterEmptyTermFullSearch() {
+        SearchSession session = library.searchSession();
+        session.search( "" );
+        session.search( "r" );
+
+        assertThat( fullSearches ).isEqualTo( 1 );
+    }
+
+    @Test
+    void newVersionForcesFullSearch() {
+        SearchSession session = library.searchSession();
+        session.search( "r" );
+        version++;
+        session.search( "ro" );
+
+        assertThat( fullSearches ).isEqualTo( 2 );
+    }
+}
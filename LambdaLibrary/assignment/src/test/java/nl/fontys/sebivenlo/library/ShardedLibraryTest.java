@@ -0,0 +1,136 @@
+package nl.fontys.sebivenlo.library;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.util.Comparator.comparing;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * A library split over files must answer like one library over all books,
+ * and must pick up a reloaded shard.
+ */
+public class ShardedLibraryTest {
+
+    @TempDir
+    Path dir;
+
+    List<Path> files = new ArrayList<>();
+    DefaultLibrary reference;
+    ShardedLibrary sut;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        List<String> lines = Files.readAllLines( Paths.get( "library.csv" ) );
+        // shards of 5, 5 and the rest, the first with the header line
+        int[] cuts = { 0, 6, 11, lines.size() };
+        for ( int i = 0; i + 1 < cuts.length; i++ ) {
+            Path file = dir.resolve( "branch" + i + ".csv" );
+            Files.write( file, lines.subList( cuts[ i ], cuts[ i + 1 ] ) );
+            files.add( file );
+        }
+        reference = new DefaultLibrary( Book.loadFromFile( "library.csv" ) );
+        sut = ShardedLibrary.load( files );
+    }
+
+    @Test
+    void booksAreInFileOrder() {
+        assertThat( sut.shardCount() ).isEqualTo( 3 );
+        assertThat( sut.getBooks() ).containsExactlyElementsOf( reference
+                .getBooks() );
+        assertThat( sut.toString() ).isEqualTo( reference.toString() );
+    }
+
+    @ParameterizedTest
+    @ValueSource( strings = { "", "e", "java", "martin", "addison", "xyz" } )
+    void searchesSameAsOneLibrary( String term ) {
+        assertThat( sut.booksMatchSearchTerm( term ) )
+                .containsExactlyElementsOf( reference.booksMatchSearchTerm( term ) );
+        assertThat( sut.authorsMatchSearchTerm( term ) )
+                .containsExactlyElementsOf( reference.authorsMatchSearchTerm( term ) );
+        assertThat( sut.booksMatchSearchTerm( term, 2, 4 ) )
+                .containsExactlyElementsOf( reference.booksMatchSearchTerm( term, 2, 4 ) );
+        assertThat( sut.topBooksMatchSearchTerm( term, comparing(
+                Book::getYearOfPublication ), 3 ) )
+                .containsExactlyElementsOf( reference.topBooksMatchSearchTerm(
+                        term, comparing( Book::getYearOfPublication ), 3 ) );
+    }
+
+    @Test
+    void predicateSameAsOneLibrary() {
+        Query query = Query.language( Book.Language.ENGLISH ).and(
+                Query.yearBetween( 2000, 2010 ) );
+
+        assertThat( sut.booksMatchPredicate( query ) )
+                .containsExactlyElementsOf( reference.booksMatchPredicate( query ) );
+        assertThat( sut.booksMatchPredicate( query, 1, 3 ) )
+                .containsExactlyElementsOf( reference.booksMatchPredicate( query, 1, 3 ) );
+    }
+
+    @Test
+    void idsFoundInAllShards() {
+        for ( long id = 0; id <= 15; id++ ) {
+            assertThat( sut.getBookById( id ).toString() )
+                    .isEqualTo( reference.getBookById( id ).toString() );
+        }
+    }
+
+    @Test
+    void fuzzyMatchesMerged() {
+        assertThat( sut.booksFuzzyMatch( "Robrt Martn", 3, 0.3 ) )
+                .extracting( TrigramIndex.Match::getSimilarity )
+                .containsExactlyElementsOf( reference.booksFuzzyMatch(
+                        "Robrt Martn", 3, 0.3 ).stream()
+                        .map( TrigramIndex.Match::getSimilarity )
+                        .collect( Collectors.toList() ) );
+    }
+
+    @Test
+    void reloadReplacesOneShard() throws IOException {
+        LibraryModel untouched = sut.shard( 0 );
+        long version = sut.version();
+        Files.write( files.get( 1 ), "15;New Book;New Author;1;New Publisher;DUTCH;2020\n"
+                .getBytes(), StandardOpenOption.APPEND );
+
+        sut.reloadShard( 1 );
+
+        assertThat( sut.version() ).isGreaterThan( version );
+        assertThat( sut.shard( 0 ) ).isSameAs( untouched );
+        assertThat( sut.getBookById( 15 ).getTitle() ).isEqualTo( "New Book" );
+        assertThat( sut.booksMatchSearchTerm( "new author" ) ).hasSize( 1 );
+        assertThat( sut.getBooks() ).hasSize( reference.getBooks().size() + 1 );
+    }
+
+    @Test
+    void missingFileFailsLoad() {
+        files.add( dir.resolve( "missing.csv" ) );
+
+        assertThatThrownBy( () -> ShardedLibrary.load( files ) )
+                .isInstanceOf( IOException.class );
+    }
+
+    @Test
+    void cacheSeesReload() throws IOException {
+        CachingLibrary cache = new CachingLibrary( sut, 10 );
+        assertThat( cache.booksMatchSearchTerm( "new author" ) ).isEmpty();
+        Files.write( files.get( 2 ), "15;New Book;New Author;1;New Publisher;DUTCH;2020\n"
+                .getBytes(), StandardOpenOption.APPEND );
+
+        sut.reloadShard( 2 );
+
+        assertThat( cache.booksMatchSearchTerm( "new author" ) ).hasSize( 1 );
+    }
+}
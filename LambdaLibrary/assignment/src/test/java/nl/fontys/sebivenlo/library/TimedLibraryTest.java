@@ -0,0 +1,112 @@
+package nl.fontys.sebivenlo.library;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Timed calls must return what the library returns and be counted, in the
+ * histograms, through JMX and as flight recorder events.
+ */
+public class TimedLibraryTest {
+
+    @TempDir
+    Path dir;
+
+    DefaultLibrary library;
+    TimedLibrary sut;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        library = new DefaultLibrary( Book.loadFromFile( "library.csv" ) );
+        sut = new TimedLibrary( library );
+    }
+
+    @Test
+    void callsAreRecorded() {
+        assertThat( sut.booksMatchSearchTerm( "java" ) )
+                .containsExactlyElementsOf( library.booksMatchSearchTerm( "java" ) );
+        sut.booksMatchSearchTerm( "xyz" );
+        sut.booksMatchPredicate( b -> true );
+        sut.getBookById( 3 );
+        sut.getBookById( 99 );
+
+        List<OperationStats> stats = sut.stats();
+        assertThat( stats ).extracting( OperationStats::getCount )
+                .containsExactly( 2L, 1L, 2L );
+        assertThat( stats.get( 0 ).getMaxResultSize() )
+                .isEqualTo( library.booksMatchSearchTerm( "java" ).size() );
+        assertThat( stats.get( 1 ).getMaxResultSize() )
+                .isEqualTo( library.getBooks().size() );
+        assertThat( stats.get( 2 ).getMeanResultSize() ).isEqualTo( 0.5 );
+        assertThat( stats.get( 0 ).getMaxMicros() ).isPositive();
+    }
+
+    @Test
+    void disabledRecordsNothing() {
+        sut.setEnabled( false );
+
+        assertThat( sut.getBookById( 3 ) ).isSameAs( library.getBookById( 3 ) );
+        sut.booksMatchSearchTerm( "java" );
+
+        assertThat( sut.stats() ).extracting( OperationStats::getCount )
+                .containsOnly( 0L );
+    }
+
+    @Test
+    void exposedThroughJmx() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        sut.register( "test" );
+        try {
+            sut.getBookById( 3 );
+            ObjectName name = new ObjectName( TimedLibrary.DOMAIN
+                    + ":type=TimedLibrary,name=test,operation=getBookById" );
+
+            assertThat( server.getAttribute( name, "Count" ) ).isEqualTo( 1L );
+            server.setAttribute( new ObjectName( TimedLibrary.DOMAIN
+                    + ":type=TimedLibrary,name=test" ),
+                    new Attribute( "Enabled", false ) );
+            assertThat( sut.isEnabled() ).isFalse();
+        } finally {
+            sut.unregister();
+        }
+        assertThat( server.queryNames( new ObjectName( TimedLibrary.DOMAIN
+                + ":type=TimedLibrary,name=test,*" ), null ) ).isEmpty();
+    }
+
+    @Test
+    void flightRecorderEvents() throws Exception {
+        Path file = dir.resolve( "search.jfr" );
+        try ( Recording recording = new Recording() ) {
+            recording.enable( SearchEvent.class );
+            recording.start();
+            sut.booksMatchSearchTerm( "java" );
+            sut.getBookById( 3 );
+            recording.stop();
+            recording.dump( file );
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents( file ).stream()
+                .filter( e -> e.getEventType().getName().equals(
+                "nl.fontys.sebivenlo.library.Search" ) )
+                .collect( Collectors.toList() );
+        assertThat( events ).extracting( e -> e.getString( "operation" ) )
+                .containsExactly( "booksMatchSearchTerm", "getBookById" );
+        assertThat( events ).extracting( e -> e.getString( "argument" ) )
+                .containsExactly( "java", "3" );
+        assertThat( events.get( 1 ).getInt( "resultSize" ) ).isEqualTo( 1 );
+    }
+}
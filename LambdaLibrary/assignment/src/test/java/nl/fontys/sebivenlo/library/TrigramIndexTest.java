@@ -0,0 +1,167 @@
+package nl.fontys.sebivenlo.library;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Fuzzy search must find misspelled authors and titles and rank like a brute
+ * force comparison of trigram sets.
+ */
+public class TrigramIndexTest {
+
+    static List<Book> books;
+    static TrigramIndex index;
+
+    @BeforeAll
+    static void load() throws Exception {
+        books = Book.loadFromFile( "library.csv" );
+        index = TrigramIndex.of( books );
+    }
+
+    @ParameterizedTest
+    @CsvSource( {
+        "Martn Fowlr,2",
+        "martin fowler,2",
+        "Robret C. Martin,9",
+        "Kaczanowsky,14",
+        "Java Concurency in Practise,4",
+        "Unit Testing in Jave,8"
+    } )
+    void typoStillFindsBook( String query, long expectedId ) {
+        List<TrigramIndex.Match> matches = index.topK( query, 3, 0.3 );
+
+        assertThat( matches ).isNotEmpty();
+        assertThat( matches.get( 0 ).getBook().getId() ).isEqualTo( expectedId );
+    }
+
+    @Test
+    void exactValueScoresOne() {
+        TrigramIndex.Match best = index.topK( "Martin Fowler", 1, 0.0 ).get( 0 );
+
+        assertThat( best.getSimilarity() ).isEqualTo( 1.0 );
+        assertThat( best.getMatched() ).isEqualTo( "Martin Fowler" );
+    }
+
+    @Test
+    void sameAuthorBooksFollowEachOther() {
+        assertThat( index.topK( "Martin Fowler", 2, 0.9 ) )
+                .extracting( m -> m.getBook().getId() )
+                .containsExactly( 2L, 11L );
+    }
+
+    @ParameterizedTest
+    @CsvSource( {
+        "Martn Fowlr,0.3",
+        "Java,0.1",
+        "design patterns,0.2",
+        "Robert,0.0",
+        "x,0.0"
+    } )
+    void sameAsBruteForce( String query, double threshold ) {
+        List<TrigramIndex.Match> matches = index.topK( query, books.size(),
+                threshold );
+
+        List<Double> expected = bruteForce( query, threshold );
+        assertThat( matches ).extracting( TrigramIndex.Match::getSimilarity )
+                .hasSameSizeAs( expected );
+        for ( int i = 0; i < expected.size(); i++ ) {
+            assertThat( matches.get( i ).getSimilarity() )
+                    .isCloseTo( expected.get( i ), within( 1e-6 ) );
+        }
+    }
+
+    @Test
+    void kLimitsResult() {
+        assertThat( index.topK( "Java", 2, 0.0 ) ).hasSize( 2 );
+        assertThat( index.topK( "Java", 0, 0.0 ) ).isEmpty();
+        assertThat( index.topK( "", 5, 0.0 ) ).hasSize( 0 );
+    }
+
+    @Test
+    void highThresholdDropsWeakMatches() {
+        assertThat( index.topK( "Martn Fowlr", 10, 0.95 ) ).isEmpty();
+    }
+
+    @ParameterizedTest
+    @CsvSource( {
+        "Martn Fowlr,0.3",
+        "Java,0.1",
+        "design patterns,0.2",
+        "Robert,0.0",
+        "x,0.0"
+    } )
+    void scanSameAsIndex( String query, double threshold ) {
+        List<TrigramIndex.Match> expected = index.topK( query, books.size(),
+                threshold );
+
+        assertThat( TrigramIndex.scan( books, query, books.size(), threshold ) )
+                .extracting( TrigramIndex.Match::getSimilarity )
+                .containsExactlyElementsOf( expected.stream()
+                        .map( TrigramIndex.Match::getSimilarity )
+                        .collect( Collectors.toList() ) );
+    }
+
+    @Test
+    void librariesAgree() {
+        List<Long> expected = ids( new DefaultLibrary( books )
+                .booksFuzzyMatch( "Robrt Martn", 5, 0.3 ) );
+
+        assertThat( expected ).isNotEmpty();
+        assertThat( ids( new ColumnarLibrary( books )
+                .booksFuzzyMatch( "Robrt Martn", 5, 0.3 ) ) )
+                .isEqualTo( expected );
+        assertThat( ids( new IndexedLibrary( books )
+                .booksFuzzyMatch( "Robrt Martn", 5, 0.3 ) ) )
+                .isEqualTo( expected );
+    }
+
+    static List<Long> ids( List<TrigramIndex.Match> matches ) {
+        return matches.stream().map( m -> m.getBook().getId() )
+                .collect( Collectors.toList() );
+    }
+
+    /**
+     * Best similarity per book over author and title, descending.
+     */
+    static List<Double> bruteForce( String query, double threshold ) {
+        Set<Long> q = set( TrigramIndex.grams( query ) );
+        List<Double> result = new ArrayList<>();
+        for ( Book b : books ) {
+            double best = Math.max( dice( q, b.getAuthor() ),
+                    dice( q, b.getTitle() ) );
+            if ( best >= threshold && best > 0 ) {
+                result.add( best );
+            }
+        }
+        result.sort( Comparator.reverseOrder() );
+        return result;
+    }
+
+    static double dice( Set<Long> q, String value ) {
+        Set<Long> v = set( TrigramIndex.grams( value ) );
+        int q0 = q.size();
+        Set<Long> common = new HashSet<>( q );
+        common.retainAll( v );
+        return 2.0 * common.size() / ( q0 + v.size() );
+    }
+
+    static Set<Long> set( long[] grams ) {
+        Set<Long> result = new HashSet<>();
+        for ( long g : grams ) {
+            result.add( g );
+        }
+        return result;
+    }
+}